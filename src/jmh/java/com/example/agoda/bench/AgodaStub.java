@@ -0,0 +1,166 @@
+package com.example.agoda.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 부하 테스트용 아고다 대역 서버. agoda.upstream.base-url 을 이 서버 주소로 두고 변환을 돌린다.
+ *
+ * secondary-data 경로에는 secondary-data.json, 그 밖의 모든 경로에는 apiUrl 이 든 hotel-page.html 을
+ * session-cookies.txt 의 Set-Cookie 와 함께 돌려준다 (Accept-Encoding 에 gzip 이 있으면 gzip 으로).
+ * 응답마다 latency ± jitter 만큼 지연하고, error-rate 확률로 503, block-rate 확률로 403 을 돌려준다.
+ *
+ * 단독 실행: java -cp ... com.example.agoda.bench.AgodaStub [port] [latencyMs] [jitterMs] [errorRate] [blockRate]
+ */
+public final class AgodaStub implements AutoCloseable {
+
+    static final String SECONDARY_DATA_PATH = "/api/cronos/property/BelowFoldParams/GetSecondaryData";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final double blockRate;
+
+    private final Body hotelPage;
+    private final Body secondaryData;
+    private final Map<String, String> cookies;
+
+    // 지표
+    private final AtomicLong pageRequests = new AtomicLong();
+    private final AtomicLong apiRequests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong blocks = new AtomicLong();
+
+    public AgodaStub(int port, long latencyMillis, long jitterMillis, double errorRate, double blockRate) throws IOException {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.jitterMillis = Math.max(0, jitterMillis);
+        this.errorRate = errorRate;
+        this.blockRate = blockRate;
+        this.hotelPage = new Body(Fixtures.text("hotel-page.html"), "text/html; charset=utf-8");
+        this.secondaryData = new Body(Fixtures.text("secondary-data.json"), "application/json; charset=utf-8");
+        this.cookies = Fixtures.sessionCookies();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 512);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18090;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        long jitter = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        double blockRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+        AgodaStub stub = new AgodaStub(port, latency, jitter, errorRate, blockRate);
+        System.out.println("아고다 스텁 실행 중: " + stub.baseUrl() + " (latency=" + latency + "±" + jitter
+            + "ms errorRate=" + errorRate + " blockRate=" + blockRate + ")");
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pageRequests", pageRequests.get());
+        stats.put("apiRequests", apiRequests.get());
+        stats.put("errors", errors.get());
+        stats.put("blocks", blocks.get());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            boolean api = exchange.getRequestURI().getPath().equals(SECONDARY_DATA_PATH);
+            (api ? apiRequests : pageRequests).incrementAndGet();
+            delay();
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < blockRate) {
+                blocks.incrementAndGet();
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            if (roll < blockRate + errorRate) {
+                errors.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            Body body = api ? secondaryData : hotelPage;
+            if (!api) {
+                cookies.forEach((name, value) ->
+                    exchange.getResponseHeaders().add("Set-Cookie", name + "=" + value + "; Path=/"));
+            }
+            exchange.getResponseHeaders().set("Content-Type", body.contentType);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] bytes = body.plain;
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                bytes = body.gzip;
+            }
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private void delay() {
+        long millis = latencyMillis;
+        if (jitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+        }
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 미리 압축해 둔 응답 본문
+    private static final class Body {
+        final byte[] plain;
+        final byte[] gzip;
+        final String contentType;
+
+        Body(String text, String contentType) {
+            this.plain = text.getBytes(StandardCharsets.UTF_8);
+            this.contentType = contentType;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+                gz.write(plain);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.gzip = out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.agoda.bench;
+
+import com.example.agoda.session.CookieTemplate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * CID 마다 실행되는 쿠키 재작성과 Cookie 헤더 생성.
+ *
+ * 시작 전에 session-cookies.golden.txt 와 출력이 같은지 확인하고, 다르면 벤치마크를 실패시킨다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CookieTemplateBenchmark {
+
+    // 골든 파일을 만들 때 쓴 기준 시각
+    private static final LocalDateTime GOLDEN_TIME = LocalDateTime.parse("2025-11-14T08:30:05");
+
+    private Map<String, String> sessionCookies;
+    private CookieTemplate template;
+    private int cid;
+
+    @Setup
+    public void setUp() {
+        verifyGolden();
+        sessionCookies = Fixtures.sessionCookies();
+        template = CookieTemplate.parse(sessionCookies);
+    }
+
+    // 변환당 한 번
+    @Benchmark
+    public CookieTemplate parseTemplate() {
+        return CookieTemplate.parse(sessionCookies);
+    }
+
+    @Benchmark
+    public Map<String, String> updateCookiesWithNewCid() {
+        cid = cid == 1_999_999 ? 1_800_000 : cid + 1;
+        return template.forCid(cid).asMap();
+    }
+
+    // 요청 한 번에 실제로 드는 비용
+    @Benchmark
+    public String cookieHeaderForCid() {
+        cid = cid == 1_999_999 ? 1_800_000 : cid + 1;
+        return template.forCid(cid).header();
+    }
+
+    static void verifyGolden() {
+        for (String line : Fixtures.text("session-cookies.golden.txt").split("\n")) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", 3);
+            CookieTemplate.CidCookies cookies = CookieTemplate.parse(Fixtures.sessionCookies(fields[0]))
+                .forCid(Integer.parseInt(fields[1]), GOLDEN_TIME);
+            String fromMap = cookies.asMap().entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining("; "));
+            if (!fields[2].equals(cookies.header()) || !fields[2].equals(fromMap)) {
+                throw new IllegalStateException("골든 출력과 다름: " + fields[0] + " cid=" + fields[1]
+                    + "\n  기대: " + fields[2] + "\n  헤더: " + cookies.header() + "\n  맵:   " + fromMap);
+            }
+        }
+    }
+}
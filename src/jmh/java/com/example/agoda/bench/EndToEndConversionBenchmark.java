@@ -0,0 +1,199 @@
+package com.example.agoda.bench;
+
+import com.example.agoda.AgodaCidConverterApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 아고다 대역 서버(AgodaStub)를 상대로 한 변환 전체(접수 → CID별 조회 → SSE 완료)의 처리량과 지연 시간.
+ *
+ * 앱을 agoda.upstream.base-url=스텁 으로 띄우고, 스레드마다 호텔 id 를 바꿔 가며(결과 캐시 회피) 변환을 요청한 뒤
+ * /api/progress 로 complete 이벤트까지 기다린다. throughput 은 초당 변환 수, latency 는 p50/p99 등 분포.
+ * 요청 간격 조절은 끄고, HtmlUnit 전략은 쓰지 않는다 (cid-chains 비움).
+ * 앱 설정은 -jvmArgsAppend "-Dagoda.executor.max-conversions=8" 처럼 시스템 속성으로 바꿀 수 있다.
+ *
+ * 실행: mvn -Pbenchmarks package exec:exec -DskipTests -Djmh.args="EndToEndConversion -p latencyMs=50 -p errorRate=0.05"
+ */
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class EndToEndConversionBenchmark {
+
+    // 스텁 응답 지연/지터(ms), 503/403 확률
+    @Param("50")
+    public long latencyMs;
+
+    @Param("20")
+    public long jitterMs;
+
+    @Param("0.0")
+    public double errorRate;
+
+    @Param("0.0")
+    public double blockRate;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong hotelIds = new AtomicLong(1_000_000);
+
+    private AgodaStub stub;
+    private ConfigurableApplicationContext app;
+    private HttpClient client;
+    private String appUrl;
+
+    /**
+     * 변환 결과별 건수 (JMH 가 초당 건수로 함께 출력)
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long completed;
+        public long failed;
+        public long rejected;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stub = new AgodaStub(0, latencyMs, jitterMs, errorRate, blockRate);
+        app = new SpringApplicationBuilder(AgodaCidConverterApplication.class)
+            .run(appArgs(stub.baseUrl()));
+        appUrl = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println("stub " + stub.stats());
+        app.close();
+        stub.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void conversionThroughput(Outcomes outcomes) throws Exception {
+        convert(outcomes);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void conversionLatency(Outcomes outcomes) throws Exception {
+        convert(outcomes);
+    }
+
+    // 변환 한 건을 요청하고 끝날 때까지 SSE 를 읽음
+    private void convert(Outcomes outcomes) throws IOException, InterruptedException {
+        long hotelId = hotelIds.incrementAndGet();
+        String jobId = "bench-" + hotelId;
+        String url = Fixtures.HOTEL_URL.replace("hotel_id=535922", "hotel_id=" + hotelId);
+        String body = mapper.writeValueAsString(Map.of("url", url, "sessionId", jobId));
+
+        HttpResponse<String> accepted = client.send(
+            HttpRequest.newBuilder(URI.create(appUrl + "/api/convert"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (accepted.statusCode() == 503) {
+            outcomes.rejected++;
+            return;
+        }
+        if (accepted.statusCode() != 200) {
+            throw new IllegalStateException("변환 요청 실패 HTTP " + accepted.statusCode() + ": " + accepted.body());
+        }
+
+        HttpResponse<Stream<String>> events = client.send(
+            HttpRequest.newBuilder(URI.create(appUrl + "/api/progress/" + jobId))
+                .header("Accept", "text/event-stream")
+                .timeout(Duration.ofMinutes(3))
+                .GET()
+                .build(),
+            HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = events.body()) {
+            Iterator<String> it = lines.iterator();
+            while (it.hasNext()) {
+                String line = it.next();
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                JsonNode data = mapper.readTree(line.substring(5));
+                switch (data.path("type").asText()) {
+                    case "complete" -> {
+                        outcomes.completed++;
+                        return;
+                    }
+                    case "error" -> {
+                        outcomes.failed++;
+                        return;
+                    }
+                    default -> {
+                        // progress/result 등
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("완료 이벤트 없이 SSE 가 끝났습니다: " + jobId);
+    }
+
+    // 부하 테스트용 앱 설정 (같은 키의 시스템 속성이 있으면 그 값 우선)
+    private static String[] appArgs(String stubUrl) {
+        String[][] defaults = {
+            { "server.port", "0" },
+            { "agoda.upstream.base-url", stubUrl },
+            { "agoda.pacer.host-rate", "1000000" },
+            { "agoda.pacer.host-burst", "1000000" },
+            { "agoda.pacer.session-interval-ms", "0" },
+            { "agoda.pacer.jitter-ms", "0" },
+            { "agoda.strategy.cid-chains", "" },
+            { "agoda.htmlunit.pool.prewarm", "0" },
+            { "agoda.cookie-pool.size", "2" },
+            { "agoda.jobs.detach-grace-seconds", "0" },
+            { "logging.level.com.example.agoda", "WARN" },
+        };
+        List<String> args = new ArrayList<>();
+        for (String[] entry : defaults) {
+            if (System.getProperty(entry[0]) == null) {
+                args.add("--" + entry[0] + "=" + entry[1]);
+            }
+        }
+        return args.toArray(String[]::new);
+    }
+}
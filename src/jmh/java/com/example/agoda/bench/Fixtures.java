@@ -0,0 +1,48 @@
+package com.example.agoda.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * src/jmh/resources/fixtures 의 고정 스냅샷 로더.
+ */
+final class Fixtures {
+
+    static final String HOTEL_URL = "https://www.agoda.com/ko-kr/shilla-stay-seocho/hotel/seoul-kr.html"
+        + "?cid=1829968&checkIn=2025-11-14&los=1&rooms=1&adults=2&children=0&currencyCode=KRW&hotel_id=535922";
+
+    private Fixtures() {
+    }
+
+    static String text(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("픽스처 없음: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 이름=값 형식의 세션 쿠키 스냅샷 ('#' 주석, 빈 줄 무시)
+    static Map<String, String> sessionCookies() {
+        return sessionCookies("session-cookies.txt");
+    }
+
+    static Map<String, String> sessionCookies(String name) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (String line : text(name).split("\n")) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int eq = line.indexOf('=');
+            cookies.put(line.substring(0, eq), line.substring(eq + 1).trim());
+        }
+        return cookies;
+    }
+}
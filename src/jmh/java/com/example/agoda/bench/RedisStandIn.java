@@ -0,0 +1,365 @@
+package com.example.agoda.bench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 다중 노드 시험용 Redis 대역 서버. agoda.cluster.mode=redis 노드들을 agoda.cluster.redis-url=redis://127.0.0.1:포트 로 붙인다.
+ *
+ * RedisClusterCoordinator 가 쓰는 명령만 메모리 안에서 흉내 낸다: 목록(LPUSH/RPUSH/RPOP/BRPOP/LLEN/DEL),
+ * 채널(PUBLISH/SUBSCRIBE/UNSUBSCRIBE), 연결(PING/ECHO/SELECT/CLIENT/QUIT). 영속화/만료/인증은 없다.
+ *
+ * 단독 실행: java -cp ... com.example.agoda.bench.RedisStandIn [port]
+ */
+public final class RedisStandIn implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // 목록은 잠금 하나로 보호하고, BRPOP 은 조건 변수로 기다림
+    private final ReentrantLock listLock = new ReentrantLock();
+    private final Condition listChanged = listLock.newCondition();
+    private final Map<String, Deque<String>> lists = new HashMap<>();
+    private final Map<String, Set<Client>> channels = new ConcurrentHashMap<>();
+
+    // 지표
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    public RedisStandIn(int port) throws IOException {
+        this.server = new ServerSocket(port, 512, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 16379;
+        RedisStandIn standIn = new RedisStandIn(port);
+        System.out.println("Redis 대역 서버 실행 중: " + standIn.url());
+        Thread.currentThread().join();
+    }
+
+    public String url() {
+        return "redis://127.0.0.1:" + server.getLocalPort();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connections.get());
+        stats.put("commands", commands.get());
+        stats.put("published", published.get());
+        listLock.lock();
+        try {
+            Map<String, Integer> sizes = new LinkedHashMap<>();
+            lists.forEach((key, list) -> sizes.put(key, list.size()));
+            stats.put("lists", sizes);
+        } finally {
+            listLock.unlock();
+        }
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // 닫는 중
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.incrementAndGet();
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Client client;
+        try {
+            socket.setTcpNoDelay(true);
+            client = new Client(socket);
+        } catch (IOException e) {
+            return;
+        }
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command.isEmpty()) {
+                    continue;
+                }
+                commands.incrementAndGet();
+                if (!execute(client, command)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // 연결 종료
+        } finally {
+            client.subscriptions.forEach(channel -> unsubscribe(client, channel));
+        }
+    }
+
+    // 명령 하나 실행. 연결을 닫아야 하면 false
+    private boolean execute(Client client, List<String> command) throws IOException {
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        List<String> args = command.subList(1, command.size());
+        switch (name) {
+            case "PING" -> {
+                if (!client.subscriptions.isEmpty()) {
+                    client.write(array(bulk("pong"), bulk(args.isEmpty() ? "" : args.get(0))));
+                } else {
+                    client.write(args.isEmpty() ? simple("PONG") : bulk(args.get(0)));
+                }
+            }
+            case "ECHO" -> client.write(bulk(args.get(0)));
+            case "SELECT", "CLIENT" -> client.write(simple("OK"));
+            case "QUIT" -> {
+                client.write(simple("OK"));
+                return false;
+            }
+            case "LPUSH", "RPUSH" -> client.write(integer(push(args.get(0), args.subList(1, args.size()), name.equals("LPUSH"))));
+            case "RPOP" -> client.write(bulk(pop(List.of(args.get(0)), 0).map(List::getLast).orElse(null)));
+            case "BRPOP" -> {
+                // 0 은 무기한 (하루로 대신함)
+                double timeout = Double.parseDouble(args.get(args.size() - 1));
+                long timeoutMillis = timeout > 0 ? (long) (timeout * 1000) : TimeUnit.DAYS.toMillis(1);
+                List<String> popped = pop(args.subList(0, args.size() - 1), timeoutMillis).orElse(null);
+                client.write(popped == null ? nullArray() : array(bulk(popped.get(0)), bulk(popped.get(1))));
+            }
+            case "LLEN" -> client.write(integer(length(args.get(0))));
+            case "DEL" -> client.write(integer(delete(args)));
+            case "PUBLISH" -> client.write(integer(publish(args.get(0), args.get(1))));
+            case "SUBSCRIBE" -> {
+                for (String channel : args) {
+                    client.subscriptions.add(channel);
+                    channels.computeIfAbsent(channel, key -> new CopyOnWriteArraySet<>()).add(client);
+                    client.write(array(bulk("subscribe"), bulk(channel), integer(client.subscriptions.size())));
+                }
+            }
+            case "UNSUBSCRIBE" -> {
+                List<String> targets = args.isEmpty() ? new ArrayList<>(client.subscriptions) : args;
+                if (targets.isEmpty()) {
+                    client.write(array(bulk("unsubscribe"), bulk(null), integer(0)));
+                }
+                for (String channel : targets) {
+                    unsubscribe(client, channel);
+                    client.write(array(bulk("unsubscribe"), bulk(channel), integer(client.subscriptions.size())));
+                }
+            }
+            default -> client.write(("-ERR unknown command '" + command.get(0) + "'\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return true;
+    }
+
+    private long push(String key, List<String> values, boolean left) {
+        listLock.lock();
+        try {
+            Deque<String> list = lists.computeIfAbsent(key, k -> new ArrayDeque<>());
+            for (String value : values) {
+                if (left) {
+                    list.addFirst(value);
+                } else {
+                    list.addLast(value);
+                }
+            }
+            listChanged.signalAll();
+            return list.size();
+        } finally {
+            listLock.unlock();
+        }
+    }
+
+    // 처음으로 비어 있지 않은 목록의 오른쪽 끝을 꺼냄 ([키, 값]). timeoutMillis 0 은 RPOP(기다리지 않음)
+    private Optional<List<String>> pop(List<String> keys, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        listLock.lock();
+        try {
+            while (true) {
+                for (String key : keys) {
+                    Deque<String> list = lists.get(key);
+                    if (list != null && !list.isEmpty()) {
+                        String value = list.removeLast();
+                        if (list.isEmpty()) {
+                            lists.remove(key);
+                        }
+                        return Optional.of(List.of(key, value));
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return Optional.empty();
+                }
+                listChanged.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } finally {
+            listLock.unlock();
+        }
+    }
+
+    private long length(String key) {
+        listLock.lock();
+        try {
+            Deque<String> list = lists.get(key);
+            return list == null ? 0 : list.size();
+        } finally {
+            listLock.unlock();
+        }
+    }
+
+    private long delete(List<String> keys) {
+        listLock.lock();
+        try {
+            return keys.stream().filter(key -> lists.remove(key) != null).count();
+        } finally {
+            listLock.unlock();
+        }
+    }
+
+    private long publish(String channel, String message) {
+        published.incrementAndGet();
+        Set<Client> subscribers = channels.getOrDefault(channel, Set.of());
+        byte[] frame = array(bulk("message"), bulk(channel), bulk(message));
+        long delivered = 0;
+        for (Client subscriber : subscribers) {
+            try {
+                subscriber.write(frame);
+                delivered++;
+            } catch (IOException e) {
+                unsubscribe(subscriber, channel);
+            }
+        }
+        return delivered;
+    }
+
+    private void unsubscribe(Client client, String channel) {
+        client.subscriptions.remove(channel);
+        Set<Client> subscribers = channels.get(channel);
+        if (subscribers != null) {
+            subscribers.remove(client);
+        }
+    }
+
+    // RESP 배열(멀티 벌크) 명령 하나
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header.isEmpty()) {
+            return List.of();
+        }
+        if (header.charAt(0) != '*') {
+            // 인라인 명령 (redis-cli/telnet)
+            return List.of(header.trim().split("\\s+"));
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<String> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String length = readLine(in);
+            if (length.isEmpty() || length.charAt(0) != '$') {
+                throw new IOException("벌크 문자열이 아님: " + length);
+            }
+            byte[] data = in.readNBytes(Integer.parseInt(length.substring(1)));
+            readLine(in);
+            parts.add(new String(data, StandardCharsets.UTF_8));
+        }
+        return parts;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(32);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\r') {
+                in.read();
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            line.write(b);
+        }
+        throw new EOFException();
+    }
+
+    private static byte[] simple(String value) {
+        return ("+" + value + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] integer(long value) {
+        return (":" + value + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bulk(String value) {
+        if (value == null) {
+            return "$-1\r\n".getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 16);
+        out.writeBytes(("$" + data.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(data);
+        out.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private static byte[] array(byte[]... items) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(("*" + items.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+        for (byte[] item : items) {
+            out.writeBytes(item);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] nullArray() {
+        return "*-1\r\n".getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 연결 하나 (PUBLISH 가 다른 연결의 스레드에서 쓰므로 쓰기는 잠금)
+    private static final class Client {
+        private final OutputStream out;
+        private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+
+        Client(Socket socket) throws IOException {
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        synchronized void write(byte[] frame) throws IOException {
+            out.write(frame);
+            out.flush();
+        }
+    }
+}
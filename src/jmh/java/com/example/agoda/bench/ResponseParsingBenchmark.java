@@ -0,0 +1,135 @@
+package com.example.agoda.bench;
+
+import com.example.agoda.upstream.AgodaPages;
+import com.example.agoda.upstream.ApiPathScanner;
+import com.example.agoda.upstream.SecondaryDataReader;
+import com.example.agoda.upstream.UpstreamTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 호텔 페이지의 script-initparam apiUrl 추출(Jsoup)과 secondary-data JSON 파싱(Jackson).
+ * *Stream 은 UpstreamTransport 처럼 gzip 본문을 문자열 없이 바로 파싱하는 경로,
+ * scanApiPath* 는 DOM 없이 script-initparam 블록까지만 읽는 경로,
+ * readSecondaryData* 는 트리 없이 필요한 경로만 읽는 경로 (roomPrices 는 객실별 가격 경로를 추가한 경우).
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SecondaryDataReader reader = new SecondaryDataReader(new String[0]);
+    private final SecondaryDataReader roomPriceReader =
+        new SecondaryDataReader(new String[] { "roomGridData.masterRooms[].offers[].price.inclusive" });
+
+    private String hotelPageHtml;
+    private String secondaryDataJson;
+    private byte[] hotelPageBytes;
+    private byte[] hotelPageGzip;
+    private byte[] secondaryDataBytes;
+    private byte[] secondaryDataGzip;
+
+    @Setup
+    public void setUp() {
+        hotelPageHtml = Fixtures.text("hotel-page.html");
+        secondaryDataJson = Fixtures.text("secondary-data.json");
+        hotelPageBytes = hotelPageHtml.getBytes(StandardCharsets.UTF_8);
+        hotelPageGzip = gzip(hotelPageHtml);
+        secondaryDataBytes = secondaryDataJson.getBytes(StandardCharsets.UTF_8);
+        secondaryDataGzip = gzip(secondaryDataJson);
+    }
+
+    @Benchmark
+    public String extractApiPath() {
+        return AgodaPages.extractApiPath(Jsoup.parse(hotelPageHtml, Fixtures.HOTEL_URL));
+    }
+
+    // 컨트롤러가 읽는 필드까지 포함
+    @Benchmark
+    public void parseSecondaryData(Blackhole bh) throws IOException {
+        JsonNode root = mapper.readTree(secondaryDataJson);
+        bh.consume(root.path("tealium").path("totalPriceTaxInc").asDouble(0));
+        bh.consume(root.path("hotelInfo").path("name").asText(null));
+        bh.consume(root.path("mosaicInitData").path("discount").path("currency").asText("UNKNOWN"));
+    }
+
+    @Benchmark
+    public String extractApiPathStream() throws IOException {
+        try (InputStream in = UpstreamTransport.decode(new ByteArrayInputStream(hotelPageGzip), "gzip")) {
+            return AgodaPages.extractApiPath(Jsoup.parse(in, "UTF-8", Fixtures.HOTEL_URL));
+        }
+    }
+
+    @Benchmark
+    public String scanApiPath() throws IOException {
+        return ApiPathScanner.scan(new ByteArrayInputStream(hotelPageBytes), 512 * 1024).apiPath();
+    }
+
+    @Benchmark
+    public String scanApiPathStream() throws IOException {
+        try (InputStream in = UpstreamTransport.decode(new ByteArrayInputStream(hotelPageGzip), "gzip")) {
+            return ApiPathScanner.scan(in, 512 * 1024).apiPath();
+        }
+    }
+
+    @Benchmark
+    public void parseSecondaryDataStream(Blackhole bh) throws IOException {
+        JsonNode root;
+        try (InputStream in = UpstreamTransport.decode(new ByteArrayInputStream(secondaryDataGzip), "gzip")) {
+            root = mapper.readTree(in);
+        }
+        bh.consume(root.path("tealium").path("totalPriceTaxInc").asDouble(0));
+        bh.consume(root.path("hotelInfo").path("name").asText(null));
+        bh.consume(root.path("mosaicInitData").path("discount").path("currency").asText("UNKNOWN"));
+    }
+
+    @Benchmark
+    public SecondaryDataReader.SecondaryData readSecondaryData() throws IOException {
+        return reader.read(new ByteArrayInputStream(secondaryDataBytes));
+    }
+
+    @Benchmark
+    public SecondaryDataReader.SecondaryData readSecondaryDataRoomPrices() throws IOException {
+        return roomPriceReader.read(new ByteArrayInputStream(secondaryDataBytes));
+    }
+
+    @Benchmark
+    public SecondaryDataReader.SecondaryData readSecondaryDataStream() throws IOException {
+        try (InputStream in = UpstreamTransport.decode(new ByteArrayInputStream(secondaryDataGzip), "gzip")) {
+            return reader.read(in);
+        }
+    }
+
+    private static byte[] gzip(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
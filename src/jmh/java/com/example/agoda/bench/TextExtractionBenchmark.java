@@ -0,0 +1,73 @@
+package com.example.agoda.bench;
+
+import com.example.agoda.browser.HotelPageExtractor;
+import com.example.agoda.model.CidEntry;
+import com.example.agoda.model.ConversionOutcome;
+import com.example.agoda.model.LinkInfo;
+import com.example.agoda.upstream.AgodaPages;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 가격 텍스트 파싱, URL 통화 추출, 고정 CID 순서 정렬.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextExtractionBenchmark {
+
+    private List<CidEntry> cidList;
+    private List<LinkInfo> shuffledResults;
+
+    @Setup
+    public void setUp() {
+        // 변환 한 건 규모 (고정 CID + 자동 CID 5개)
+        cidList = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            cidList.add(new CidEntry("CID-" + i, 1_829_968 + i * 17));
+        }
+        List<LinkInfo> results = new ArrayList<>();
+        for (CidEntry entry : cidList) {
+            results.add(new LinkInfo(entry.label(), entry.cid(), Fixtures.HOTEL_URL, 198_000, false, "신라스테이 서초"));
+        }
+        Collections.shuffle(results, new Random(42));
+        shuffledResults = results;
+    }
+
+    @Benchmark
+    public double extractPriceFromText(PriceText input) {
+        return HotelPageExtractor.extractPriceFromText(input.priceText);
+    }
+
+    @Benchmark
+    public String extractCurrencyFromUrl() {
+        return AgodaPages.extractCurrencyFromUrl(Fixtures.HOTEL_URL);
+    }
+
+    @Benchmark
+    public List<LinkInfo> sortResultsByFixedOrder() {
+        return ConversionOutcome.sortByCidOrder(shuffledResults, cidList);
+    }
+
+    @State(Scope.Benchmark)
+    public static class PriceText {
+        @Param({"₩198,000", "US$ 1,234,567 (세금 포함)", "가격 정보 없음"})
+        public String priceText;
+    }
+}
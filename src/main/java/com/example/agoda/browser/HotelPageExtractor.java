@@ -0,0 +1,177 @@
+package com.example.agoda.browser;
+
+import com.gargoylesoftware.htmlunit.html.DomNode;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 렌더링된 호텔 페이지 하나에서 가격, 호텔명, 통화, 품절 여부를 함께 추출한다.
+ *
+ * 필드마다 선택 전략 목록을 두고 앞에서부터 시도한다. 해시가 붙은 CSS 클래스는 자주 바뀌므로
+ * data-selenium / meta 같은 안정적인 선택자를 뒤에 대체 경로로 둔다.
+ */
+@Component
+public class HotelPageExtractor {
+
+    // 가격 텍스트의 통화 기호 → 통화 코드
+    private static final Map<String, String> CURRENCY_SYMBOLS = Map.of(
+        "₩", "KRW",
+        "원", "KRW",
+        "US$", "USD",
+        "$", "USD",
+        "¥", "JPY",
+        "€", "EUR",
+        "£", "GBP",
+        "฿", "THB"
+    );
+
+    // 해시가 붙지 않은 안정적인 선택자 (렌더링 없이 정적 HTML 에서 읽을 때도 사용)
+    public static final String DISPLAY_PRICE = "[data-selenium=display-price]";
+    public static final String FINAL_PRICE = "[data-element-name=final-price]";
+    public static final String HOTEL_HEADER_NAME = "[data-selenium=hotel-header-name]";
+    public static final String OG_TITLE = "meta[property='og:title']";
+    public static final String SOLD_OUT_MESSAGE = "[data-selenium=sold-out-message]";
+    public static final String NO_AVAILABILITY = "[data-element-name=no-availability-message]";
+
+    private final List<SelectorStrategy> priceStrategies;
+    private final List<SelectorStrategy> hotelNameStrategies;
+    private final List<SelectorStrategy> currencyStrategies;
+    private final List<SelectorStrategy> soldOutStrategies;
+
+    public HotelPageExtractor() {
+        this(defaultPriceStrategies(), defaultHotelNameStrategies(),
+            defaultCurrencyStrategies(), defaultSoldOutStrategies());
+    }
+
+    public HotelPageExtractor(List<SelectorStrategy> priceStrategies,
+                              List<SelectorStrategy> hotelNameStrategies,
+                              List<SelectorStrategy> currencyStrategies,
+                              List<SelectorStrategy> soldOutStrategies) {
+        this.priceStrategies = List.copyOf(priceStrategies);
+        this.hotelNameStrategies = List.copyOf(hotelNameStrategies);
+        this.currencyStrategies = List.copyOf(currencyStrategies);
+        this.soldOutStrategies = List.copyOf(soldOutStrategies);
+    }
+
+    public static List<SelectorStrategy> defaultPriceStrategies() {
+        return List.of(
+            SelectorStrategy.css("navbar-price",
+                "#hotelNavBar > nav > div > div > div.ae161-box.ae161-fill-inherit.ae161-text-inherit.ae161-items-center.ae161-flex.ae161-shrink > div > span > div > span:nth-child(5)"),
+            SelectorStrategy.css("display-price", DISPLAY_PRICE),
+            SelectorStrategy.css("final-price", FINAL_PRICE)
+        );
+    }
+
+    public static List<SelectorStrategy> defaultHotelNameStrategies() {
+        return List.of(
+            SelectorStrategy.css("main-content-h1",
+                "#property-main-content > div.Box-sc-kv6pi1-0.cJiLOx.sc-fodVxV.fpbXlD > div > div.ae161-box.ae161-fill-inherit.ae161-text-inherit.ae161-inline-block > h1"),
+            SelectorStrategy.css("hotel-header-name", HOTEL_HEADER_NAME),
+            SelectorStrategy.attribute("og-title", OG_TITLE, "content"),
+            SelectorStrategy.css("first-h1", "h1")
+        );
+    }
+
+    public static List<SelectorStrategy> defaultCurrencyStrategies() {
+        return List.of(
+            SelectorStrategy.css("hotel-currency", "[data-selenium=hotel-currency]"),
+            SelectorStrategy.attribute("price-currency-meta", "meta[itemprop=priceCurrency]", "content")
+        );
+    }
+
+    public static List<SelectorStrategy> defaultSoldOutStrategies() {
+        return List.of(
+            SelectorStrategy.css("sold-out-message", SOLD_OUT_MESSAGE),
+            SelectorStrategy.css("no-availability", NO_AVAILABILITY)
+        );
+    }
+
+    /**
+     * 가격 또는 품절 표시가 나타났는지 여부 (JS 대기 종료 조건)
+     */
+    public boolean isReady(DomNode page) {
+        return firstPrice(page) > 0 || firstMatch(soldOutStrategies, page).isPresent();
+    }
+
+    public PageExtraction extract(DomNode page) {
+        double price = 0;
+        String currency = null;
+        for (SelectorStrategy strategy : priceStrategies) {
+            Optional<String> text = strategy.select(page);
+            if (text.isEmpty()) {
+                continue;
+            }
+            price = extractPriceFromText(text.get());
+            if (price > 0) {
+                currency = currencyFromSymbol(text.get());
+                break;
+            }
+        }
+
+        Optional<String> explicitCurrency = firstMatch(currencyStrategies, page);
+        if (explicitCurrency.isPresent()) {
+            currency = explicitCurrency.get().toUpperCase();
+        }
+
+        String hotelName = firstMatch(hotelNameStrategies, page).orElse(null);
+        boolean soldOut = price <= 0 && firstMatch(soldOutStrategies, page).isPresent();
+
+        return new PageExtraction(price, hotelName, currency != null ? currency : "UNKNOWN", soldOut);
+    }
+
+    // 텍스트에서 가격 추출
+    public static double extractPriceFromText(String text) {
+        if (text == null || text.isEmpty()) return 0;
+
+        String numbersOnly = text.replaceAll("[^0-9,]", "");
+        if (numbersOnly.isEmpty()) return 0;
+
+        try {
+            double price = Double.parseDouble(numbersOnly.replace(",", ""));
+            if (price >= 10000 && price <= 10_000_000) {
+                return price;
+            }
+        } catch (NumberFormatException e) {
+            // 숫자 변환 실패 시 0
+        }
+
+        return 0;
+    }
+
+    private double firstPrice(DomNode page) {
+        for (SelectorStrategy strategy : priceStrategies) {
+            Optional<String> text = strategy.select(page);
+            if (text.isPresent()) {
+                double price = extractPriceFromText(text.get());
+                if (price > 0) {
+                    return price;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static Optional<String> firstMatch(List<SelectorStrategy> strategies, DomNode page) {
+        for (SelectorStrategy strategy : strategies) {
+            Optional<String> value = strategy.select(page);
+            if (value.isPresent()) {
+                return value;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String currencyFromSymbol(String priceText) {
+        // "US$" 가 "$" 보다 먼저 잡히도록 긴 기호부터 확인
+        return CURRENCY_SYMBOLS.entrySet().stream()
+            .sorted((a, b) -> b.getKey().length() - a.getKey().length())
+            .filter(entry -> priceText.contains(entry.getKey()))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElse(null);
+    }
+}
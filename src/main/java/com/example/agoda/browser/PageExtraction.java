@@ -0,0 +1,12 @@
+package com.example.agoda.browser;
+
+/**
+ * 한 번 렌더링한 호텔 페이지에서 뽑은 결과.
+ * price 가 0 이면 가격을 찾지 못한 것이고, soldOut 은 페이지에 품절 표시가 있었는지 여부이다.
+ */
+public record PageExtraction(double price, String hotelName, String currency, boolean soldOut) {
+
+    public boolean hasPrice() {
+        return price > 0;
+    }
+}
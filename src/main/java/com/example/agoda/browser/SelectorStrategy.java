@@ -0,0 +1,57 @@
+package com.example.agoda.browser;
+
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+
+import java.util.Optional;
+
+/**
+ * 렌더링된 페이지에서 값 하나를 꺼내는 선택 전략.
+ * 같은 필드에 여러 전략을 순서대로 두고, 앞의 전략이 실패하면 다음 전략으로 넘어간다.
+ */
+public interface SelectorStrategy {
+
+    String name();
+
+    Optional<String> select(DomNode root);
+
+    // CSS 선택자의 텍스트
+    static SelectorStrategy css(String name, String selector) {
+        return new SelectorStrategy() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Optional<String> select(DomNode root) {
+                DomNode node = root.querySelector(selector);
+                if (node == null) {
+                    return Optional.empty();
+                }
+                String text = node.getTextContent().trim();
+                return text.isEmpty() ? Optional.empty() : Optional.of(text);
+            }
+        };
+    }
+
+    // CSS 선택자의 속성값 (meta content 등)
+    static SelectorStrategy attribute(String name, String selector, String attribute) {
+        return new SelectorStrategy() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Optional<String> select(DomNode root) {
+                DomNode node = root.querySelector(selector);
+                if (!(node instanceof DomElement element) || !element.hasAttribute(attribute)) {
+                    return Optional.empty();
+                }
+                String value = element.getAttribute(attribute).trim();
+                return value.isEmpty() ? Optional.empty() : Optional.of(value);
+            }
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.agoda.browser;
+
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 재사용 가능한 HtmlUnit WebClient 풀.
+ *
+ * 옵션과 공통 헤더는 생성 시 한 번만 적용하고 JS 엔진을 미리 돌려 둔다.
+ * 대여할 때는 쿠키 저장소만 비우며, 동시 대여 수는 힙 예산으로 계산한 크기를 넘지 않는다.
+ */
+@Component
+public class WebClientPool {
+
+    private final int poolSize;
+    private final int prewarmCount;
+    private final long acquireTimeoutMillis;
+    private final int pageTimeoutMillis;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<WebClient> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private volatile boolean closed;
+
+    public WebClientPool(
+            @Value("${agoda.htmlunit.pool.max-size:4}") int maxSize,
+            @Value("${agoda.htmlunit.pool.client-heap-mb:256}") long clientHeapMb,
+            @Value("${agoda.htmlunit.pool.heap-fraction:0.5}") double heapFraction,
+            @Value("${agoda.htmlunit.pool.prewarm:1}") int prewarmCount,
+            @Value("${agoda.htmlunit.pool.acquire-timeout-ms:30000}") long acquireTimeoutMillis,
+            @Value("${agoda.htmlunit.page-timeout-ms:30000}") int pageTimeoutMillis) {
+        long heapBudgetMb = (long) (Runtime.getRuntime().maxMemory() / (1024 * 1024) * heapFraction);
+        int byHeap = (int) Math.max(1, heapBudgetMb / Math.max(1, clientHeapMb));
+        this.poolSize = Math.max(1, Math.min(maxSize, byHeap));
+        this.prewarmCount = Math.min(prewarmCount, poolSize);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.pageTimeoutMillis = pageTimeoutMillis;
+        this.permits = new Semaphore(poolSize, true);
+    }
+
+    // 시작 지연을 피하기 위해 백그라운드에서 미리 생성
+    @PostConstruct
+    public void prewarm() {
+        if (prewarmCount <= 0) {
+            return;
+        }
+        Thread warmer = new Thread(() -> {
+            for (int i = 0; i < prewarmCount && !closed; i++) {
+                idle.offer(createClient());
+            }
+        }, "webclient-prewarm");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    /**
+     * WebClient 를 대여한다. 풀이 가득 차 있으면 acquire-timeout 까지 기다린다.
+     */
+    public Lease acquire() throws InterruptedException, TimeoutException {
+        if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            acquireTimeouts.incrementAndGet();
+            throw new TimeoutException("HtmlUnit WebClient 대기 시간 초과");
+        }
+        try {
+            WebClient client = idle.pollFirst();
+            if (client == null) {
+                client = createClient();
+            }
+            client.getCookieManager().clearCookies();
+            leased.incrementAndGet();
+            leaseCount.incrementAndGet();
+            return new Lease(client);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * ready 조건이 충족될 때까지 백그라운드 JS 를 짧게 나눠 기다린다.
+     * 더 이상 실행할 JS 가 없거나 maxWaitMillis 를 넘기면 마지막 확인 결과를 돌려준다.
+     */
+    public static boolean waitUntil(WebClient client, BooleanSupplier ready, long maxWaitMillis, long pollMillis) {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (!ready.getAsBoolean()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            int pendingJobs = client.waitForBackgroundJavaScript(Math.min(pollMillis, remaining));
+            if (pendingJobs == 0) {
+                return ready.getAsBoolean();
+            }
+        }
+        return true;
+    }
+
+    public int leasedClients() {
+        return leased.get();
+    }
+
+    public int waitingForClient() {
+        return permits.getQueueLength();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", poolSize);
+        stats.put("created", created.get());
+        stats.put("idle", idle.size());
+        stats.put("leased", leased.get());
+        stats.put("waiting", permits.getQueueLength());
+        stats.put("leaseCount", leaseCount.get());
+        stats.put("discarded", discarded.get());
+        stats.put("acquireTimeouts", acquireTimeouts.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        WebClient client;
+        while ((client = idle.pollFirst()) != null) {
+            client.close();
+        }
+    }
+
+    private WebClient createClient() {
+        WebClient webClient = new WebClient();
+        webClient.getOptions().setJavaScriptEnabled(true);
+        webClient.getOptions().setCssEnabled(false);
+        webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+        webClient.getOptions().setThrowExceptionOnScriptError(false);
+        webClient.getOptions().setTimeout(pageTimeoutMillis);
+        webClient.getOptions().setUseInsecureSSL(true);
+
+        webClient.addRequestHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
+        webClient.addRequestHeader("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8");
+
+        // JS 엔진 예열
+        try {
+            Page blank = webClient.getPage("about:blank");
+            if (blank instanceof HtmlPage htmlPage) {
+                htmlPage.executeJavaScript("JSON.stringify({ warm: [1, 2, 3].map(function (n) { return n * 2; }) })");
+            }
+        } catch (Exception e) {
+            // 예열 실패는 무시 (첫 페이지 로드에서 초기화됨)
+        }
+        created.incrementAndGet();
+        return webClient;
+    }
+
+    /**
+     * 대여한 WebClient. close() 시 풀로 돌려주고, 오류가 난 클라이언트는 discard() 후 close() 하면 폐기된다.
+     */
+    public final class Lease implements AutoCloseable {
+        private final WebClient client;
+        private boolean broken;
+        private boolean returned;
+
+        private Lease(WebClient client) {
+            this.client = client;
+        }
+
+        public WebClient client() {
+            return client;
+        }
+
+        public void discard() {
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (returned) {
+                return;
+            }
+            returned = true;
+            leased.decrementAndGet();
+            try {
+                if (broken || closed || idle.size() >= poolSize) {
+                    discarded.incrementAndGet();
+                    created.decrementAndGet();
+                    client.close();
+                    return;
+                }
+                // 렌더링된 DOM 을 풀에 남기지 않도록 빈 페이지로 이동
+                try {
+                    client.getPage("about:blank");
+                    idle.offerFirst(client);
+                } catch (Exception e) {
+                    discarded.incrementAndGet();
+                    created.decrementAndGet();
+                    client.close();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
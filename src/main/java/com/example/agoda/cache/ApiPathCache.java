@@ -0,0 +1,219 @@
+package com.example.agoda.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 호텔 페이지별 script-initparam apiUrl 캐시.
+ *
+ * 키는 cid 파라미터를 제거하고 나머지 쿼리를 정렬한 호텔 URL 이며,
+ * 적중 시 요청 URL 의 cid 를 캐시된 apiUrl 템플릿에 다시 써넣어 돌려준다.
+ * TTL 이 지난 항목은 조회 시 제거되고, 크기 상한을 넘으면 가장 오래 쓰이지 않은 항목부터 밀려난다.
+ * 같은 호텔에 대한 동시 미스는 하나의 페이지 수집으로 합쳐진다.
+ * 체크인 날짜만 다른 URL 의 템플릿이 있으면 그 apiUrl 의 checkIn 을 바꿔 써서 날짜마다 페이지를 받지 않는다
+ * (날짜 범위 조회용, 실패하면 호출 측이 invalidate 후 페이지를 새로 받음).
+ */
+@Component
+public class ApiPathCache {
+
+    private static final Pattern CID_PARAM = Pattern.compile("(?i)([?&]cid=)-?\\d+");
+    private static final Pattern CHECK_IN_PARAM = Pattern.compile("(?i)([?&]checkIn=)([^&#]*)");
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+    // 체크인을 뺀 키 → 그 호텔의 마지막 템플릿
+    private final Map<String, Entry> dateTemplates;
+    private final Map<String, CompletableFuture<String>> inflight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong dateHits = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ApiPathCache(
+            @Value("${agoda.api-path-cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${agoda.api-path-cache.max-size:500}") int maxSize) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ApiPathCache.this.maxSize;
+            }
+        };
+        this.dateTemplates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ApiPathCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * hotelPageUrl 의 cid 로 바꾼 apiUrl 경로를 돌려준다.
+     * 캐시에 없으면 loader 로 페이지를 수집하되, 이미 같은 호텔을 수집 중이면 그 결과를 함께 기다린다.
+     * 직접 수집한 결과가 아니면 Lookup.cached 가 true 이다.
+     */
+    public CompletableFuture<Lookup> lookup(String hotelPageUrl, Supplier<CompletableFuture<String>> loader) {
+        String key = normalize(hotelPageUrl);
+        String template = getTemplate(key);
+        if (template != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(new Lookup(rewriteCid(template, hotelPageUrl), true));
+        }
+        String dated = dateTemplate(hotelPageUrl);
+        if (dated != null) {
+            dateHits.incrementAndGet();
+            return CompletableFuture.completedFuture(new Lookup(rewriteCid(dated, hotelPageUrl), true));
+        }
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> existing = inflight.putIfAbsent(key, pending);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return existing.thenApply(path -> new Lookup(rewriteCid(path, hotelPageUrl), true));
+        }
+
+        misses.incrementAndGet();
+        loader.get().whenComplete((path, e) -> {
+            if (e == null) {
+                put(hotelPageUrl, path);
+            }
+            inflight.remove(key, pending);
+            if (e == null) {
+                pending.complete(path);
+            } else {
+                pending.completeExceptionally(e);
+            }
+        });
+        return pending.thenApply(path -> new Lookup(path, false));
+    }
+
+    public void put(String hotelPageUrl, String apiPath) {
+        Entry entry = new Entry(apiPath, System.nanoTime());
+        synchronized (entries) {
+            entries.put(normalize(hotelPageUrl), entry);
+            if (checkIn(hotelPageUrl) != null && checkIn(apiPath) != null) {
+                dateTemplates.put(datelessKey(hotelPageUrl), entry);
+            }
+        }
+    }
+
+    // 캐시된 템플릿이 오류/빈 응답을 낸 경우 호출 (날짜를 바꿔 쓴 템플릿도 함께 버림)
+    public void invalidate(String hotelPageUrl) {
+        synchronized (entries) {
+            boolean removed = entries.remove(normalize(hotelPageUrl)) != null;
+            removed |= dateTemplates.remove(datelessKey(hotelPageUrl)) != null;
+            if (removed) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("dateHits", dateHits.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    /**
+     * cid 파라미터를 제거하고 쿼리 파라미터를 정렬한 URL 을 만든다.
+     */
+    public static String normalize(String url) {
+        return normalize(url, false);
+    }
+
+    // 체크인 날짜만 다른 URL 이 같은 값이 되는 키
+    private static String datelessKey(String url) {
+        return normalize(url, true);
+    }
+
+    private static String normalize(String url, boolean withoutCheckIn) {
+        String trimmed = url.trim();
+        int fragment = trimmed.indexOf('#');
+        if (fragment >= 0) {
+            trimmed = trimmed.substring(0, fragment);
+        }
+        int queryStart = trimmed.indexOf('?');
+        String base = (queryStart >= 0 ? trimmed.substring(0, queryStart) : trimmed)
+            .replaceFirst("^(?i)https?://", "")
+            .toLowerCase();
+        String query = queryStart < 0 ? "" : Arrays.stream(trimmed.substring(queryStart + 1).split("&"))
+            .filter(param -> !param.isEmpty() && !param.toLowerCase().startsWith("cid="))
+            .filter(param -> !withoutCheckIn || !param.toLowerCase().startsWith("checkin="))
+            .sorted()
+            .collect(Collectors.joining("&"));
+        return base + (query.isEmpty() ? "" : "?" + query);
+    }
+
+    private String getTemplate(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.storedAt() > ttlNanos) {
+                entries.remove(key);
+                return null;
+            }
+            return entry == null ? null : entry.apiPath();
+        }
+    }
+
+    // 체크인만 다른 호텔의 템플릿을 이 URL 의 체크인으로 바꿔 돌려줌
+    private String dateTemplate(String hotelPageUrl) {
+        String checkIn = checkIn(hotelPageUrl);
+        if (checkIn == null) {
+            return null;
+        }
+        synchronized (entries) {
+            String key = datelessKey(hotelPageUrl);
+            Entry entry = dateTemplates.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.storedAt() > ttlNanos) {
+                dateTemplates.remove(key);
+                return null;
+            }
+            return CHECK_IN_PARAM.matcher(entry.apiPath()).replaceFirst("$1" + Matcher.quoteReplacement(checkIn));
+        }
+    }
+
+    private static String checkIn(String url) {
+        Matcher matcher = CHECK_IN_PARAM.matcher(url);
+        return matcher.find() && !matcher.group(2).isEmpty() ? matcher.group(2) : null;
+    }
+
+    private static String rewriteCid(String template, String hotelPageUrl) {
+        String cid = extractCid(hotelPageUrl);
+        return cid == null ? template : CID_PARAM.matcher(template).replaceFirst("$1" + cid);
+    }
+
+    private static String extractCid(String url) {
+        Matcher matcher = CID_PARAM.matcher(url);
+        return matcher.find() ? matcher.group().substring(matcher.group(1).length()) : null;
+    }
+
+    public record Lookup(String apiPath, boolean cached) {}
+
+    private record Entry(String apiPath, long storedAt) {}
+}
@@ -0,0 +1,80 @@
+package com.example.agoda.cache;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 같은 검색 조건이면 같은 값이 되는 변환 키.
+ *
+ * 아고다 URL 의 호텔 경로(또는 호텔 id), 체크인, 숙박일수, 객실/인원, 통화만 남기고
+ * cid·searchrequestid 처럼 결과에 영향이 없는 파라미터는 버린다.
+ * los 가 없고 checkOut 이 있으면 체크인~체크아웃 박수를 숙박일수로 쓴다.
+ */
+public record ConversionKey(String hotel, String checkIn, String los, String rooms,
+                            String adults, String children, String childAges, String currency) {
+
+    public static ConversionKey from(String url) {
+        String trimmed = url.trim();
+        int queryStart = trimmed.indexOf('?');
+        String path = (queryStart >= 0 ? trimmed.substring(0, queryStart) : trimmed)
+            .replaceFirst("^(?i)https?://[^/]+", "")
+            .replaceFirst("^/[a-z]{2}-[a-z]{2}(?=/)", "")
+            .toLowerCase();
+
+        Map<String, String> params = new HashMap<>();
+        if (queryStart >= 0) {
+            for (String param : trimmed.substring(queryStart + 1).split("[&#]")) {
+                int eq = param.indexOf('=');
+                if (eq > 0) {
+                    params.putIfAbsent(param.substring(0, eq).toLowerCase(), param.substring(eq + 1));
+                }
+            }
+        }
+
+        String hotelId = firstNonBlank(params.get("hotel_id"), params.get("hotel"), params.get("hid"));
+        String currency = firstNonBlank(params.get("currencycode"), params.get("currency"), "KRW").toUpperCase();
+        return new ConversionKey(
+            hotelId != null ? "id:" + hotelId : path,
+            params.getOrDefault("checkin", ""),
+            lengthOfStay(params),
+            params.getOrDefault("rooms", "1"),
+            params.getOrDefault("adults", "2"),
+            params.getOrDefault("children", "0"),
+            params.getOrDefault("childages", ""),
+            currency
+        );
+    }
+
+    // los 파라미터, 없으면 checkIn~checkOut 박수, 둘 다 없거나 잘못되었으면 1박
+    private static String lengthOfStay(Map<String, String> params) {
+        String los = params.get("los");
+        if (los != null && !los.isBlank()) {
+            return los;
+        }
+        String checkIn = params.get("checkin");
+        String checkOut = params.get("checkout");
+        if (checkIn != null && checkOut != null) {
+            try {
+                long nights = ChronoUnit.DAYS.between(LocalDate.parse(checkIn), LocalDate.parse(checkOut));
+                if (nights > 0) {
+                    return Long.toString(nights);
+                }
+            } catch (DateTimeParseException e) {
+                // 날짜 형식이 다르면 기본값
+            }
+        }
+        return "1";
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
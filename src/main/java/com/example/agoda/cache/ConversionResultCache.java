@@ -0,0 +1,150 @@
+package com.example.agoda.cache;
+
+import com.example.agoda.model.ConversionOutcome;
+import com.example.agoda.model.LinkInfo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 변환 결과 캐시.
+ *
+ * ConversionKey 별로 CID 마다의 LinkInfo 와 초기 가격 정보를 TTL 동안 보관한다.
+ * 전체 LinkInfo 수가 상한을 넘으면 가장 오래 조회되지 않은 변환 키부터 통째로 제거한다(LRU).
+ * 같은 키의 변환이 이미 진행 중이면 그 결과를 함께 기다리도록 진행 중 목록도 관리한다.
+ */
+@Component
+public class ConversionResultCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final LinkedHashMap<ConversionKey, Group> groups = new LinkedHashMap<>(16, 0.75f, true);
+    private int entryCount;
+
+    private final Map<ConversionKey, CompletableFuture<ConversionOutcome>> inflight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ConversionResultCache(
+            @Value("${agoda.result-cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${agoda.result-cache.max-entries:5000}") int maxEntries) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * 만료되지 않은 CID별 결과 (cid → LinkInfo)
+     */
+    public Map<Integer, LinkInfo> getResults(ConversionKey key) {
+        Map<Integer, LinkInfo> found = new HashMap<>();
+        synchronized (groups) {
+            Group group = groups.get(key);
+            if (group != null) {
+                long now = System.nanoTime();
+                Iterator<Map.Entry<Integer, Timed<LinkInfo>>> it = group.results.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, Timed<LinkInfo>> entry = it.next();
+                    if (now - entry.getValue().storedAt() > ttlNanos) {
+                        it.remove();
+                        entryCount--;
+                    } else {
+                        found.put(entry.getKey(), entry.getValue().value());
+                    }
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return found;
+    }
+
+    public InitialInfo getInitial(ConversionKey key) {
+        synchronized (groups) {
+            Group group = groups.get(key);
+            if (group == null || group.initial == null
+                    || System.nanoTime() - group.initial.storedAt() > ttlNanos) {
+                return null;
+            }
+            return group.initial.value();
+        }
+    }
+
+    public void putResult(ConversionKey key, LinkInfo result) {
+        synchronized (groups) {
+            Group group = groups.computeIfAbsent(key, k -> new Group());
+            if (group.results.put(result.getCid(), new Timed<>(result, System.nanoTime())) == null) {
+                entryCount++;
+            }
+            evictIfNeeded();
+        }
+    }
+
+    public void putInitial(ConversionKey key, InitialInfo initial) {
+        synchronized (groups) {
+            groups.computeIfAbsent(key, k -> new Group()).initial = new Timed<>(initial, System.nanoTime());
+        }
+    }
+
+    /**
+     * 같은 키의 변환이 진행 중이면 그 future 를, 아니면 null 을 돌려주고 owner 를 등록한다.
+     */
+    public CompletableFuture<ConversionOutcome> joinOrRegister(ConversionKey key,
+                                                                CompletableFuture<ConversionOutcome> owner) {
+        CompletableFuture<ConversionOutcome> existing = inflight.putIfAbsent(key, owner);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+        }
+        return existing;
+    }
+
+    public void complete(ConversionKey key, CompletableFuture<ConversionOutcome> owner) {
+        inflight.remove(key, owner);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (groups) {
+            stats.put("conversions", groups.size());
+            stats.put("entries", entryCount);
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("inflight", inflight.size());
+        return stats;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Group> it = groups.values().iterator();
+        while (entryCount > maxEntries && it.hasNext()) {
+            entryCount -= it.next().results.size();
+            it.remove();
+        }
+    }
+
+    public record InitialInfo(String hotel, double price, String currency) {}
+
+    private record Timed<T>(T value, long storedAt) {}
+
+    private static final class Group {
+        private final Map<Integer, Timed<LinkInfo>> results = new HashMap<>();
+        private Timed<InitialInfo> initial;
+    }
+}
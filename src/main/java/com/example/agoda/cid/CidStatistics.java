@@ -0,0 +1,375 @@
+package com.example.agoda.cid;
+
+import com.example.agoda.model.CidEntry;
+import com.example.agoda.model.LinkInfo;
+import com.example.agoda.model.LinkStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CID별 최저가/품절 이력 통계.
+ *
+ * 구간(지역 + 통화)마다 CID 가 몇 번 조회되어 몇 번 최저가였는지, 몇 번 품절이었는지를 센다.
+ * 빠른 모드는 이 승률로 CID 를 정렬해 상위 CID 만 먼저 조회하고, 최근 변환들에서 그 CID 묶음이
+ * 고정 CID 최저가(동률 포함)를 놓치지 않은 비율이 충분히 높으면 조기 응답한다. AUTO CID 는 무작위 대신 UCB1 밴딧으로 고르되, 매번 한 자리는
+ * 새 후보를 탐색한다(AUTO 후보는 구간과 무관하게 공유).
+ * agoda.cid-stats.file 을 지정하면 주기적으로 JSON 파일에 저장하고 시작 시 불러온다.
+ */
+@Component
+public class CidStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(CidStatistics.class);
+
+    // AUTO CID 탐색 범위
+    private static final int AUTO_CID_MIN = 1_800_000;
+    private static final int AUTO_CID_MAX = 2_000_000;
+
+    // 조회 이력이 적은 CID 의 승률 사전값 (wins + PRIOR_WINS) / (seen + 1)
+    private static final double PRIOR_WINS = 0.2;
+
+    // UCB1 탐색 가중치. 새 후보 탐색은 매번 별도 자리가 맡으므로 기존 후보는 낮은 가중치로 활용 위주
+    private static final double EXPLORATION = 0.3;
+
+    // 조기 응답 판단에 쓰는 최근 변환 수 (구간별)
+    private static final int RECENT_WINDOW = 50;
+
+    // 아고다 호텔 경로의 "/hotel/<도시>-<국가>.html"
+    private static final Pattern HOTEL_PATH = Pattern.compile("/hotel/[a-z0-9-]*?-([a-z]{2})\\.html", Pattern.CASE_INSENSITIVE);
+
+    private final int minSamples;
+    private final int maxArms;
+    private final Path file;
+    private final long saveIntervalSeconds;
+
+    private final Map<String, Segment> segments = new HashMap<>();
+    private final Map<Integer, Arm> arms = new HashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ScheduledExecutorService saver;
+    private boolean dirty;
+
+    public CidStatistics(
+            @Value("${agoda.fast-mode.min-samples:10}") int minSamples,
+            @Value("${agoda.cid-stats.max-auto-arms:500}") int maxArms,
+            @Value("${agoda.cid-stats.file:}") String file,
+            @Value("${agoda.cid-stats.save-interval-seconds:60}") long saveIntervalSeconds) {
+        this.minSamples = Math.max(1, minSamples);
+        this.maxArms = Math.max(1, maxArms);
+        this.file = file == null || file.isBlank() ? null : Path.of(file);
+        this.saveIntervalSeconds = Math.max(1, saveIntervalSeconds);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (file == null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            try {
+                Snapshot snapshot = mapper.readValue(file.toFile(), Snapshot.class);
+                synchronized (this) {
+                    snapshot.segments().forEach((key, segment) -> segments.put(key, segment.copy()));
+                    snapshot.arms().forEach((cid, arm) -> arms.put(cid, arm.copy()));
+                }
+                log.info("CID 통계 불러옴 file={} segments={} arms={}", file, segments.size(), arms.size());
+            } catch (IOException e) {
+                log.warn("CID 통계 파일을 읽지 못했습니다 file={}: {}", file, e.getMessage());
+            }
+        }
+        saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cid-stats-saver");
+            t.setDaemon(true);
+            return t;
+        });
+        saver.scheduleWithFixedDelay(this::save, saveIntervalSeconds, saveIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (saver != null) {
+            saver.shutdownNow();
+            save();
+        }
+    }
+
+    /**
+     * 통계 구간 키: URL 의 국가 코드 + 통화 (예: "kr|KRW")
+     */
+    public static String segmentKey(String url, String currency) {
+        Matcher matcher = HOTEL_PATH.matcher(url);
+        String region = matcher.find() ? matcher.group(1).toLowerCase() : "unknown";
+        return region + "|" + currency;
+    }
+
+    /**
+     * 빠른 모드를 쓸 만큼 이력이 쌓였는지
+     */
+    public synchronized boolean isWarm(String segmentKey) {
+        Segment segment = segments.get(segmentKey);
+        return segment != null && segment.recentWinners.size() >= minSamples;
+    }
+
+    /**
+     * 모든 CID 를 조회한 변환 결과를 기록한다. 실패/시간 초과 CID 는 제외한다.
+     */
+    public void record(String segmentKey, List<LinkInfo> results) {
+        List<LinkInfo> answered = results.stream()
+            .filter(r -> r.getStatus() == LinkStatus.OK || r.getStatus() == LinkStatus.SOLD_OUT)
+            .toList();
+        if (answered.isEmpty()) {
+            return;
+        }
+        double best = bestPrice(answered);
+        // 고정 CID 중 최저가(동률 포함) - 고정 CID 일부만 조회해도 되는지 판단하는 기준
+        List<LinkInfo> staticResults = answered.stream().filter(r -> !r.getLabel().startsWith("AUTO-")).toList();
+        double staticBest = bestPrice(staticResults);
+        List<Integer> staticWinners = staticResults.stream()
+            .filter(r -> staticBest > 0 && r.getStatus() == LinkStatus.OK && r.getPrice() == staticBest)
+            .map(LinkInfo::getCid)
+            .toList();
+
+        synchronized (this) {
+            Segment segment = segments.computeIfAbsent(segmentKey, key -> new Segment());
+            segment.conversions++;
+            if (!staticWinners.isEmpty()) {
+                segment.recentWinners.add(staticWinners);
+                if (segment.recentWinners.size() > RECENT_WINDOW) {
+                    segment.recentWinners.remove(0);
+                }
+            }
+            for (LinkInfo result : answered) {
+                boolean won = best > 0 && result.getStatus() == LinkStatus.OK && result.getPrice() == best;
+                CidStat stat = segment.cids.computeIfAbsent(result.getCid(), cid -> new CidStat());
+                stat.seen++;
+                if (won) {
+                    stat.wins++;
+                }
+                if (result.getStatus() == LinkStatus.SOLD_OUT) {
+                    stat.soldOut++;
+                }
+                if (result.getLabel().startsWith("AUTO-")) {
+                    Arm arm = arms.computeIfAbsent(result.getCid(), cid -> new Arm());
+                    arm.plays++;
+                    if (won) {
+                        arm.wins++;
+                    }
+                }
+            }
+            pruneArms();
+            dirty = true;
+        }
+    }
+
+    /**
+     * 추정 승률 내림차순으로 정렬 (같으면 원래 순서)
+     */
+    public synchronized List<CidEntry> rank(String segmentKey, List<CidEntry> candidates) {
+        Segment segment = segments.get(segmentKey);
+        List<CidEntry> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble((CidEntry entry) -> winRate(segment, entry.cid())).reversed());
+        return ranked;
+    }
+
+    /**
+     * 최근 변환 중 queried 만 조회했어도 고정 CID 최저가를 얻었을 비율
+     */
+    public synchronized double coverage(String segmentKey, Collection<CidEntry> queried) {
+        Segment segment = segments.get(segmentKey);
+        if (segment == null || segment.recentWinners.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> cids = new HashSet<>();
+        queried.forEach(entry -> cids.add(entry.cid()));
+        long hits = segment.recentWinners.stream()
+            .filter(winners -> winners.stream().anyMatch(cids::contains))
+            .count();
+        return (double) hits / segment.recentWinners.size();
+    }
+
+    /**
+     * AUTO CID count 개 선택. UCB1 점수가 높은 기존 후보로 채우고, 한 자리는 새 후보를 탐색한다.
+     */
+    public List<Integer> pickAutoCids(int count, Set<Integer> exclude) {
+        Set<Integer> picked = new LinkedHashSet<>();
+        if (count <= 0) {
+            return List.of();
+        }
+        synchronized (this) {
+            long totalPlays = arms.values().stream().mapToLong(arm -> arm.plays).sum();
+            arms.entrySet().stream()
+                .filter(entry -> !exclude.contains(entry.getKey()))
+                .sorted(Comparator.comparingDouble(
+                    (Map.Entry<Integer, Arm> entry) -> entry.getValue().ucb(totalPlays)).reversed())
+                .limit(count - 1)
+                .forEach(entry -> picked.add(entry.getKey()));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (picked.size() < count) {
+            int cid = random.nextInt(AUTO_CID_MIN, AUTO_CID_MAX + 1);
+            if (!exclude.contains(cid)) {
+                picked.add(cid);
+            }
+        }
+        return new ArrayList<>(picked);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("minSamples", minSamples);
+        stats.put("persisted", file != null);
+        stats.put("autoArms", arms.size());
+        Map<String, Object> bySegment = new LinkedHashMap<>();
+        segments.forEach((key, segment) -> {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("conversions", segment.conversions);
+            info.put("recentWindow", segment.recentWinners.size());
+            info.put("topCids", segment.cids.entrySet().stream()
+                .sorted(Comparator.comparingDouble(
+                    (Map.Entry<Integer, CidStat> entry) -> winRate(segment, entry.getKey())).reversed())
+                .limit(5)
+                .map(entry -> Map.of(
+                    "cid", entry.getKey(),
+                    "wins", entry.getValue().wins,
+                    "seen", entry.getValue().seen,
+                    "soldOut", entry.getValue().soldOut))
+                .toList());
+            bySegment.put(key, info);
+        });
+        stats.put("segments", bySegment);
+        return stats;
+    }
+
+    private static double bestPrice(List<LinkInfo> results) {
+        return results.stream()
+            .filter(r -> r.getStatus() == LinkStatus.OK && r.getPrice() > 0)
+            .mapToDouble(LinkInfo::getPrice)
+            .min()
+            .orElse(0);
+    }
+
+    private static double winRate(Segment segment, int cid) {
+        CidStat stat = segment == null ? null : segment.cids.get(cid);
+        return stat == null ? PRIOR_WINS : (stat.wins + PRIOR_WINS) / (stat.seen + 1);
+    }
+
+    // 후보가 너무 많으면 UCB1 점수가 가장 낮은 후보부터 제거
+    private void pruneArms() {
+        if (arms.size() <= maxArms) {
+            return;
+        }
+        long totalPlays = arms.values().stream().mapToLong(arm -> arm.plays).sum();
+        arms.entrySet().stream()
+            .sorted(Comparator.comparingDouble((Map.Entry<Integer, Arm> entry) -> entry.getValue().ucb(totalPlays)))
+            .limit(arms.size() - maxArms)
+            .map(Map.Entry::getKey)
+            .toList()
+            .forEach(arms::remove);
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        Snapshot snapshot;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            Map<String, Segment> segmentCopy = new HashMap<>();
+            segments.forEach((key, segment) -> segmentCopy.put(key, segment.copy()));
+            Map<Integer, Arm> armCopy = new HashMap<>();
+            arms.forEach((cid, arm) -> armCopy.put(cid, arm.copy()));
+            snapshot = new Snapshot(segmentCopy, armCopy);
+            dirty = false;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            mapper.writeValue(temp.toFile(), snapshot);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("CID 통계를 저장하지 못했습니다 file={}: {}", file, e.getMessage());
+        }
+    }
+
+    // 저장 파일 형식
+    record Snapshot(Map<String, Segment> segments, Map<Integer, Arm> arms) {}
+
+    static final class Segment {
+        public long conversions;
+        public Map<Integer, CidStat> cids = new HashMap<>();
+        // 최근 변환별 고정 CID 최저가 CID 목록 (오래된 순)
+        public List<List<Integer>> recentWinners = new ArrayList<>();
+
+        Segment copy() {
+            Segment copy = new Segment();
+            copy.conversions = conversions;
+            copy.recentWinners = new ArrayList<>(recentWinners);
+            cids.forEach((cid, stat) -> copy.cids.put(cid, stat.copy()));
+            return copy;
+        }
+    }
+
+    static final class CidStat {
+        public long seen;
+        public long wins;
+        public long soldOut;
+
+        CidStat copy() {
+            CidStat copy = new CidStat();
+            copy.seen = seen;
+            copy.wins = wins;
+            copy.soldOut = soldOut;
+            return copy;
+        }
+    }
+
+    static final class Arm {
+        public long plays;
+        public long wins;
+
+        double ucb(long totalPlays) {
+            if (plays == 0) {
+                return Double.MAX_VALUE;
+            }
+            return (double) wins / plays + EXPLORATION * Math.sqrt(Math.log(totalPlays + 1) / plays);
+        }
+
+        Arm copy() {
+            Arm copy = new Arm();
+            copy.plays = plays;
+            copy.wins = wins;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.agoda.cluster;
+
+import java.util.Map;
+
+/**
+ * 노드 사이에 넘기는 CID 조회 하나.
+ * url 은 변환 요청 주소(cid 교체 전), cookies 는 변환의 세션 쿠키 원본, pacingKey 는 요청 간격 조절 단위이다.
+ * deadlineAt(epoch ms)이 지난 작업은 맡긴 노드가 이미 시간 초과로 처리했으므로 실행하지 않는다.
+ */
+public record CidTask(String url, String label, int cid, Map<String, String> cookies,
+                      String pacingKey, long deadlineAt) {
+
+    public boolean expired() {
+        return System.currentTimeMillis() >= deadlineAt;
+    }
+}
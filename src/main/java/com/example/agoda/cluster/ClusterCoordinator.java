@@ -0,0 +1,42 @@
+package com.example.agoda.cluster;
+
+import com.example.agoda.model.LinkInfo;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 여러 인스턴스(노드) 사이의 작업 분산과 이벤트 전달.
+ *
+ * CID 조회는 dispatch 로 맡기고, 실제 조회는 어느 노드든 taskHandler 로 실행한다.
+ * 작업 이벤트는 publish 로 다른 노드에 알려, SSE 연결이 변환을 받은 노드와 다른 노드에 붙어도 이벤트를 받게 한다.
+ * agoda.cluster.mode 로 구현을 고른다 (local: 단일 노드, redis: Redis 목록/채널).
+ */
+public interface ClusterCoordinator {
+
+    // 이 노드 이름 (지표, 이벤트 출처 구분)
+    String nodeId();
+
+    // 다른 노드와 작업/이벤트를 주고받는지 (false 면 publish 는 하는 일이 없음)
+    boolean distributed();
+
+    /**
+     * CID 조회 하나를 맡긴다. 단일 노드 구현은 local 을 그대로 실행하고,
+     * 분산 구현은 공용 대기열에 넣어 여유 있는 노드가 가져가게 한다 (이 노드가 가져가거나 대기열을 쓸 수 없으면 local).
+     */
+    CompletableFuture<LinkInfo> dispatch(CidTask task, Supplier<CompletableFuture<LinkInfo>> local);
+
+    // 다른 노드가 맡긴 CID 조회를 실행할 함수
+    void setTaskHandler(Function<CidTask, CompletableFuture<LinkInfo>> handler);
+
+    // 이 노드가 기록한 작업 이벤트를 다른 노드에 알림 (작업별 순서 유지)
+    void publish(JobEvent event);
+
+    // 다른 노드가 알린 작업 이벤트를 받을 함수
+    void setEventListener(Consumer<JobEvent> listener);
+
+    Map<String, Object> stats();
+}
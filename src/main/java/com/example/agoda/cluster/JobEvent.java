@@ -0,0 +1,11 @@
+package com.example.agoda.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * 다른 노드에 알리는 작업 이벤트 한 건. seq 는 변환을 실행하는 노드가 매긴 순번(SSE id) 그대로이고,
+ * kind/urls 는 받는 노드에 작업이 없을 때 만드는 데 쓴다. complete 면 받는 노드도 SSE 연결을 닫는다.
+ */
+public record JobEvent(String jobId, String kind, List<String> urls, long seq, JsonNode data, boolean complete) {}
@@ -0,0 +1,59 @@
+package com.example.agoda.cluster;
+
+import com.example.agoda.model.LinkInfo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 단일 노드 (기본값). CID 조회는 이 노드에서 바로 실행하고 이벤트는 다른 노드로 보내지 않는다.
+ */
+@Component
+@ConditionalOnProperty(name = "agoda.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class LocalClusterCoordinator implements ClusterCoordinator {
+
+    @Override
+    public String nodeId() {
+        return "local";
+    }
+
+    @Override
+    public boolean distributed() {
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<LinkInfo> dispatch(CidTask task, Supplier<CompletableFuture<LinkInfo>> local) {
+        return local.get();
+    }
+
+    @Override
+    public void setTaskHandler(Function<CidTask, CompletableFuture<LinkInfo>> handler) {
+        // 다른 노드가 맡기는 작업 없음
+    }
+
+    @Override
+    public void publish(JobEvent event) {
+        // 받을 노드 없음
+    }
+
+    @Override
+    public void setEventListener(Consumer<JobEvent> listener) {
+        // 다른 노드의 이벤트 없음
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", "local");
+        stats.put("nodeId", nodeId());
+        return stats;
+    }
+}
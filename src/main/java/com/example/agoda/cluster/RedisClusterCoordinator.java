@@ -0,0 +1,519 @@
+package com.example.agoda.cluster;
+
+import com.example.agoda.model.LinkInfo;
+import com.example.agoda.model.LinkStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Redis 로 노드 사이 작업을 나눠 실행한다 (agoda.cluster.mode=redis).
+ *
+ * CID 조회는 공용 목록(키 접두어 + cid-tasks)에 LPUSH 하고, 노드마다 worker-concurrency 개의 작업자가 BRPOP 으로 가져가
+ * 실행한다. 작업자는 한 번에 하나씩만 가져가므로 바쁜 노드는 덜 가져가고 한가한 노드가 더 가져간다.
+ * 결과는 맡긴 노드의 결과 채널(results:노드)로 PUBLISH 한다. 자기 작업을 자기가 가져간 경우에는 dispatch 때 받은
+ * local 로 실행해, 배치/날짜 범위의 호텔별 공정 분배(Scope)와 변환 취소(연결 종료, 전체 마감)가 그대로 적용되게 한다.
+ * 다른 노드가 실행하는 작업에는 둘 다 적용되지 않는다 (맡긴 쪽 마감만 deadlineAt 으로 전달).
+ * 작업 이벤트는 events 채널로 보내 모든 노드가 받는다. 보내기는 전용 스레드 하나가 순서대로 한다.
+ * Redis 에 넣지 못한 CID 는 이 노드에서 실행하고, 끊긴 연결은 retry 간격으로 다시 맺는다.
+ */
+@Component
+@ConditionalOnProperty(name = "agoda.cluster.mode", havingValue = "redis")
+public class RedisClusterCoordinator implements ClusterCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisClusterCoordinator.class);
+
+    private static final long RETRY_MILLIS = 1000;
+    private static final int BRPOP_TIMEOUT_SECONDS = 1;
+    private static final int MAX_OUTBOX = 10_000;
+
+    private final URI redisUri;
+    private final String nodeId;
+    private final int workerConcurrency;
+    private final String taskQueue;
+    private final String eventsChannel;
+    private final String resultsPrefix;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, PendingTask> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<Outgoing> outbox = new LinkedBlockingQueue<>(MAX_OUTBOX);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean workersStarted = new AtomicBoolean();
+    // 연결 상태 (끊김/복구는 한 번씩만 기록, 작업자마다 같은 경고를 반복하지 않도록)
+    private final AtomicBoolean healthy = new AtomicBoolean(true);
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicLong taskIds = new AtomicLong();
+
+    private JedisPool pool;
+    private volatile JedisPubSub subscription;
+    private volatile Function<CidTask, CompletableFuture<LinkInfo>> taskHandler;
+    private volatile Consumer<JobEvent> eventListener;
+
+    // 지표
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong executedOwn = new AtomicLong();
+    private final AtomicLong executedForOthers = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong outboxDropped = new AtomicLong();
+    private final AtomicLong connectionErrors = new AtomicLong();
+
+    public RedisClusterCoordinator(
+            @Value("${agoda.cluster.redis-url:redis://127.0.0.1:6379}") String redisUrl,
+            @Value("${agoda.cluster.node-id:}") String nodeId,
+            @Value("${agoda.cluster.key-prefix:agoda:cluster:}") String keyPrefix,
+            @Value("${agoda.cluster.worker-concurrency:16}") int workerConcurrency) {
+        URI uri = URI.create(redisUrl.trim());
+        if (!"redis".equals(uri.getScheme()) && !"rediss".equals(uri.getScheme()) || uri.getHost() == null) {
+            throw new IllegalArgumentException("agoda.cluster.redis-url 형식 오류: " + redisUrl);
+        }
+        this.redisUri = uri;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId.trim();
+        this.workerConcurrency = Math.max(1, workerConcurrency);
+        this.taskQueue = keyPrefix + "cid-tasks";
+        this.eventsChannel = keyPrefix + "events";
+        this.resultsPrefix = keyPrefix + "results:";
+    }
+
+    @PostConstruct
+    public void start() {
+        JedisPoolConfig config = new JedisPoolConfig();
+        // 작업자마다 BRPOP 연결 하나 + 보내기/대기열 넣기/지표
+        config.setMaxTotal(workerConcurrency + 8);
+        config.setMaxIdle(workerConcurrency + 8);
+        config.setMaxWait(Duration.ofSeconds(2));
+        pool = new JedisPool(config, redisUri);
+        running.set(true);
+        startThread("cluster-subscriber", this::subscribeLoop);
+        startThread("cluster-publisher", this::publishLoop);
+        log.info("클러스터 노드 시작 nodeId={} redis={} workers={}", nodeId, redisUri.getHost() + ":" + redisUri.getPort(),
+            workerConcurrency);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.set(false);
+        JedisPubSub current = subscription;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+        threads.forEach(Thread::interrupt);
+        pending.values().forEach(task -> task.future().completeExceptionally(new CancellationException("노드 종료")));
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean distributed() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<LinkInfo> dispatch(CidTask task, Supplier<CompletableFuture<LinkInfo>> local) {
+        String id = nodeId + ":" + taskIds.incrementAndGet();
+        CompletableFuture<LinkInfo> future = new CompletableFuture<>();
+        pending.put(id, new PendingTask(future, local));
+        try (Jedis jedis = pool.getResource()) {
+            jedis.lpush(taskQueue, encodeTask(id, task));
+            dispatched.incrementAndGet();
+            connected();
+        } catch (JedisException | JsonProcessingException e) {
+            pending.remove(id);
+            fallbacks.incrementAndGet();
+            if (healthy.compareAndSet(true, false)) {
+                log.warn("CID 작업을 대기열에 넣지 못해 이 노드에서 실행 cid={}: {}", task.cid(), e.getMessage());
+            }
+            return local.get();
+        }
+        // 맡긴 쪽이 시간 초과/취소로 먼저 끝내도 대기 목록에서 빠지도록
+        future.whenComplete((result, e) -> pending.remove(id));
+        return future;
+    }
+
+    @Override
+    public void setTaskHandler(Function<CidTask, CompletableFuture<LinkInfo>> handler) {
+        this.taskHandler = handler;
+        // 실행할 함수가 생긴 뒤에 대기열에서 가져가기 시작
+        if (workersStarted.compareAndSet(false, true)) {
+            for (int i = 0; i < workerConcurrency; i++) {
+                startThread("cluster-worker-" + i, this::workLoop);
+            }
+        }
+    }
+
+    @Override
+    public void publish(JobEvent event) {
+        ObjectNode message = mapper.createObjectNode()
+            .put("origin", nodeId)
+            .put("jobId", event.jobId())
+            .put("kind", event.kind())
+            .put("seq", event.seq())
+            .put("complete", event.complete());
+        message.set("urls", mapper.valueToTree(event.urls()));
+        message.set("data", event.data());
+        send(eventsChannel, message);
+    }
+
+    @Override
+    public void setEventListener(Consumer<JobEvent> listener) {
+        this.eventListener = listener;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", "redis");
+        stats.put("nodeId", nodeId);
+        stats.put("redis", redisUri.getHost() + ":" + redisUri.getPort());
+        stats.put("connected", healthy.get());
+        stats.put("subscribed", subscription != null && subscription.isSubscribed());
+        stats.put("workers", workersStarted.get() ? workerConcurrency : 0);
+        try (Jedis jedis = pool.getResource()) {
+            stats.put("queuedTasks", jedis.llen(taskQueue));
+        } catch (JedisException e) {
+            stats.put("queuedTasks", null);
+        }
+        stats.put("pendingTasks", pending.size());
+        stats.put("dispatched", dispatched.get());
+        stats.put("fallbacks", fallbacks.get());
+        stats.put("executedOwn", executedOwn.get());
+        stats.put("executedForOthers", executedForOthers.get());
+        stats.put("expired", expired.get());
+        stats.put("eventsPublished", eventsPublished.get());
+        stats.put("eventsReceived", eventsReceived.get());
+        stats.put("outbox", outbox.size());
+        stats.put("outboxDropped", outboxDropped.get());
+        stats.put("connectionErrors", connectionErrors.get());
+        return stats;
+    }
+
+    // 대기열에서 하나씩 가져와 실행하고 결과를 맡긴 노드로 돌려줌
+    private void workLoop() {
+        while (running.get()) {
+            String payload;
+            try (Jedis jedis = pool.getResource()) {
+                List<String> popped = jedis.brpop(BRPOP_TIMEOUT_SECONDS, taskQueue);
+                connected();
+                if (popped == null || popped.size() < 2) {
+                    continue;
+                }
+                payload = popped.get(1);
+            } catch (JedisException e) {
+                connectionLost("대기열", e);
+                continue;
+            }
+            execute(payload);
+        }
+    }
+
+    private void execute(String payload) {
+        JsonNode message;
+        CidTask task;
+        try {
+            message = mapper.readTree(payload);
+            task = decodeTask(message);
+        } catch (IOException e) {
+            log.warn("형식이 잘못된 CID 작업을 버림: {}", e.getMessage());
+            return;
+        }
+        if (task.expired()) {
+            expired.incrementAndGet();
+            return;
+        }
+        String id = message.path("id").asText();
+        String origin = message.path("origin").asText();
+
+        if (origin.equals(nodeId)) {
+            executeOwn(id);
+            return;
+        }
+
+        LinkInfo result = null;
+        Throwable error = null;
+        try {
+            result = taskHandler.apply(task).get();
+        } catch (ExecutionException e) {
+            error = unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = new CancellationException("노드 종료");
+        }
+
+        executedForOthers.incrementAndGet();
+        ObjectNode reply = mapper.createObjectNode().put("id", id).put("node", nodeId);
+        if (error == null) {
+            reply.set("item", encodeLink(result));
+        } else {
+            reply.put("timeout", error instanceof TimeoutException || error instanceof CancellationException)
+                .put("message", String.valueOf(error.getMessage()));
+        }
+        send(resultsPrefix + origin, reply);
+    }
+
+    // 자기가 맡긴 작업은 변환 쪽 실행(local)으로. 작업자는 끝날 때까지 기다려 한 번에 하나씩만 가져감
+    private void executeOwn(String id) {
+        PendingTask own = pending.get(id);
+        if (own == null) {
+            // 이미 시간 초과/취소로 끝났거나 이전에 같은 이름으로 떠 있던 노드의 작업
+            expired.incrementAndGet();
+            return;
+        }
+        executedOwn.incrementAndGet();
+        CompletableFuture<LinkInfo> run;
+        try {
+            run = own.local().get();
+        } catch (RuntimeException e) {
+            run = CompletableFuture.failedFuture(e);
+        }
+        run.whenComplete((result, e) -> complete(id, result, e == null ? null : unwrap(e)));
+        try {
+            run.handle((result, e) -> null).get();
+        } catch (ExecutionException e) {
+            // 결과는 위에서 전달
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 이 노드가 맡긴 작업 완료 (다른 노드가 실행했으면 결과 채널로 받은 값)
+    private void complete(String id, LinkInfo result, Throwable error) {
+        PendingTask task = pending.remove(id);
+        if (task == null) {
+            // 이미 시간 초과/취소로 끝남
+            return;
+        }
+        CompletableFuture<LinkInfo> future = task.future();
+        if (error == null) {
+            future.complete(result);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void subscribeLoop() {
+        while (running.get()) {
+            JedisPubSub pubSub = new JedisPubSub() {
+                @Override
+                public void onMessage(String channel, String message) {
+                    receive(channel, message);
+                }
+            };
+            subscription = pubSub;
+            try (Jedis jedis = new Jedis(redisUri)) {
+                jedis.subscribe(pubSub, eventsChannel, resultsPrefix + nodeId);
+            } catch (JedisException e) {
+                connectionLost("구독", e);
+            }
+        }
+    }
+
+    private void receive(String channel, String payload) {
+        try {
+            JsonNode message = mapper.readTree(payload);
+            if (channel.equals(eventsChannel)) {
+                Consumer<JobEvent> listener = eventListener;
+                if (listener == null || message.path("origin").asText().equals(nodeId)) {
+                    return;
+                }
+                eventsReceived.incrementAndGet();
+                List<String> urls = new ArrayList<>();
+                message.path("urls").forEach(url -> urls.add(url.asText()));
+                listener.accept(new JobEvent(message.path("jobId").asText(), message.path("kind").asText(),
+                    urls, message.path("seq").asLong(), message.path("data"), message.path("complete").asBoolean()));
+                return;
+            }
+            String id = message.path("id").asText();
+            if (message.has("item")) {
+                complete(id, decodeLink(message.path("item")), null);
+            } else {
+                String reason = "노드 " + message.path("node").asText() + ": " + message.path("message").asText();
+                complete(id, null, message.path("timeout").asBoolean() ? new TimeoutException(reason) : new IOException(reason));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("클러스터 메시지 처리 실패 channel={}: {}", channel, e.toString());
+        }
+    }
+
+    // 채널별 메시지를 넣은 순서대로 보냄 (작업 이벤트 순번이 섞이지 않도록 보내는 스레드는 하나)
+    private void send(String channel, JsonNode message) {
+        String payload;
+        try {
+            payload = mapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            log.warn("클러스터 메시지 직렬화 실패 channel={}: {}", channel, e.getMessage());
+            return;
+        }
+        if (!outbox.offer(new Outgoing(channel, payload))) {
+            outboxDropped.incrementAndGet();
+        }
+    }
+
+    private void publishLoop() {
+        Outgoing next = null;
+        while (running.get()) {
+            try {
+                if (next == null) {
+                    next = outbox.take();
+                }
+                try (Jedis jedis = pool.getResource()) {
+                    while (next != null) {
+                        jedis.publish(next.channel(), next.payload());
+                        if (next.channel().equals(eventsChannel)) {
+                            eventsPublished.incrementAndGet();
+                        }
+                        next = outbox.poll();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (JedisException e) {
+                // 보내지 못한 메시지는 다시 연결한 뒤 보냄
+                connectionLost("보내기", e);
+            }
+        }
+    }
+
+    private void connectionLost(String what, JedisException e) {
+        if (!running.get()) {
+            return;
+        }
+        connectionErrors.incrementAndGet();
+        if (healthy.compareAndSet(true, false)) {
+            log.warn("Redis 연결 오류({}) - {}ms 간격으로 다시 시도, 그동안 CID 는 이 노드에서 실행: {}",
+                what, RETRY_MILLIS, e.getMessage());
+        } else {
+            log.debug("Redis 연결 오류({}): {}", what, e.getMessage());
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(RETRY_MILLIS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running.set(false);
+        }
+    }
+
+    private void connected() {
+        if (healthy.compareAndSet(false, true)) {
+            log.info("Redis 연결 복구 nodeId={}", nodeId);
+        }
+    }
+
+    private void startThread(String name, Runnable loop) {
+        Thread thread = Thread.ofVirtual().name(name).unstarted(loop);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private String encodeTask(String id, CidTask task) throws JsonProcessingException {
+        ObjectNode message = mapper.createObjectNode()
+            .put("id", id)
+            .put("origin", nodeId)
+            .put("url", task.url())
+            .put("label", task.label())
+            .put("cid", task.cid())
+            .put("pacingKey", task.pacingKey())
+            .put("deadlineAt", task.deadlineAt());
+        message.set("cookies", mapper.valueToTree(task.cookies()));
+        return mapper.writeValueAsString(message);
+    }
+
+    private static CidTask decodeTask(JsonNode message) throws IOException {
+        if (!message.path("url").isTextual() || !message.path("cid").isInt()) {
+            throw new IOException("url/cid 없음");
+        }
+        Map<String, String> cookies = new HashMap<>();
+        message.path("cookies").fields().forEachRemaining(entry -> cookies.put(entry.getKey(), entry.getValue().asText()));
+        return new CidTask(message.path("url").asText(), message.path("label").asText(), message.path("cid").asInt(),
+            cookies, message.path("pacingKey").asText(null), message.path("deadlineAt").asLong());
+    }
+
+    private JsonNode encodeLink(LinkInfo link) {
+        return mapper.createObjectNode()
+            .put("label", link.getLabel())
+            .put("cid", link.getCid())
+            .put("url", link.getUrl())
+            .put("price", link.getPrice())
+            .put("soldOut", link.isSoldOut())
+            .put("hotel", link.getHotel())
+            .put("status", link.getStatus().name());
+    }
+
+    private static LinkInfo decodeLink(JsonNode item) {
+        return new LinkInfo(item.path("label").asText(), item.path("cid").asInt(), item.path("url").asText(),
+            item.path("price").asDouble(), item.path("soldOut").asBoolean(), item.path("hotel").asText(null),
+            LinkStatus.valueOf(item.path("status").asText(LinkStatus.OK.name())));
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    private record Outgoing(String channel, String payload) {}
+
+    // 결과를 기다리는 작업과, 자기가 가져갔을 때 실행할 변환 쪽 함수
+    private record PendingTask(CompletableFuture<LinkInfo> future, Supplier<CompletableFuture<LinkInfo>> local) {}
+}
@@ -1,22 +1,50 @@
 package com.example.agoda.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-// HtmlUnit imports
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.html.HtmlPage;
-import com.gargoylesoftware.htmlunit.html.HtmlElement;
-import com.gargoylesoftware.htmlunit.util.Cookie;
-
-// Jsoup imports
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+// Project imports
+import com.example.agoda.browser.WebClientPool;
+import com.example.agoda.cache.ApiPathCache;
+import com.example.agoda.cache.ConversionKey;
+import com.example.agoda.cache.ConversionResultCache;
+import com.example.agoda.cid.CidStatistics;
+import com.example.agoda.cluster.CidTask;
+import com.example.agoda.cluster.ClusterCoordinator;
+import com.example.agoda.cluster.JobEvent;
+import com.example.agoda.execution.CancelToken;
+import com.example.agoda.execution.ConversionExecutor;
+import com.example.agoda.execution.FetchContext;
+import com.example.agoda.execution.UpstreamBusyException;
+import com.example.agoda.execution.UpstreamGuard;
+import com.example.agoda.fx.FxRateTable;
+import com.example.agoda.fx.FxRates;
+import com.example.agoda.job.Job;
+import com.example.agoda.job.JobRegistry;
+import com.example.agoda.job.JobState;
+import com.example.agoda.metrics.ConversionMetrics;
+import com.example.agoda.model.AffiliateLink;
+import com.example.agoda.model.CidEntry;
+import com.example.agoda.model.CompactLinks;
+import com.example.agoda.model.ConversionOutcome;
+import com.example.agoda.model.LinkInfo;
+import com.example.agoda.model.LinkStatus;
+import com.example.agoda.session.CookieTemplate;
+import com.example.agoda.session.CookieTemplate.CidCookies;
+import com.example.agoda.session.SessionCookiePool;
+import com.example.agoda.strategy.JsonApiStrategy;
+import com.example.agoda.strategy.PriceStrategyEngine;
+import com.example.agoda.strategy.StrategyRequest;
+import com.example.agoda.upstream.AgodaPages;
+import com.example.agoda.upstream.RequestPacer;
+import com.example.agoda.upstream.SecondaryDataReader.SecondaryData;
+import com.example.agoda.upstream.UpstreamTransport;
 
 // Spring imports
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,19 +52,24 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 // Java standard imports
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.*;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.function.BiFunction;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
 public class ConvertController {
 
+    private static final Logger log = LoggerFactory.getLogger(ConvertController.class);
+
     // 고정 CID 목록 (업데이트된 리스트)
     private static final List<CidEntry> STATIC_CIDS = List.of(
         new CidEntry("구글 1", 1833982),
@@ -64,6 +97,15 @@ public class ConvertController {
         new CidEntry("대한항공(적립)", 1904827)
     );
 
+    // 전체 조회 시 AUTO CID 수
+    private static final int AUTO_CID_COUNT = 5;
+
+    // 배치 변환 한 번에 받는 최대 호텔 수
+    private static final int MAX_BATCH_URLS = 50;
+
+    // 다중 통화 변환 한 번에 받는 최대 통화 수
+    private static final int MAX_CURRENCIES = 10;
+
     // 제휴 링크 목록 (업데이트된 리스트)
     private static final List<AffiliateLink> AFFILIATES = List.of(
         new AffiliateLink("네이버", "https://www.agoda.com/ko-kr/?cid=1891504"),
@@ -85,34 +127,281 @@ public class ConvertController {
         new AffiliateLink("대한항공(적립)", "https://www.agoda.com/ko-kr/koreanair")
     );
 
-    private final ObjectMapper mapper = new ObjectMapper();
-    private final HttpClient httpClient = HttpClient.newBuilder()
-        .connectTimeout(Duration.ofSeconds(5))
-        .build();
+    // 압축 전송 형식에서 한 번만 받아 두는 정적 정보 (고정 CID 라벨, 제휴 링크)와 그 버전 (ETag)
+    private static final Map<Integer, String> CID_LABELS = STATIC_CIDS.stream()
+        .collect(Collectors.toMap(CidEntry::cid, CidEntry::label, (a, b) -> a, LinkedHashMap::new));
+    private static final String META_VERSION = metaVersion();
+    private static final Map<String, Object> META = Map.of(
+        "version", META_VERSION,
+        "cids", STATIC_CIDS,
+        "autoLabelPrefix", CompactLinks.AUTO_LABEL_PREFIX,
+        "statuses", LinkStatus.values(),
+        "affiliateLinks", AFFILIATES);
 
     // SSE 관리를 위한 맵
     private final Map<String, SseEmitter> sseEmitters = new ConcurrentHashMap<>();
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
 
-    // SSE 연결 엔드포인트
+    // 진행 중 변환 (SSE 연결 종료 시 취소용)
+    private final Map<String, ConversionHandle> sessionHandles = new ConcurrentHashMap<>();
+    private final Map<ConversionKey, ConversionHandle> conversionHandles = new ConcurrentHashMap<>();
+
+    // 배치 변환: 호텔별 채널 → 배치 세션, 배치 세션 → 호텔별 채널 목록
+    private final Map<String, BatchChannel> batchChannels = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> batchSessions = new ConcurrentHashMap<>();
+
+    // 다중 통화 변환: 작업 ID → 요청 통화와 시작 시점 환율표
+    private final Map<String, CurrencyRequest> sessionCurrencies = new ConcurrentHashMap<>();
+
+    // 압축 전송 형식: 작업 ID → URL 차이의 기준 URL
+    private final Map<String, CompactWire> sessionWire = new ConcurrentHashMap<>();
+
+    // 다른 노드가 맡긴 CID 조회: 맡긴 쪽 작업(pacingKey)별로 이 노드에서 함께 쓰는 호출 범위
+    private final Map<String, ClusterScope> clusterScopes = new ConcurrentHashMap<>();
+
+    // 공용 실행 계층 (가상 스레드, 동시 변환 입장 제어, 업스트림 호출 상한)
+    private final ConversionExecutor conversionExecutor;
+
+    // 아고다 호출 보호 (차단 회로, 적응형 동시 호출 상한, 재시도 예산)
+    private final UpstreamGuard upstreamGuard;
+
+    // 업스트림 요청 간격 조절 (고정 sleep 대체)
+    private final RequestPacer requestPacer;
+    // 업스트림 HTTP 전송 (HTTP/2 공유 연결, gzip, 스트리밍 파싱)
+    private final UpstreamTransport upstreamTransport;
+    // 미리 받아 둔 세션 쿠키 묶음 (변환마다 페이지를 받아 쿠키를 수집하지 않도록)
+    private final SessionCookiePool sessionCookiePool;
+    // 호텔 페이지별 apiUrl 캐시 (CID마다 HTML 전체 다운로드 방지)
+    private final ApiPathCache apiPathCache;
+    // HtmlUnit WebClient 풀 (js-rendered 전략이 사용, 여기서는 지표만)
+    private final WebClientPool webClientPool;
+    // CID별 가격 추출 전략 체인 (JSON API / 정적 HTML / HtmlUnit)
+    private final PriceStrategyEngine priceStrategyEngine;
+    // 변환 초기 정보(호텔명/가격/통화)는 JSON API 로
+    private final JsonApiStrategy jsonApiStrategy;
+    // 변환 결과 캐시 (같은 호텔/날짜/인원 조건의 반복 크롤링 방지)
+    private final ConversionResultCache conversionResultCache;
+    // 단계별 소요 시간/결과 지표
+    private final ConversionMetrics metrics;
+    // 다중 통화 변환용 환율표 (크롤링은 KRW 한 번, 통화별 가격은 로컬 계산)
+    private final FxRateTable fxRateTable;
+
+    // CID별 최저가/품절 이력 (빠른 모드 순서 결정, AUTO CID 선택)
+    private final CidStatistics cidStatistics;
+
+    // 변환 작업 저장소 (SSE 재연결 시 이벤트 재생, 폴링)
+    private final JobRegistry jobRegistry;
+    // 노드 간 CID 조회 분산과 작업 이벤트 전달 (단일 노드면 이 노드에서 바로 실행)
+    private final ClusterCoordinator clusterCoordinator;
+    // SSE 연결이 끊긴 뒤 재연결/폴링을 기다리는 시간 (지나면 변환 취소)
+    private final long detachGraceMillis;
+
+    // CID별 마감 시간과 변환 전체 시간 예산
+    private final long cidDeadlineMillis;
+    private final long conversionBudgetMillis;
+
+    // 빠른 모드: 승률 상위 CID 를 먼저 조회하고, 최근 이력상 그것만으로 최저가를 얻을 확률이 높으면 조기 응답
+    private final boolean fastModeDefault;
+    private final int fastTopK;
+    private final int fastAutoCids;
+    private final double fastConfidence;
+    private final double fastExploreRate;
+
+    // 날짜 범위 조회: 최대 날짜 수, 동시에 조회하는 날짜 수 (모든 날짜를 한꺼번에 시작하면 날짜마다 변환 예산을 넘김)
+    private final int sweepMaxDates;
+    private final int sweepParallelDates;
+
+    public ConvertController(ConversionExecutor conversionExecutor, UpstreamGuard upstreamGuard,
+                             RequestPacer requestPacer,
+                             UpstreamTransport upstreamTransport, SessionCookiePool sessionCookiePool,
+                             ApiPathCache apiPathCache, WebClientPool webClientPool,
+                             PriceStrategyEngine priceStrategyEngine, JsonApiStrategy jsonApiStrategy,
+                             ConversionResultCache conversionResultCache,
+                             ConversionMetrics metrics, FxRateTable fxRateTable,
+                             CidStatistics cidStatistics, JobRegistry jobRegistry,
+                             ClusterCoordinator clusterCoordinator,
+                             @Value("${agoda.jobs.detach-grace-seconds:30}") long detachGraceSeconds,
+                             @Value("${agoda.deadline.cid-ms:45000}") long cidDeadlineMillis,
+                             @Value("${agoda.deadline.conversion-ms:120000}") long conversionBudgetMillis,
+                             @Value("${agoda.fast-mode.default:false}") boolean fastModeDefault,
+                             @Value("${agoda.fast-mode.top-k:8}") int fastTopK,
+                             @Value("${agoda.fast-mode.auto-cids:2}") int fastAutoCids,
+                             @Value("${agoda.fast-mode.confidence:0.9}") double fastConfidence,
+                             @Value("${agoda.fast-mode.explore-rate:0.1}") double fastExploreRate,
+                             @Value("${agoda.sweep.max-dates:31}") int sweepMaxDates,
+                             @Value("${agoda.sweep.parallel-dates:4}") int sweepParallelDates) {
+        this.conversionExecutor = conversionExecutor;
+        this.upstreamGuard = upstreamGuard;
+        this.cidStatistics = cidStatistics;
+        this.jobRegistry = jobRegistry;
+        this.clusterCoordinator = clusterCoordinator;
+        this.detachGraceMillis = TimeUnit.SECONDS.toMillis(Math.max(0, detachGraceSeconds));
+        this.cidDeadlineMillis = cidDeadlineMillis;
+        this.conversionBudgetMillis = conversionBudgetMillis;
+        this.fastModeDefault = fastModeDefault;
+        this.fastTopK = Math.max(1, fastTopK);
+        this.fastAutoCids = Math.max(0, fastAutoCids);
+        this.fastConfidence = fastConfidence;
+        this.fastExploreRate = fastExploreRate;
+        this.sweepMaxDates = Math.max(1, sweepMaxDates);
+        this.sweepParallelDates = Math.max(1, sweepParallelDates);
+        this.conversionResultCache = conversionResultCache;
+        this.requestPacer = requestPacer;
+        this.upstreamTransport = upstreamTransport;
+        this.sessionCookiePool = sessionCookiePool;
+        this.apiPathCache = apiPathCache;
+        this.webClientPool = webClientPool;
+        this.priceStrategyEngine = priceStrategyEngine;
+        this.jsonApiStrategy = jsonApiStrategy;
+        this.metrics = metrics;
+        this.fxRateTable = fxRateTable;
+        metrics.gaugeSize("agoda.sse.emitters", sseEmitters);
+        // 다른 노드가 맡긴 CID 조회 실행, 다른 노드에서 실행 중인 작업의 이벤트는 이 노드의 SSE 연결로 전달
+        clusterCoordinator.setTaskHandler(this::runClusterTask);
+        clusterCoordinator.setEventListener(this::receiveClusterEvent);
+        upstreamGuard.onStateChange(this::broadcastUpstreamState);
+    }
+
+    // 실행 계층 지표
+    @GetMapping("/executor")
+    public Map<String, Object> executorStats() {
+        return conversionExecutor.stats();
+    }
+
+    // 차단 회로/적응형 상한/재시도 예산 지표
+    @GetMapping("/upstream-guard")
+    public Map<String, Object> upstreamGuardStats() {
+        return upstreamGuard.stats();
+    }
+
+    // 압축 전송 형식의 정적 정보. 버전이 바뀔 때만 다시 받도록 ETag 로 캐시 (complete 이벤트의 meta 가 버전)
+    @GetMapping("/meta")
+    public ResponseEntity<Map<String, Object>> meta(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        CacheControl cacheControl = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+        String etag = "W/\"" + META_VERSION + "\"";
+        if (ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(","))
+                .map(tag -> tag.trim().replaceFirst("^W/", ""))
+                .anyMatch(tag -> tag.equals("*") || tag.equals("\"" + META_VERSION + "\""))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(META);
+    }
+
+    // 요청 간격 조절 지표
+    @GetMapping("/pacer")
+    public Map<String, Object> pacerStats() {
+        return requestPacer.stats();
+    }
+
+    // 업스트림 전송 지표
+    @GetMapping("/transport")
+    public Map<String, Object> transportStats() {
+        return upstreamTransport.stats();
+    }
+
+    // 세션 쿠키 풀 지표
+    @GetMapping("/cookie-pool")
+    public Map<String, Object> cookiePoolStats() {
+        return sessionCookiePool.stats();
+    }
+
+    // apiUrl 캐시 지표
+    @GetMapping("/api-path-cache")
+    public Map<String, Object> apiPathCacheStats() {
+        return apiPathCache.stats();
+    }
+
+    // 변환 결과 캐시 지표
+    @GetMapping("/result-cache")
+    public Map<String, Object> resultCacheStats() {
+        return conversionResultCache.stats();
+    }
+
+    // WebClient 풀 지표
+    @GetMapping("/htmlunit-pool")
+    public Map<String, Object> webClientPoolStats() {
+        return webClientPool.stats();
+    }
+
+    // 가격 추출 전략 체인과 전략별 성공률/지연 시간
+    @GetMapping("/strategies")
+    public Map<String, Object> strategyStats() {
+        return priceStrategyEngine.stats();
+    }
+
+    // 환율표 상태
+    @GetMapping("/fx")
+    public Map<String, Object> fxStats() {
+        return fxRateTable.stats();
+    }
+
+    // CID 이력 통계
+    @GetMapping("/cid-stats")
+    public Map<String, Object> cidStats() {
+        return cidStatistics.stats();
+    }
+
+    // 변환 작업 저장소 지표
+    @GetMapping("/jobs")
+    public Map<String, Object> jobStats() {
+        return jobRegistry.stats();
+    }
+
+    // 노드 간 작업 분산 지표
+    @GetMapping("/cluster")
+    public Map<String, Object> clusterStats() {
+        return clusterCoordinator.stats();
+    }
+
+    // 작업 상태 폴링 (SSE 를 쓸 수 없을 때). after 를 주면 그 순번 이후 이벤트도 함께
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> jobStatus(@PathVariable String id, @RequestParam(required = false) Long after) {
+        Job job = jobRegistry.get(id).orElse(null);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("success", false, "message", "작업을 찾을 수 없습니다."));
+        }
+        job.touch();
+        Map<String, Object> view = job.view();
+        if (after != null) {
+            view.put("events", job.eventsAfter(after));
+        }
+        return ResponseEntity.ok(view);
+    }
+
+    // SSE 연결 엔드포인트. 작업이 이미 있으면 Last-Event-ID 이후 이벤트를 재생한 뒤 이어서 전송
     @GetMapping(value = "/progress/{sessionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamProgress(@PathVariable String sessionId) {
+    public SseEmitter streamProgress(@PathVariable String sessionId,
+                                     @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
         SseEmitter emitter = new SseEmitter(300000L); // 5분 타임아웃
-        sseEmitters.put(sessionId, emitter);
 
-        emitter.onCompletion(() -> sseEmitters.remove(sessionId));
-        emitter.onTimeout(() -> sseEmitters.remove(sessionId));
-        emitter.onError((ex) -> sseEmitters.remove(sessionId));
+        // 연결이 끊기면 재연결을 기다렸다가 해당 세션이 보고 있던 변환도 취소 (다른 세션이 함께 보고 있으면 유지)
+        emitter.onCompletion(() -> emitterGone(sessionId, emitter));
+        emitter.onTimeout(() -> emitterGone(sessionId, emitter));
+        emitter.onError((ex) -> emitterGone(sessionId, emitter));
 
+        Job job = jobRegistry.get(sessionId).orElse(null);
+        if (job == null) {
+            sseEmitters.put(sessionId, emitter);
+            return emitter;
+        }
+        // 끝난 작업이라도 마지막 이벤트가 아직 전송 중이면 그 전송이 연결을 닫음
+        boolean settled = job.attach(parseEventId(lastEventId), () -> sseEmitters.put(sessionId, emitter),
+            event -> deliver(sessionId, emitter, event, false));
+        if (settled) {
+            sseEmitters.remove(sessionId, emitter);
+            emitter.complete();
+        }
         return emitter;
     }
 
     @PostMapping(value = "/convert", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> convert(@RequestBody Map<String, Object> body) {
         String url = (String) body.get("url");
-        String sessionId = (String) body.get("sessionId");
+        String sessionId = jobId(body);
         @SuppressWarnings("unchecked")
         Map<String, String> userCookies = (Map<String, String>) body.get("userCookies");
+        boolean fastMode = fastMode(body);
 
         if (url == null || url.isBlank()) {
             return ResponseEntity.badRequest()
@@ -122,598 +411,1285 @@ public class ConvertController {
             return ResponseEntity.badRequest()
                 .body(Map.of("success", false, "message", "유효한 아고다 상세 URL을 입력해주세요."));
         }
+        CurrencyRequest currencies;
+        try {
+            currencies = currencyRequest(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
 
-        // 비동기로 처리 (사용자 쿠키 포함)
-        executorService.submit(() -> processConversion(url, sessionId, userCookies));
+        // 같은 작업 ID 로 같은 변환이 진행 중이면 (재전송) 새로 크롤링하지 않음
+        if (jobRegistry.register(sessionId, JobRegistry.SINGLE, List.of(url)).reused()) {
+            return ResponseEntity.ok(Map.of("success", true, "jobId", sessionId, "message", "이미 처리 중인 작업입니다."));
+        }
+        if (currencies != null) {
+            sessionCurrencies.put(sessionId, currencies);
+        }
+        if (compact(body)) {
+            sessionWire.put(sessionId, new CompactWire(url, null));
+        }
 
-        return ResponseEntity.ok(Map.of("success", true, "message", "처리를 시작했습니다."));
+        // 비동기로 처리 (사용자 쿠키 포함) - 동시 변환 수를 넘으면 대기열, 대기열도 가득 차면 거절
+        ConversionExecutor.Admission admission = conversionExecutor.submitConversion(
+            () -> processConversion(url, sessionId, userCookies, fastMode, conversionExecutor.openScope())
+                .whenComplete((outcome, e) -> {
+                    sessionCurrencies.remove(sessionId);
+                    sessionWire.remove(sessionId);
+                }),
+            position -> sendQueued(sessionId, position));
+
+        if (admission == ConversionExecutor.Admission.REJECTED) {
+            return rejected(sessionId);
+        }
+        return ResponseEntity.ok(Map.of("success", true, "jobId", sessionId, "message",
+            admission == ConversionExecutor.Admission.QUEUED ? "대기열에 등록했습니다." : "처리를 시작했습니다."));
     }
 
-    private void processConversion(String url, String sessionId, Map<String, String> userCookies) {
-        try {
-            String currency = extractCurrencyFromUrl(url);
-            List<CidEntry> cidList = buildCidList();
-            int totalSteps = cidList.size() + 2;
-            int currentStep = 0;
-
-            // 1) 세션 쿠키 준비 (사용자 쿠키가 있으면 사용, 없으면 새로 수집)
-            sendProgress(sessionId, ++currentStep, totalSteps);
-            Map<String, String> sessionCookies;
-            
-            if (userCookies != null && !userCookies.isEmpty()) {
-                sessionCookies = new HashMap<>(userCookies);
-                System.out.println("사용자 제공 쿠키 사용: " + userCookies.size() + "개");
-                
-                // 통화 관련 쿠키를 KRW로 강제 수정
-                if (sessionCookies.containsKey("agoda.version.03")) {
-                    String versionCookie = sessionCookies.get("agoda.version.03");
-                    versionCookie = versionCookie.replaceAll("CurLabel=\\w+", "CurLabel=KRW");
-                    sessionCookies.put("agoda.version.03", versionCookie);
-                }
-                sessionCookies.put("agoda.price.01", "PriceView=2");
-            } else {
-                sessionCookies = collectSessionCookies(url);
-                System.out.println("새로운 세션 쿠키 수집: " + sessionCookies.size() + "개");
+    // 여러 호텔 URL 을 한 번에 변환 (세션 쿠키 한 번 수집, 호텔 간 공정 스케줄링, SSE 채널 하나)
+    @PostMapping(value = "/convert/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> convertBatch(@RequestBody Map<String, Object> body) {
+        String sessionId = jobId(body);
+        @SuppressWarnings("unchecked")
+        List<String> urls = (List<String>) body.get("urls");
+        @SuppressWarnings("unchecked")
+        Map<String, String> userCookies = (Map<String, String>) body.get("userCookies");
+        boolean fastMode = fastMode(body);
+
+        if (urls == null || urls.isEmpty()) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", "주소를 입력해주세요."));
+        }
+        if (urls.size() > MAX_BATCH_URLS) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", "한 번에 최대 " + MAX_BATCH_URLS + "개까지 변환할 수 있습니다."));
+        }
+        for (String url : urls) {
+            if (url == null || !url.contains("agoda.com") || !url.contains("cid=")) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", "유효한 아고다 상세 URL을 입력해주세요: " + url));
             }
+        }
+        CurrencyRequest currencies;
+        try {
+            currencies = currencyRequest(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
 
-            // 2) 세션 쿠키로 초기 호텔명과 가격 가져오기
-            sendProgress(sessionId, ++currentStep, totalSteps);
-            String initialHotel = "호텔명 없음";
-            double initialPrice = 0;
-            String initialCurrency = "UNKNOWN";
+        if (jobRegistry.register(sessionId, JobRegistry.BATCH, List.copyOf(urls)).reused()) {
+            return ResponseEntity.ok(Map.of("success", true, "jobId", sessionId, "hotels", urls.size(),
+                "message", "이미 처리 중인 작업입니다."));
+        }
+        if (currencies != null) {
+            sessionCurrencies.put(sessionId, currencies);
+        }
+        if (compact(body)) {
+            sessionWire.put(sessionId, new CompactWire(null, List.copyOf(urls)));
+        }
 
-            try {
-                JsonNode initialRoot = fetchSecondaryDataJsonWithSession(url, currency, "INITIAL", sessionCookies);
-                initialHotel = initialRoot.path("hotelInfo").path("name").asText("호텔명 없음");
-                initialPrice = initialRoot.path("tealium").path("totalPriceTaxInc").asDouble(0);
-                initialCurrency = initialRoot.path("mosaicInitData").path("discount").path("currency").asText("UNKNOWN");
-                
-                System.out.printf("초기 가격: %.2f %s%n", initialPrice, initialCurrency);
-            } catch (Exception e) {
-                System.out.println("초기 가격 정보를 가져오는데 실패했습니다: " + e.getMessage());
-            }
+        // 배치 전체가 입장 제어 한 건을 차지
+        ConversionExecutor.Admission admission = conversionExecutor.submitConversion(
+            () -> processBatch(List.copyOf(urls), null, sessionId, userCookies, fastMode, urls.size(),
+                this::buildBatchSummary),
+            position -> sendQueued(sessionId, position));
 
-            // 3) 병렬 CID별 가격 수집
-            List<LinkInfo> results = new ArrayList<>();
-            ExecutorService cidExecutor = Executors.newFixedThreadPool(8);
-            AtomicInteger completedCount = new AtomicInteger(0);
-            
-            // currentStep을 final로 만들기 위해 별도 변수 사용
-            final int finalCurrentStep = currentStep;
+        if (admission == ConversionExecutor.Admission.REJECTED) {
+            return rejected(sessionId);
+        }
+        return ResponseEntity.ok(Map.of("success", true, "jobId", sessionId, "hotels", urls.size(), "message",
+            admission == ConversionExecutor.Admission.QUEUED ? "대기열에 등록했습니다." : "처리를 시작했습니다."));
+    }
 
-            try {
-                List<CompletableFuture<LinkInfo>> futures = cidList.stream()
-                    .map(entry -> CompletableFuture.supplyAsync(() -> {
-                        try {
-                            LinkInfo result = fetchSequentiallyWithSession(url, entry, sessionCookies);
-
-                            // 진행율 업데이트 (동기화) - finalCurrentStep 사용
-                            int completed = completedCount.incrementAndGet();
-                            sendProgress(sessionId, finalCurrentStep + completed, totalSteps);
-
-                            return result;
-                        } catch (Exception e) {
-                            System.out.printf("✗ %s (CID: %d) - 병렬 처리 실패: %s%n",
-                                entry.label(), entry.cid(), e.getMessage());
-                            return new LinkInfo(entry.label(), entry.cid(),
-                                url.replaceAll("cid=-?\\d+", "cid=" + entry.cid()), 0, true, null);
-                        }
-                    }, cidExecutor))
-                    .collect(Collectors.toList());
-
-                // 모든 작업 완료 대기
-                List<LinkInfo> unsortedResults = futures.stream()
-                    .map(CompletableFuture::join)
-                    .collect(Collectors.toList());
-
-                // *** 고정 CID 리스트 순서대로 정렬 ***
-                results.addAll(sortResultsByFixedOrder(unsortedResults, cidList));
-
-            } finally {
-                cidExecutor.shutdown();
-                try {
-                    if (!cidExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
-                        cidExecutor.shutdownNow();
-                    }
-                } catch (InterruptedException e) {
-                    cidExecutor.shutdownNow();
-                    Thread.currentThread().interrupt();
-                }
-            }
+    // 한 호텔의 체크인 날짜 범위(from~to, 포함)를 날짜×CID 로 조회해 날짜별 최저가와 기간 최저가/최저 CID 를 계산
+    // 날짜마다 배치의 호텔 하나처럼 처리 (세션 쿠키 공유, apiUrl 캐시, 최근 결과 재사용), result 이벤트에 date 를 붙여 행렬을 스트리밍
+    @PostMapping(value = "/convert/sweep", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> convertSweep(@RequestBody Map<String, Object> body) {
+        String url = (String) body.get("url");
+        String sessionId = jobId(body);
+        @SuppressWarnings("unchecked")
+        Map<String, String> userCookies = (Map<String, String>) body.get("userCookies");
+        boolean fastMode = fastMode(body);
 
-            String hotelName = results.stream()
-                .map(LinkInfo::getHotel)
-                .filter(Objects::nonNull)
-                .findFirst()
-                .orElse(initialHotel);
-
-            LinkInfo cheapest = results.stream()
-                .filter(r -> !r.isSoldOut() && r.getPrice() > 0)
-                .min(Comparator.comparingDouble(LinkInfo::getPrice))
-                .orElse(null);
-
-            Map<String, Object> resp = new LinkedHashMap<>();
-            resp.put("success", true);
-            resp.put("hotel", hotelName);
-            resp.put("initialPrice", initialPrice);
-            resp.put("initialCurrency", initialCurrency);
-            resp.put("priced", results);
-            resp.put("cheapest", cheapest);
-            resp.put("affiliateLinks", AFFILIATES);
-            resp.put("totalCids", cidList.size());
-            resp.put("collectedResults", results.size());
-
-            // 완료 데이터 전송
-            sendCompletionData(sessionId, resp);
+        if (url == null || !url.contains("agoda.com") || !url.contains("cid=")) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", "유효한 아고다 상세 URL을 입력해주세요."));
+        }
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = body.get("from") instanceof String text ? LocalDate.parse(text) : AgodaPages.extractCheckIn(url);
+            to = body.get("to") instanceof String text ? LocalDate.parse(text) : null;
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", "날짜는 yyyy-MM-dd 형식으로 입력해주세요."));
+        }
+        if (from == null || to == null || to.isBefore(from)) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", "조회할 체크인 기간(from, to)을 입력해주세요."));
+        }
+        List<LocalDate> dates = from.datesUntil(to.plusDays(1)).limit(sweepMaxDates + 1L).toList();
+        if (dates.size() > sweepMaxDates) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", "한 번에 최대 " + sweepMaxDates + "일까지 조회할 수 있습니다."));
+        }
+        CurrencyRequest currencies;
+        try {
+            currencies = currencyRequest(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
 
-        } catch (Exception e) {
-            sendError(sessionId, "처리 중 오류가 발생했습니다: " + e.getMessage());
+        List<String> labels = dates.stream().map(LocalDate::toString).toList();
+        List<String> urls = dates.stream().map(date -> AgodaPages.withCheckIn(url, date)).toList();
+        if (jobRegistry.register(sessionId, JobRegistry.SWEEP, urls).reused()) {
+            return ResponseEntity.ok(Map.of("success", true, "jobId", sessionId, "dates", labels.size(),
+                "message", "이미 처리 중인 작업입니다."));
+        }
+        if (currencies != null) {
+            sessionCurrencies.put(sessionId, currencies);
+        }
+        if (compact(body)) {
+            // 날짜별 URL 은 서버에서 만든 것이므로 클라이언트가 보낸 URL 하나를 기준으로
+            sessionWire.put(sessionId, new CompactWire(url, null));
         }
-    }
 
-    // 정렬 메서드 추가
-    private List<LinkInfo> sortResultsByFixedOrder(List<LinkInfo> unsortedResults, List<CidEntry> cidList) {
-        // CID를 키로 하는 맵 생성
-        Map<Integer, LinkInfo> cidToResult = unsortedResults.stream()
-            .collect(Collectors.toMap(LinkInfo::getCid, result -> result));
-
-        // 고정 CID 리스트 순서대로 정렬된 결과 생성
-        List<LinkInfo> sortedResults = cidList.stream()
-            .map(cidEntry -> cidToResult.get(cidEntry.cid()))
-            .filter(Objects::nonNull) // null 결과 제외
-            .collect(Collectors.toList());
+        ConversionExecutor.Admission admission = conversionExecutor.submitConversion(
+            () -> processBatch(urls, labels, sessionId, userCookies, fastMode, sweepParallelDates,
+                (sweptUrls, outcomes) -> buildSweepSummary(labels, sweptUrls, outcomes)),
+            position -> sendQueued(sessionId, position));
 
-        System.out.printf("정렬 완료: %d개 결과를 고정 CID 순서로 정렬%n", sortedResults.size());
+        if (admission == ConversionExecutor.Admission.REJECTED) {
+            return rejected(sessionId);
+        }
+        return ResponseEntity.ok(Map.of("success", true, "jobId", sessionId, "dates", labels.size(), "message",
+            admission == ConversionExecutor.Admission.QUEUED ? "대기열에 등록했습니다." : "처리를 시작했습니다."));
+    }
 
-        return sortedResults;
+    // 요청 본문의 fastMode (없으면 설정 기본값)
+    private boolean fastMode(Map<String, Object> body) {
+        return body.get("fastMode") instanceof Boolean fastMode ? fastMode : fastModeDefault;
+    }
+
+    // 요청 본문의 compact (압축 전송 형식)
+    private static boolean compact(Map<String, Object> body) {
+        return Boolean.TRUE.equals(body.get("compact"));
     }
 
-    private Map<String, String> collectSessionCookies(String url) throws Exception {
-        Connection.Response response = Jsoup.connect(url)
-            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
-            .header("Accept-Encoding", "gzip, deflate, br, zstd")
-            .header("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8")
-            .header("Cache-Control", "max-age=0")
-            .header("sec-ch-ua", "\"Not)A;Brand\";v=\"8\", \"Chromium\";v=\"138\", \"Google Chrome\";v=\"138\"")
-            .header("sec-ch-ua-mobile", "?0")
-            .header("sec-ch-ua-platform", "\"Windows\"")
-            .header("sec-fetch-dest", "document")
-            .header("sec-fetch-mode", "navigate")
-            .header("sec-fetch-site", "none")
-            .header("sec-fetch-user", "?1")
-            .header("upgrade-insecure-requests", "1")
-            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.0.0 Safari/537.36")
-            .timeout(5000)
-            .ignoreHttpErrors(true)
-            .followRedirects(true)
-            .execute();
+    // 작업 ID: 클라이언트 sessionId (없으면 발급)
+    private static String jobId(Map<String, Object> body) {
+        return body.get("sessionId") instanceof String sessionId && !sessionId.isBlank()
+            ? sessionId : UUID.randomUUID().toString();
+    }
 
-        if (response.statusCode() == 404 || response.url().toString().contains("pagenotfound")) {
-            throw new Exception("URL이 유효하지 않거나 접근이 차단되었습니다.");
+    // 요청 본문의 currencies (예: ["USD", "JPY"]). 없으면 null, 지원하지 않는 통화면 IllegalArgumentException
+    private CurrencyRequest currencyRequest(Map<String, Object> body) {
+        if (!(body.get("currencies") instanceof List<?> requested) || requested.isEmpty()) {
+            return null;
+        }
+        if (requested.size() > MAX_CURRENCIES) {
+            throw new IllegalArgumentException("통화는 한 번에 최대 " + MAX_CURRENCIES + "개까지 요청할 수 있습니다.");
         }
+        FxRates rates = fxRateTable.snapshot()
+            .orElseThrow(() -> new IllegalArgumentException("환율 정보를 사용할 수 없어 다중 통화 변환을 할 수 없습니다."));
+        List<String> currencies = new ArrayList<>();
+        for (Object value : requested) {
+            String currency = String.valueOf(value).trim().toUpperCase(Locale.ROOT);
+            if (!rates.supports(currency)) {
+                throw new IllegalArgumentException("지원하지 않는 통화입니다: " + value);
+            }
+            if (!currencies.contains(currency)) {
+                currencies.add(currency);
+            }
+        }
+        return new CurrencyRequest(rates, fxRateTable.priceCurrency(), List.copyOf(currencies));
+    }
 
-        Map<String, String> sessionCookies = new HashMap<>(response.cookies());
+    // 배치 호텔 채널이면 배치 작업의 요청 통화
+    private CurrencyRequest currenciesFor(String channel) {
+        if (channel == null) {
+            return null;
+        }
+        BatchChannel batch = batchChannels.get(channel);
+        return sessionCurrencies.get(batch != null ? batch.sessionId() : channel);
+    }
 
-        if (sessionCookies.isEmpty()) {
-            throw new Exception("세션 쿠키를 받지 못했습니다.");
+    // 압축 전송 형식이면 이 채널(배치면 호텔)의 URL 차이 기준, 아니면 null
+    private CompactWire wireFor(String channel) {
+        if (channel == null) {
+            return null;
         }
+        BatchChannel batch = batchChannels.get(channel);
+        CompactWire wire = sessionWire.get(batch != null ? batch.sessionId() : channel);
+        return wire == null || batch == null ? wire : new CompactWire(wire.base(batch.index()), null);
+    }
 
-        // 통화 관련 쿠키를 KRW로 강제 수정
-        if (sessionCookies.containsKey("agoda.version.03")) {
-            String versionCookie = sessionCookies.get("agoda.version.03");
-            versionCookie = versionCookie.replaceAll("CurLabel=\\w+", "CurLabel=KRW");
-            sessionCookies.put("agoda.version.03", versionCookie);
+    private ResponseEntity<?> rejected(String jobId) {
+        sessionCurrencies.remove(jobId);
+        sessionWire.remove(jobId);
+        String message = "요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해주세요.";
+        jobRegistry.finish(jobId, JobState.FAILED, message);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(Map.of("success", false, "jobId", jobId, "message", message));
+    }
+
+    private static long parseEventId(String lastEventId) {
+        try {
+            return lastEventId == null ? 0 : Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return 0;
         }
+    }
 
-        sessionCookies.put("agoda.price.01", "PriceView=2");
+    // SSE 연결 종료 처리. 작업이 진행 중이면 재연결/폴링을 기다렸다가 정리
+    private void emitterGone(String sessionId, SseEmitter emitter) {
+        if (!sseEmitters.remove(sessionId, emitter) && sseEmitters.containsKey(sessionId)) {
+            // 이미 새 연결로 교체됨
+            return;
+        }
+        Job job = jobRegistry.get(sessionId).orElse(null);
+        if (job == null || job.state().isFinished() || detachGraceMillis == 0) {
+            detach(sessionId);
+        } else {
+            scheduleDetach(sessionId);
+        }
+    }
 
-        return sessionCookies;
+    private void scheduleDetach(String sessionId) {
+        CompletableFuture.delayedExecutor(detachGraceMillis, TimeUnit.MILLISECONDS, conversionExecutor.executor())
+            .execute(() -> {
+                if (sseEmitters.containsKey(sessionId)) {
+                    return;
+                }
+                Job job = jobRegistry.get(sessionId).orElse(null);
+                if (job != null && !job.state().isFinished()
+                    && System.currentTimeMillis() - job.polledAt() < detachGraceMillis) {
+                    scheduleDetach(sessionId);
+                    return;
+                }
+                detach(sessionId);
+            });
     }
 
-    // 진행율 전송
-    private void sendProgress(String sessionId, int current, int total) {
-        SseEmitter emitter = sseEmitters.get(sessionId);
-        if (emitter != null) {
-            try {
-                int percentage = (int) Math.round((double) current / total * 100);
-                Map<String, Object> data = Map.of(
-                    "type", "progress",
-                    "percentage", percentage
-                );
-                emitter.send(SseEmitter.event().data(data));
-            } catch (IOException e) {
-                sseEmitters.remove(sessionId);
-            }
+    // 세션이 보던 변환에서 빠짐 (배치면 호텔별 변환도 함께). 지켜보는 세션이 없으면 변환 취소
+    private void detach(String sessionId) {
+        List<String> channels = batchSessions.remove(sessionId);
+        if (channels != null) {
+            jobRegistry.finish(sessionId, JobState.CANCELLED, "클라이언트 연결 종료");
+            channels.forEach(this::detach);
+        }
+        ConversionHandle handle = sessionHandles.remove(sessionId);
+        if (handle != null && handle.watchers.decrementAndGet() == 0) {
+            jobRegistry.finish(sessionId, JobState.CANCELLED, "클라이언트 연결 종료");
+            handle.token.cancel("클라이언트 연결 종료");
         }
     }
 
-    // 완료 데이터 전송
-    private void sendCompletionData(String sessionId, Map<String, Object> result) {
-        SseEmitter emitter = sseEmitters.get(sessionId);
-        if (emitter != null) {
-            try {
-                Map<String, Object> data = Map.of(
-                    "type", "complete",
-                    "result", result
-                );
-                emitter.send(SseEmitter.event().data(data));
-                emitter.complete();
-                sseEmitters.remove(sessionId);
-            } catch (IOException e) {
-                sseEmitters.remove(sessionId);
+    // 변환 한 건. 결과를 돌려주며, 오류는 SSE 로 알리고 null 로 끝남
+    private CompletableFuture<ConversionOutcome> processConversion(String url, String sessionId,
+                                                                   Map<String, String> userCookies, boolean fastMode,
+                                                                   ConversionExecutor.Scope scope) {
+        ConversionKey conversionKey = ConversionKey.from(url);
+
+        // 같은 조건의 변환이 이미 진행 중이면 새로 크롤링하지 않고 그 결과를 함께 받음
+        CompletableFuture<ConversionOutcome> owner = new CompletableFuture<>();
+        CompletableFuture<ConversionOutcome> running = conversionResultCache.joinOrRegister(conversionKey, owner);
+        if (running != null) {
+            log.info("동일 조건 변환 진행 중 - 결과 공유 key={}", conversionKey);
+            ConversionHandle shared = conversionHandles.get(conversionKey);
+            if (shared != null && sessionId != null) {
+                shared.watchers.incrementAndGet();
+                sessionHandles.put(sessionId, shared);
             }
+            return running.handle((outcome, e) -> {
+                if (e == null) {
+                    sendAllResults(sessionId, outcome);
+                    sendCompletionData(sessionId, outcome.summary());
+                    return outcome;
+                }
+                sendError(sessionId, "처리 중 오류가 발생했습니다: " + rootMessage(e));
+                return null;
+            });
         }
-    }
 
-    // 오류 전송
-    private void sendError(String sessionId, String message) {
-        SseEmitter emitter = sseEmitters.get(sessionId);
-        if (emitter != null) {
-            try {
-                Map<String, Object> data = Map.of(
-                    "type", "error",
-                    "message", message
-                );
-                emitter.send(SseEmitter.event().data(data));
-                emitter.complete();
-                sseEmitters.remove(sessionId);
-            } catch (IOException e) {
-                sseEmitters.remove(sessionId);
+        ConversionHandle handle = new ConversionHandle();
+        conversionHandles.put(conversionKey, handle);
+        if (sessionId != null) {
+            sessionHandles.put(sessionId, handle);
+        }
+
+        try {
+            ConversionOutcome outcome = runConversion(url, sessionId, userCookies, fastMode, conversionKey, handle.token, scope);
+            owner.complete(outcome);
+
+            // 완료 데이터 전송 (CID별 결과는 이미 result 이벤트로 보냈으므로 요약만)
+            sendCompletionData(sessionId, outcome.summary());
+            return CompletableFuture.completedFuture(outcome);
+
+        } catch (UpstreamBusyException e) {
+            owner.completeExceptionally(e);
+            sendBusy(sessionId, e);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            owner.completeExceptionally(e);
+            sendError(sessionId, "처리 중 오류가 발생했습니다: " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        } finally {
+            conversionResultCache.complete(conversionKey, owner);
+            conversionHandles.remove(conversionKey, handle);
+            if (sessionId != null) {
+                sessionHandles.remove(sessionId, handle);
             }
         }
     }
 
-    // *** 수정된 부분: 구글 CID만 HtmlUnit 방식, 나머지는 기존 방식 ***
-    private LinkInfo fetchSequentiallyWithSession(String baseUrl, CidEntry entry, Map<String, String> sessionCookies) {
-        String modUrl = baseUrl.replaceAll("cid=-?\\d+", "cid=" + entry.cid());
-        String currency = extractCurrencyFromUrl(baseUrl);
-        Map<String, String> updatedCookies = updateCookiesWithNewCid(sessionCookies, entry.cid());
+    // 배치/날짜 범위 조회. labels 는 호텔별 이벤트에 붙일 날짜 (배치는 null),
+    // maxParallel 개(실행 계층의 배치 호텔 상한 이하) 호텔까지만 동시에 처리하고 나머지는 순서대로 기다림
+    private void processBatch(List<String> urls, List<String> labels, String sessionId, Map<String, String> userCookies,
+                              boolean fastMode, int maxParallel,
+                              BiFunction<List<String>, List<ConversionOutcome>, Map<String, Object>> summary) {
+        // 호텔별 채널 등록 (이벤트는 배치 세션 연결로 호텔 번호를 붙여 전송)
+        List<String> channels = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String channel = sessionId + "#" + i;
+            batchChannels.put(channel, new BatchChannel(sessionId, i, labels == null ? null : labels.get(i)));
+            channels.add(channel);
+        }
+        if (sessionId != null) {
+            batchSessions.put(sessionId, channels);
+        }
 
-        int maxAttempts = 3;
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                String hotel = "호텔명 없음";
-                double price = 0;
-                
-                // *** 구글 CID: HtmlUnit 방식 사용 ***
-                if (entry.label().contains("구글")) {
-                    System.out.printf("[%s] 구글 CID 감지 - HtmlUnit 방식 시도%n", entry.label());
-                    
-                    try {
-                        price = extractPriceFromDOMWithWaiting(modUrl, updatedCookies, entry.label());
-                        hotel = extractHotelNameFromDOM(modUrl, updatedCookies);
-                        
-                        if (price > 0) {
-                            System.out.printf("[%s] ✅ HtmlUnit 방식 성공%n", entry.label());
-                        } else {
-                            throw new Exception("HtmlUnit에서 가격을 찾지 못함");
-                        }
-                    } catch (Exception htmlunitException) {
-                        System.out.printf("[%s] ❌ HtmlUnit 방식 실패: %s, JSON 방식으로 전환%n", entry.label(), htmlunitException.getMessage());
-                        
-                        // HtmlUnit 실패 시 기존 JSON 방식으로 fallback
-                        JsonNode root = fetchSecondaryDataJsonWithSession(modUrl, currency, entry.label(), updatedCookies);
-                        hotel = root.path("hotelInfo").path("name").asText(null);
-                        price = root.path("tealium").path("totalPriceTaxInc").asDouble(0);
-                        System.out.printf("[%s] ✅ JSON 방식으로 대체 성공%n", entry.label());
-                    }
+        SessionCookiePool.Lease cookieLease = null;
+        try {
+            // 1) 세션 쿠키는 배치 전체에서 한 번만 준비 (풀에 있으면 빌려 씀)
+            Map<String, String> sharedCookies = userCookies;
+            if (sharedCookies == null || sharedCookies.isEmpty()) {
+                cookieLease = sessionCookiePool.lease().orElse(null);
+                if (cookieLease != null) {
+                    sharedCookies = cookieLease.cookies();
                 } else {
-                    // *** 일반 CID: 기존 JSON 방식 유지 ***
-                    JsonNode root = fetchSecondaryDataJsonWithSession(modUrl, currency, entry.label(), updatedCookies);
-                    hotel = root.path("hotelInfo").path("name").asText(null);
-                    price = root.path("tealium").path("totalPriceTaxInc").asDouble(0);
+                    sharedCookies = collectSessionCookies(urls.get(0));
                 }
+                log.info("배치 세션 쿠키 준비 hotels={} count={} pooled={}", urls.size(), sharedCookies.size(),
+                    cookieLease != null);
+            }
 
-                boolean soldOut = price == 0;
-                System.out.printf(
-                    soldOut
-                        ? "✗ %s (CID: %d) - 품절%n"
-                        : "✓ %s (CID: %d) - 가격: %.2f%n",
-                    entry.label(), entry.cid(), price
-                );
+            // 2) 호텔×CID 호출은 배치 상한 하나를 호텔 간 라운드로빈으로 나눠 씀
+            //    호텔 하나가 끝나면 다음 호텔을 시작 (앞 순서부터, 연결이 끊겼으면 시작하지 않음).
+            //    기다리는 호텔은 실행기 스레드를 차지하지 않음
+            ConversionExecutor.BatchScope batchScope = conversionExecutor.openBatchScope();
+            HotelWindow window = new HotelWindow(urls, channels, sessionId, sharedCookies, fastMode, batchScope);
+            window.start(batchScope.hotelLimit(maxParallel));
+            List<CompletableFuture<ConversionOutcome>> hotels = window.hotels;
+            CompletableFuture.allOf(hotels.toArray(new CompletableFuture[0])).join();
+
+            // 3) 호텔 간 최저가 순위
+            List<ConversionOutcome> outcomes = hotels.stream().map(CompletableFuture::join).toList();
+            reportCookieLease(cookieLease, outcomes.stream()
+                .filter(Objects::nonNull)
+                .flatMap(outcome -> outcome.results().stream())
+                .toList());
+            sendCompletionData(sessionId, summary.apply(urls, outcomes));
 
-                return new LinkInfo(entry.label(), entry.cid(), modUrl, price, soldOut, hotel);
+        } catch (Exception e) {
+            sendError(sessionId, "처리 중 오류가 발생했습니다: " + rootMessage(e));
+        } finally {
+            if (sessionId != null) {
+                sessionCurrencies.remove(sessionId);
+                sessionWire.remove(sessionId);
+                batchSessions.remove(sessionId, channels);
+            }
+            for (String channel : channels) {
+                batchChannels.remove(channel);
+                detach(channel);
+            }
+        }
+    }
 
-            } catch (Exception e) {
-                if (attempt == maxAttempts) {
-                    System.out.printf("✗ %s (CID: %d) - 실패: %s%n", entry.label(), entry.cid(), e.getMessage());
-                    return new LinkInfo(entry.label(), entry.cid(), modUrl, 0, true, null);
-                }
-                try {
-                    Thread.sleep(1000L * attempt);
-                } catch (InterruptedException ignored) {
-                    Thread.currentThread().interrupt();
-                }
+    // 배치 complete 이벤트: 최저가가 있는 호텔을 가격순으로, 나머지는 뒤에
+    private Map<String, Object> buildBatchSummary(List<String> urls, List<ConversionOutcome> outcomes) {
+        List<Map<String, Object>> ranking = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            ConversionOutcome outcome = outcomes.get(i);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("hotelIndex", i);
+            entry.put("url", urls.get(i));
+            entry.put("success", outcome != null);
+            if (outcome != null) {
+                entry.put("hotel", outcome.summary().get("hotel"));
+                entry.put("cheapest", outcome.summary().get("cheapest"));
             }
+            ranking.add(entry);
+        }
+        ranking.sort(Comparator.comparingDouble(entry -> entry.get("cheapest") instanceof LinkInfo cheapest
+            ? cheapest.getPrice() : Double.MAX_VALUE));
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            ranking.get(rank).put("rank", rank + 1);
         }
-        return new LinkInfo(entry.label(), entry.cid(), modUrl, 0, true, null);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("success", true);
+        summary.put("batch", true);
+        summary.put("hotels", urls.size());
+        summary.put("completedHotels", outcomes.stream().filter(Objects::nonNull).count());
+        summary.put("ranking", ranking);
+        summary.put("affiliateLinks", AFFILIATES);
+        return summary;
     }
 
-    // *** HtmlUnit을 사용한 JavaScript 실행 가능한 가격 추출 (간소화) ***
-    private double extractPriceFromDOMWithWaiting(String hotelUrl, Map<String, String> cookies, String label) throws Exception {
-        System.out.printf("[%s] HtmlUnit 방식 가격 추출 시작%n", label);
-        
-        WebClient webClient = new WebClient();
-        try {
-            // JavaScript 활성화 및 설정
-            webClient.getOptions().setJavaScriptEnabled(true);
-            webClient.getOptions().setCssEnabled(false);
-            webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
-            webClient.getOptions().setThrowExceptionOnScriptError(false);
-            webClient.getOptions().setTimeout(30000); // 30초 타임아웃
-            webClient.getOptions().setUseInsecureSSL(true);
-            
-            // User-Agent 설정
-            webClient.addRequestHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
-            webClient.addRequestHeader("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8");
-            
-            // 쿠키 설정
-            for (Map.Entry<String, String> cookie : cookies.entrySet()) {
-                try {
-                    webClient.getCookieManager().addCookie(
-                        new com.gargoylesoftware.htmlunit.util.Cookie("www.agoda.com", cookie.getKey(), cookie.getValue())
-                    );
-                } catch (Exception e) {
-                    // 쿠키 설정 실패 시 무시
+    // 날짜 범위 complete 이벤트: 날짜×CID 가격 행렬, 날짜별 최저가, 기간 최저가(가장 싼 날), CID별 최저가 횟수 순위
+    private Map<String, Object> buildSweepSummary(List<String> dates, List<String> urls, List<ConversionOutcome> outcomes) {
+        // 열은 결과가 나온 CID 를 처음 나온 순서대로 (고정 CID 다음 AUTO CID)
+        Map<Integer, String> columns = new LinkedHashMap<>();
+        outcomes.stream().filter(Objects::nonNull).flatMap(outcome -> outcome.results().stream())
+            .forEach(result -> columns.putIfAbsent(result.getCid(), result.getLabel()));
+        List<Integer> cids = List.copyOf(columns.keySet());
+
+        List<List<Double>> matrix = new ArrayList<>();
+        List<Map<String, Object>> byDate = new ArrayList<>();
+        Map<Integer, int[]> wins = new HashMap<>();
+        Map<Integer, double[]> totals = new HashMap<>();
+        LinkInfo cheapest = null;
+        String cheapestDate = null;
+        for (int i = 0; i < dates.size(); i++) {
+            ConversionOutcome outcome = outcomes.get(i);
+            Map<Integer, LinkInfo> row = new HashMap<>();
+            if (outcome != null) {
+                outcome.results().forEach(result -> row.put(result.getCid(), result));
+            }
+            List<Double> prices = new ArrayList<>();
+            LinkInfo dayCheapest = null;
+            for (int cid : cids) {
+                LinkInfo result = row.get(cid);
+                boolean priced = result != null && !result.isSoldOut() && result.getPrice() > 0;
+                prices.add(priced ? result.getPrice() : null);
+                if (priced) {
+                    double[] total = totals.computeIfAbsent(cid, key -> new double[2]);
+                    total[0] += result.getPrice();
+                    total[1]++;
+                    if (dayCheapest == null || result.getPrice() < dayCheapest.getPrice()) {
+                        dayCheapest = result;
+                    }
                 }
             }
-            
-            System.out.printf("[%s] 페이지 로드 시작: %s%n", label, hotelUrl);
-            
-            // 페이지 로드
-            HtmlPage page = webClient.getPage(hotelUrl);
-            
-            System.out.printf("[%s] 페이지 로드 완료, JavaScript 실행 대기 중... (10초)%n", label);
-            
-            // JavaScript 실행 대기 (AGODASPONSORED 적용 시간)
-            webClient.waitForBackgroundJavaScript(10000);
-            
-            System.out.printf("[%s] JavaScript 실행 완료, 가격 요소 검색%n", label);
-            
-            // 확인된 선택자로 가격 찾기
-            HtmlElement priceElement = page.querySelector("#hotelNavBar > nav > div > div > div.ae161-box.ae161-fill-inherit.ae161-text-inherit.ae161-items-center.ae161-flex.ae161-shrink > div > span > div > span:nth-child(5)");
-            
-            if (priceElement != null) {
-                String priceText = priceElement.getTextContent().trim();
-                System.out.printf("[%s] ✅ 가격 요소 발견: '%s'%n", label, priceText);
-                
-                double price = extractPriceFromText(priceText, label);
-                if (price > 0) {
-                    System.out.printf("[%s] ✅ HtmlUnit 가격 추출 성공: %.0f%n", label, price);
-                    return price;
+            matrix.add(prices);
+            if (dayCheapest != null) {
+                wins.computeIfAbsent(dayCheapest.getCid(), key -> new int[1])[0]++;
+                if (cheapest == null || dayCheapest.getPrice() < cheapest.getPrice()) {
+                    cheapest = dayCheapest;
+                    cheapestDate = dates.get(i);
                 }
-            } else {
-                System.out.printf("[%s] ❌ 가격 요소를 찾지 못함%n", label);
             }
-            
-            throw new Exception("지정된 선택자에서 가격을 찾지 못함");
-            
-        } finally {
-            webClient.close();
+            Map<String, Object> day = new LinkedHashMap<>();
+            day.put("date", dates.get(i));
+            day.put("url", urls.get(i));
+            day.put("success", outcome != null);
+            day.put("cheapest", dayCheapest);
+            byDate.add(day);
         }
+
+        // 가장 많은 날짜에서 최저가였던 CID 순 (같으면 평균가가 낮은 순)
+        List<Map<String, Object>> cidRanking = new ArrayList<>();
+        for (int cid : cids) {
+            double[] total = totals.get(cid);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("cid", cid);
+            entry.put("label", columns.get(cid));
+            entry.put("wins", wins.containsKey(cid) ? wins.get(cid)[0] : 0);
+            entry.put("pricedDates", total == null ? 0 : (int) total[1]);
+            entry.put("averagePrice", total == null ? null : Math.round(total[0] / total[1]));
+            cidRanking.add(entry);
+        }
+        cidRanking.sort(Comparator
+            .comparingInt((Map<String, Object> entry) -> -(int) entry.get("wins"))
+            .thenComparingDouble(entry -> entry.get("averagePrice") instanceof Long average ? average : Double.MAX_VALUE));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("success", true);
+        summary.put("sweep", true);
+        summary.put("dates", dates);
+        summary.put("completedDates", outcomes.stream().filter(Objects::nonNull).count());
+        summary.put("cids", cids.stream().map(cid -> Map.of("cid", cid, "label", columns.get(cid))).toList());
+        summary.put("matrix", matrix);
+        summary.put("byDate", byDate);
+        summary.put("cheapest", cheapest);
+        summary.put("cheapestDate", cheapestDate);
+        summary.put("cidRanking", cidRanking);
+        summary.put("affiliateLinks", AFFILIATES);
+        return summary;
     }
 
-    // 텍스트에서 가격 추출
-    private double extractPriceFromText(String text, String label) {
-        if (text == null || text.isEmpty()) return 0;
-        
-        String numbersOnly = text.replaceAll("[^0-9,]", "");
-        if (numbersOnly.isEmpty()) return 0;
-        
-        try {
-            double price = Double.parseDouble(numbersOnly.replace(",", ""));
-            if (price >= 10000 && price <= 10_000_000) {
-                return price;
+    private ConversionOutcome runConversion(String url, String sessionId, Map<String, String> userCookies,
+                                            boolean fastMode, ConversionKey conversionKey, CancelToken conversionToken,
+                                            ConversionExecutor.Scope scope) throws Exception {
+        String currency = AgodaPages.extractCurrencyFromUrl(url);
+        String segment = CidStatistics.segmentKey(url, currency);
+
+        // 0) 결과 캐시 확인 - 고정 CID 결과와 초기 정보가 모두 남아 있으면 바로 응답
+        Map<Integer, LinkInfo> cachedResults = conversionResultCache.getResults(conversionKey);
+        ConversionResultCache.InitialInfo cachedInitial = conversionResultCache.getInitial(conversionKey);
+        if (cachedInitial != null && STATIC_CIDS.stream().allMatch(entry -> cachedResults.containsKey(entry.cid()))) {
+            log.info("결과 캐시 적중 key={}", conversionKey);
+            List<CidEntry> cachedCidList = new ArrayList<>(STATIC_CIDS);
+            cachedResults.values().stream()
+                .filter(result -> STATIC_CIDS.stream().noneMatch(entry -> entry.cid() == result.getCid()))
+                .forEach(result -> cachedCidList.add(new CidEntry(result.getLabel(), result.getCid())));
+            sendProgress(sessionId, 1, 1);
+            ConversionOutcome outcome = buildOutcome(
+                sortResultsByFixedOrder(new ArrayList<>(cachedResults.values()), cachedCidList),
+                cachedCidList, cachedInitial);
+            sendAllResults(sessionId, outcome);
+            return outcome;
+        }
+
+        // 차단 회로가 열려 있으면 CID 마다 느리게 실패하는 대신 바로 "busy" 로 응답
+        long busyMillis = upstreamGuard.busyFor();
+        if (busyMillis > 0) {
+            throw new UpstreamBusyException(busyMillis);
+        }
+
+        // 빠른 모드는 이 구간(지역/통화)의 이력이 충분할 때만 적용
+        boolean fast = fastMode && cidStatistics.isWarm(segment);
+        List<CidEntry> cidList = buildCidList(fast ? fastAutoCids : AUTO_CID_COUNT);
+        List<CidEntry> toFetch = cidList.stream()
+            .filter(entry -> !cachedResults.containsKey(entry.cid()))
+            .collect(Collectors.toList());
+
+        // 빠른 모드: 승률 상위 고정 CID top-K 와 AUTO CID 를 먼저, 나머지 고정 CID 는 필요할 때만 조회
+        List<CidEntry> firstWave = toFetch;
+        List<CidEntry> rest = List.of();
+        if (fast) {
+            List<CidEntry> ranked = cidStatistics.rank(segment,
+                toFetch.stream().filter(entry -> !isAutoCid(entry)).toList());
+            int topK = Math.min(fastTopK, ranked.size());
+            firstWave = new ArrayList<>(ranked.subList(0, topK));
+            toFetch.stream().filter(ConvertController::isAutoCid).forEach(firstWave::add);
+            rest = ranked.subList(topK, ranked.size());
+        }
+        int totalSteps = firstWave.size() + 2;
+        int currentStep = 0;
+
+        // 1) 세션 쿠키 준비 (사용자 쿠키가 있으면 사용, 없으면 풀에서 빌리고, 풀이 비었으면 새로 수집)
+        sendProgress(sessionId, ++currentStep, totalSteps);
+        Map<String, String> sessionCookies;
+        SessionCookiePool.Lease cookieLease = null;
+
+        if (userCookies != null && !userCookies.isEmpty()) {
+            sessionCookies = new HashMap<>(userCookies);
+            log.info("사용자 제공 쿠키 사용 count={}", userCookies.size());
+
+            // 통화 관련 쿠키를 KRW로 강제 수정
+            if (sessionCookies.containsKey("agoda.version.03")) {
+                String versionCookie = sessionCookies.get("agoda.version.03");
+                versionCookie = versionCookie.replaceAll("CurLabel=\\w+", "CurLabel=KRW");
+                sessionCookies.put("agoda.version.03", versionCookie);
             }
-        } catch (NumberFormatException e) {
-            System.out.printf("[%s] 숫자 변환 실패: %s%n", label, e.getMessage());
+            sessionCookies.put("agoda.price.01", "PriceView=2");
+        } else if ((cookieLease = sessionCookiePool.lease().orElse(null)) != null) {
+            sessionCookies = cookieLease.cookies();
+            log.debug("풀 세션 쿠키 사용 count={}", sessionCookies.size());
+        } else {
+            sessionCookies = collectSessionCookies(url);
+            log.info("새로운 세션 쿠키 수집 count={}", sessionCookies.size());
         }
-        
-        return 0;
-    }
 
-    // *** Jsoup을 사용한 호텔명 추출 (기존 방식 유지) ***
-    private String extractHotelNameFromDOM(String hotelUrl, Map<String, String> cookies) {
+        // CID별 쿠키는 변환당 한 번 분석한 템플릿으로 생성
+        CookieTemplate cookieTemplate = CookieTemplate.parse(sessionCookies);
+
+        // 2) 세션 쿠키로 초기 호텔명과 가격 가져오기 (캐시에 있으면 재사용)
+        sendProgress(sessionId, ++currentStep, totalSteps);
+        ConversionResultCache.InitialInfo initial = cachedInitial;
+
+        if (initial == null) {
+            try {
+                FetchContext initialCtx = new FetchContext(sessionId, scope.executor(), conversionToken.child());
+                SecondaryData initialData = scope.limit(initialCtx.token(), () ->
+                        jsonApiStrategy.fetchSecondaryData(url, "INITIAL", cookieTemplate.unchanged(), initialCtx))
+                    .orTimeout(cidDeadlineMillis, TimeUnit.MILLISECONDS)
+                    .whenComplete((root, e) -> {
+                        if (e != null) {
+                            initialCtx.token().cancel("초기 정보 마감 초과");
+                        }
+                    })
+                    .join();
+                initial = new ConversionResultCache.InitialInfo(
+                    Objects.requireNonNullElse(initialData.hotelName(), "호텔명 없음"),
+                    initialData.totalPrice(),
+                    Objects.requireNonNullElse(initialData.currency(), "UNKNOWN"));
+                conversionResultCache.putInitial(conversionKey, initial);
+
+                log.info("초기 가격 price={} currency={}", initial.price(), initial.currency());
+            } catch (Exception e) {
+                log.warn("초기 가격 정보를 가져오는데 실패했습니다: {}", rootMessage(e));
+                initial = new ConversionResultCache.InitialInfo("호텔명 없음", 0, "UNKNOWN");
+            }
+        }
+
+        // 3) 병렬 CID별 가격 수집 (캐시에 없는 CID만) - 캐시 적중분은 먼저 result 이벤트로 전송
+        CidRun run = new CidRun(url, sessionId, sessionId, scope, conversionToken, cookieTemplate, conversionKey,
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(conversionBudgetMillis), currentStep, totalSteps);
+        List<LinkInfo> unsortedResults = new ArrayList<>();
+        cidList.stream()
+            .map(entry -> cachedResults.get(entry.cid()))
+            .filter(Objects::nonNull)
+            .forEach(result -> {
+                unsortedResults.add(result);
+                sendResult(sessionId, result, updateCheapest(run.cheapestSoFar, result));
+            });
+
+        List<CidEntry> queried = new ArrayList<>(cidList);
         try {
-            Document doc = Jsoup.connect(hotelUrl)
-                .cookies(cookies)
-                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-                .timeout(10000)
-                .get();
-            
-            // 지정된 호텔명 선택자
-            String hotelSelector = "#property-main-content > div.Box-sc-kv6pi1-0.cJiLOx.sc-fodVxV.fpbXlD > div > div.ae161-box.ae161-fill-inherit.ae161-text-inherit.ae161-inline-block > h1";
-            
-            Element element = doc.selectFirst(hotelSelector);
-            if (element != null) {
-                String hotelName = element.text().trim();
-                if (!hotelName.isEmpty()) {
-                    System.out.printf("DOM에서 호텔명 추출: %s%n", hotelName);
-                    return hotelName;
+            unsortedResults.addAll(run.await(run.launch(firstWave)));
+
+            if (!rest.isEmpty()) {
+                // 최근 변환에서 먼저 조회한 CID 만으로 최저가를 얻은 비율이 신뢰도 이상이면 조기 응답
+                double coverage = cidStatistics.coverage(segment, firstWave);
+                if (coverage >= fastConfidence) {
+                    log.info("빠른 모드 조기 응답 segment={} queried={} skipped={} coverage={}",
+                        segment, firstWave.size(), rest.size(), String.format("%.3f", coverage));
+                    queried.removeAll(rest);
+                    if (cachedResults.isEmpty() && ThreadLocalRandom.current().nextDouble() < fastExploreRate) {
+                        fillInBackground(url, sessionId, scope, cookieTemplate, conversionKey, segment,
+                            List.copyOf(unsortedResults), rest);
+                    }
+                    reportCookieLease(cookieLease, unsortedResults);
+                    ConversionOutcome outcome = buildOutcome(sortResultsByFixedOrder(unsortedResults, queried),
+                        queried, initial);
+                    outcome.summary().put("fast", true);
+                    outcome.summary().put("skippedCids", rest.size());
+                    return outcome;
                 }
+                // 확신이 부족하면 나머지도 이어서 조회
+                run.totalSteps += rest.size();
+                unsortedResults.addAll(run.await(run.launch(rest)));
             }
-            
-            System.out.println("DOM에서 호텔명을 찾지 못함");
-            
-        } catch (Exception e) {
-            System.out.printf("호텔명 추출 실패: %s%n", e.getMessage());
+        } finally {
+            requestPacer.releaseSession(sessionId);
         }
-        
-        return "호텔명 없음";
+
+        reportCookieLease(cookieLease, unsortedResults);
+
+        // 캐시 결과를 섞지 않은 전체 조회만 이력에 반영 (조기 응답 결과로 순위가 굳지 않도록)
+        if (cachedResults.isEmpty()) {
+            cidStatistics.record(segment, unsortedResults);
+        }
+
+        // *** 고정 CID 리스트 순서대로 정렬 ***
+        return buildOutcome(sortResultsByFixedOrder(unsortedResults, cidList), cidList, initial);
     }
 
-    // *** 기존 메서드들 유지 ***
-    private Map<String, String> updateCookiesWithNewCid(Map<String, String> originalCookies, int newCid) {
-        Map<String, String> updatedCookies = new HashMap<>(originalCookies);
-        String newCidStr = String.valueOf(newCid);
+    // 조기 응답 후 건너뛴 CID 를 이벤트 없이 조회해 결과 캐시와 이력을 채움 (탐색)
+    // 클라이언트 연결과 무관하게 끝까지 실행하도록 변환 토큰 대신 별도 토큰과 예산을 사용
+    private void fillInBackground(String url, String sessionId, ConversionExecutor.Scope scope,
+                                  CookieTemplate cookieTemplate, ConversionKey conversionKey, String segment,
+                                  List<LinkInfo> firstResults, List<CidEntry> rest) {
+        CancelToken fillToken = new CancelToken();
+        String pacingKey = sessionId + "#fill";
+        CidRun fill = new CidRun(url, null, pacingKey, scope, fillToken, cookieTemplate, conversionKey,
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(conversionBudgetMillis), 0, rest.size());
+        List<CompletableFuture<LinkInfo>> futures = fill.launch(rest);
+        CompletableFuture.delayedExecutor(conversionBudgetMillis, TimeUnit.MILLISECONDS, scope.executor())
+            .execute(() -> fillToken.cancel("변환 마감 초과"));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .whenComplete((ignored, e) -> {
+                requestPacer.releaseSession(pacingKey);
+                List<LinkInfo> all = new ArrayList<>(firstResults);
+                futures.stream().map(CompletableFuture::join).forEach(all::add);
+                cidStatistics.record(segment, all);
+                log.info("빠른 모드 나머지 조회 완료 segment={} cids={}", segment, rest.size());
+            });
+    }
 
-        String currentTime = java.time.LocalDateTime.now()
-            .format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
-        String currentTimeShort = java.time.LocalDateTime.now()
-            .format(java.time.format.DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm"));
+    // 세션 쿠키 직접 수집 (단계 지표 포함)
+    private Map<String, String> collectSessionCookies(String url) throws IOException {
+        Timer.Sample cookieTimer = metrics.start();
+        try {
+            Map<String, String> cookies = sessionCookiePool.collect(url);
+            metrics.stopStage(cookieTimer, ConversionMetrics.SESSION_COOKIES, true);
+            return cookies;
+        } catch (IOException e) {
+            metrics.stopStage(cookieTimer, ConversionMetrics.SESSION_COOKIES, false);
+            throw e;
+        }
+    }
 
-        if (updatedCookies.containsKey("agoda.firstclicks")) {
-            String firstClicks = updatedCookies.get("agoda.firstclicks");
-            firstClicks = firstClicks.replaceFirst("\\d+", newCidStr);
-            firstClicks = firstClicks.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}", currentTime);
-            updatedCookies.put("agoda.firstclicks", firstClicks);
+    // 풀 쿠키로 가격을 하나라도 받았으면 정상. 결과가 없거나 품절/실패뿐이면 차단/캡차 의심으로 알림
+    // (차단된 쿠키는 모든 CID 가 품절처럼 보일 수 있음, 시간 초과만 있으면 판단 보류)
+    private static void reportCookieLease(SessionCookiePool.Lease lease, List<LinkInfo> results) {
+        if (lease == null) {
+            return;
+        }
+        if (results.stream().anyMatch(r -> r.getStatus() == LinkStatus.OK)) {
+            lease.succeeded();
+        } else if (results.isEmpty() || results.stream().anyMatch(r -> r.getStatus() != LinkStatus.TIMEOUT)) {
+            lease.failed();
         }
+    }
+
+    // 가격이 있는 결과면 최저가 갱신 후 현재 최저가 반환
+    private static LinkInfo updateCheapest(AtomicReference<LinkInfo> cheapestSoFar, LinkInfo result) {
+        if (result.isSoldOut() || result.getPrice() <= 0) {
+            return cheapestSoFar.get();
+        }
+        return cheapestSoFar.accumulateAndGet(result,
+            (current, candidate) -> current == null || candidate.getPrice() < current.getPrice() ? candidate : current);
+    }
+
+    // complete 이벤트에는 CID별 목록 대신 고정 순서(order)만 담는다
+    private ConversionOutcome buildOutcome(List<LinkInfo> results, List<CidEntry> cidList,
+                                           ConversionResultCache.InitialInfo initial) {
+        String hotelName = results.stream()
+            .map(LinkInfo::getHotel)
+            .filter(Objects::nonNull)
+            .findFirst()
+            .orElse(initial.hotel());
+
+        LinkInfo cheapest = results.stream()
+            .filter(r -> !r.isSoldOut() && r.getPrice() > 0)
+            .min(Comparator.comparingDouble(LinkInfo::getPrice))
+            .orElse(null);
+
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("success", true);
+        resp.put("hotel", hotelName);
+        resp.put("initialPrice", initial.price());
+        resp.put("initialCurrency", initial.currency());
+        resp.put("cheapest", cheapest);
+        resp.put("affiliateLinks", AFFILIATES);
+        resp.put("totalCids", cidList.size());
+        resp.put("collectedResults", results.size());
+        resp.put("order", results.stream().map(LinkInfo::getCid).collect(Collectors.toList()));
+        return new ConversionOutcome(results, resp);
+    }
+
+    // 고정 CID 리스트 순서대로 정렬
+    private List<LinkInfo> sortResultsByFixedOrder(List<LinkInfo> unsortedResults, List<CidEntry> cidList) {
+        List<LinkInfo> sortedResults = ConversionOutcome.sortByCidOrder(unsortedResults, cidList);
+        log.debug("정렬 완료: {}개 결과를 고정 CID 순서로 정렬", sortedResults.size());
+        return sortedResults;
+    }
+
+    // 대기열 순번 전송
+    private void sendQueued(String sessionId, int position) {
+        send(sessionId, Map.of(
+            "type", "queued",
+            "position", position
+        ), false);
+    }
 
-        if (updatedCookies.containsKey("agoda.lastclicks")) {
-            String lastClicks = updatedCookies.get("agoda.lastclicks");
-            lastClicks = lastClicks.replaceFirst("\\d+", newCidStr);
-            lastClicks = lastClicks.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}", currentTime);
-            updatedCookies.put("agoda.lastclicks", lastClicks);
+    // CID 결과 한 건과 현재까지의 최저가 전송
+    private void sendResult(String sessionId, LinkInfo item, LinkInfo cheapest) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("type", "result");
+        CompactWire wire = wireFor(sessionId);
+        if (wire != null) {
+            // 최저가는 이미 받은 결과이므로 cid 만
+            data.put("item", CompactLinks.encode(item, wire.url(), CID_LABELS));
+            data.put("cheapest", cheapest == null ? null : cheapest.getCid());
+        } else {
+            data.put("item", item);
+            data.put("cheapest", cheapest);
         }
+        CurrencyRequest currencies = currenciesFor(sessionId);
+        if (currencies != null) {
+            // 원화 가격 하나로 요청 통화 가격을 계산 (통화별로 다시 크롤링하지 않음)
+            data.put("converted", item.isSoldOut() ? Map.of() : currencies.convert(item.getPrice()));
+            data.put("cheapestConverted", cheapest == null ? null : currencies.convert(cheapest.getPrice()));
+        }
+        send(sessionId, data, false);
+    }
 
-        if (updatedCookies.containsKey("agoda.landings")) {
-            String landings = updatedCookies.get("agoda.landings");
-            landings = landings.replaceFirst("\\d+", newCidStr);
-            landings = landings.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}", currentTime);
-            updatedCookies.put("agoda.landings", landings);
+    // 진행 중 이벤트를 받지 못한 세션(캐시 적중, 동일 변환 공유)에 결과 전체를 result 이벤트로 전송
+    private void sendAllResults(String sessionId, ConversionOutcome outcome) {
+        AtomicReference<LinkInfo> cheapestSoFar = new AtomicReference<>();
+        for (LinkInfo result : outcome.results()) {
+            sendResult(sessionId, result, updateCheapest(cheapestSoFar, result));
         }
+    }
 
-        if (updatedCookies.containsKey("agoda.attr.03")) {
-            String attr03 = updatedCookies.get("agoda.attr.03");
-            String newItem = String.format("%s$%s$%s",
-                newCidStr,
-                currentTimeShort,
-                extractTagFromUrl(originalCookies.getOrDefault("agoda.firstclicks", "")));
+    // 진행율 전송
+    private void sendProgress(String sessionId, int current, int total) {
+        int percentage = (int) Math.round((double) current / total * 100);
+        send(sessionId, Map.of(
+            "type", "progress",
+            "percentage", percentage
+        ), false);
+    }
 
-            if (attr03.startsWith("ATItems=")) {
-                attr03 = "ATItems=" + newItem + "|" + attr03.substring(8);
-            } else {
-                attr03 = "ATItems=" + newItem;
+    // 완료 데이터 전송
+    private void sendCompletionData(String sessionId, Map<String, Object> result) {
+        Object summary = withCurrencies(currenciesFor(sessionId), result);
+        CompactWire wire = wireFor(sessionId);
+        if (wire != null) {
+            summary = CompactLinks.summary(summary, wire.url(), CID_LABELS, META_VERSION);
+        }
+        send(sessionId, Map.of(
+            "type", "complete",
+            "result", summary
+        ), true);
+    }
+
+    // 완료 요약에 요청 통화별 최저가/초기 가격과 사용한 환율을 붙인 사본 (요약 자체는 공유/캐시되므로 수정하지 않음)
+    private static Map<String, Object> withCurrencies(CurrencyRequest currencies, Map<String, Object> result) {
+        if (currencies == null) {
+            return result;
+        }
+        Map<String, Object> fx = new LinkedHashMap<>();
+        fx.put("priceCurrency", currencies.from());
+        fx.put("currencies", currencies.currencies());
+        fx.put("rates", currencies.rates());
+        fx.put("ratesLoadedAt", currencies.fxRates().loadedAt());
+        if (result.get("cheapest") instanceof LinkInfo cheapest) {
+            fx.put("cheapest", currencies.convert(cheapest.getPrice()));
+        }
+        if (result.get("initialPrice") instanceof Double initialPrice) {
+            String initialCurrency = String.valueOf(result.get("initialCurrency"));
+            fx.put("initialPrice", currencies.fxRates().supports(initialCurrency)
+                ? currencies.fxRates().convertAll(initialPrice, initialCurrency, currencies.currencies())
+                : Map.of());
+        }
+        if (result.get("ranking") instanceof List<?> ranking) {
+            List<Map<String, Object>> hotels = new ArrayList<>();
+            for (Object item : ranking) {
+                if (item instanceof Map<?, ?> entry && entry.get("cheapest") instanceof LinkInfo cheapest) {
+                    hotels.add(Map.of("hotelIndex", entry.get("hotelIndex"), "cheapest", currencies.convert(cheapest.getPrice())));
+                }
             }
-            updatedCookies.put("agoda.attr.03", attr03);
+            fx.put("ranking", hotels);
         }
+        if (result.get("byDate") instanceof List<?> byDate) {
+            List<Map<String, Object>> days = new ArrayList<>();
+            for (Object item : byDate) {
+                if (item instanceof Map<?, ?> entry && entry.get("cheapest") instanceof LinkInfo cheapest) {
+                    days.add(Map.of("date", entry.get("date"), "cheapest", currencies.convert(cheapest.getPrice())));
+                }
+            }
+            fx.put("byDate", days);
+        }
+        Map<String, Object> copy = new LinkedHashMap<>(result);
+        copy.put("fx", fx);
+        return copy;
+    }
+
+    // 차단 회로가 열려 있어 조회하지 못함 (클라이언트는 retryAfterSeconds 뒤 다시 요청)
+    private void sendBusy(String sessionId, UpstreamBusyException e) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("type", "error");
+        data.put("busy", true);
+        data.put("retryAfterSeconds", retryAfterSeconds(e.retryAfterMillis()));
+        data.put("message", e.getMessage() + " 잠시 후 다시 시도해주세요.");
+        send(sessionId, data, true);
+    }
 
-        if (updatedCookies.containsKey("agoda.attr.fe")) {
-            String attrFe = updatedCookies.get("agoda.attr.fe");
-            attrFe = attrFe.replaceFirst("\\d+", newCidStr);
-            attrFe = attrFe.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}", currentTime);
-            updatedCookies.put("agoda.attr.fe", attrFe);
+    // 차단 회로 상태가 바뀌면 진행 중인 작업의 SSE 연결에 알림 (열리면 남은 CID 는 바로 실패하므로 재시도 시점을 함께)
+    private void broadcastUpstreamState(UpstreamGuard.State state) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("type", "upstream");
+        data.put("state", state.name());
+        if (state == UpstreamGuard.State.OPEN) {
+            data.put("retryAfterSeconds", retryAfterSeconds(upstreamGuard.busyFor()));
+            data.put("message", "아고다 응답 제한으로 잠시 요청을 멈췄습니다. 남은 CID 는 조회하지 않습니다.");
         }
+        Set<String> targets = new HashSet<>(sessionHandles.keySet());
+        targets.addAll(batchSessions.keySet());
+        targets.removeIf(batchChannels::containsKey);
+        targets.forEach(target -> send(target, data, false));
+    }
 
-        return updatedCookies;
+    private static long retryAfterSeconds(long millis) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(millis + 999));
     }
 
-    private String extractTagFromUrl(String cookieValue) {
-        try {
-            String[] parts = cookieValue.split("\\|\\|");
-            if (parts.length > 1) {
-                return parts[1];
+    // 오류 전송
+    private void sendError(String sessionId, String message) {
+        send(sessionId, Map.of(
+            "type", "error",
+            "message", message
+        ), true);
+    }
+
+    // 이벤트 기록 후 전송. 배치 채널이면 배치 세션의 연결로 호텔 번호를 붙여 보내고, 호텔 하나가 끝나도 연결은 유지
+    private void send(String channel, Map<String, Object> data, boolean last) {
+        BatchChannel batch = batchChannels.get(channel);
+        String target = batch != null ? batch.sessionId() : channel;
+        if (target == null) {
+            return;
+        }
+        Map<String, Object> event = data;
+        if (batch != null) {
+            event = new LinkedHashMap<>(data);
+            if (last) {
+                event.put("type", "hotel-" + data.get("type"));
+            }
+            event.put("hotel", batch.index());
+            if (batch.date() != null) {
+                event.put("date", batch.date());
             }
-        } catch (Exception e) {
-            // 추출 실패 시 기본값
         }
-        return "eeeb2a37-a3e0-4932-8325-55d6a8ba95a4";
+        boolean complete = last && batch == null;
+        jobRegistry.record(target, event, recorded -> {
+            SseEmitter emitter = sseEmitters.get(target);
+            if (emitter != null) {
+                deliver(target, emitter, recorded, complete);
+            }
+            // SSE 연결이 다른 노드에 붙어 있을 수 있으므로 순번을 매긴 이벤트는 다른 노드에도 알림
+            if (recorded.seq() > 0 && clusterCoordinator.distributed()) {
+                jobRegistry.get(target).ifPresent(job -> clusterCoordinator.publish(
+                    new JobEvent(target, job.kind(), job.urls(), recorded.seq(), recorded.data(), complete)));
+            }
+        });
     }
 
-    // *** 기존 JSON API 방식 메서드 유지 (일반 CID + 구글 CID 대체용) ***
-    private JsonNode fetchSecondaryDataJsonWithSession(String hotelPageUrl, String currency, String debugLabel, Map<String, String> sessionCookies) throws Exception {
-        Document doc = Jsoup.connect(hotelPageUrl)
-            .cookies(sessionCookies)
-            .header("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8")
-            .header("ag-language-locale", "ko-kr")
-            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-            .timeout((int) Duration.ofSeconds(15).toMillis())
-            .get();
-
-        Element script = doc.selectFirst("script[data-selenium=script-initparam]");
-        String content = script != null
-            ? (script.data().isEmpty() ? script.text() : script.data())
-            : "";
-        String apiPath = content.split("apiUrl\\s*=\\s*\"")[1]
-                                .split("\"")[0]
-                                .replace("&amp;", "&");
-        String apiUrl = "https://www.agoda.com" + apiPath;
+    // 다른 노드에서 실행 중인 작업의 이벤트를 기록하고 이 노드에 붙은 SSE 연결로 전달
+    private void receiveClusterEvent(JobEvent event) {
+        jobRegistry.mirror(event.jobId(), event.kind(), event.urls(), new Job.Event(event.seq(), event.data()),
+            recorded -> {
+                SseEmitter emitter = sseEmitters.get(event.jobId());
+                if (emitter != null) {
+                    deliver(event.jobId(), emitter, recorded, event.complete());
+                }
+            });
+    }
 
-        String cookieHeader = sessionCookies.entrySet().stream()
-            .map(entry -> entry.getKey() + "=" + entry.getValue())
-            .collect(Collectors.joining("; "));
+    // 다른 노드가 맡긴 CID 조회. 이 노드의 실행기 상한 안에서 맡긴 쪽의 마감까지만 실행
+    // 같은 작업의 CID 들은 이 노드에서 변환별 상한 하나를 함께 쓰고, 마지막 CID 가 끝나면 범위와 요청 간격 슬롯을 정리
+    private CompletableFuture<LinkInfo> runClusterTask(CidTask task) {
+        String pacingKey = task.pacingKey();
+        ClusterScope shared = clusterScopes.compute(pacingKey, (key, current) -> {
+            ClusterScope next = current != null ? current : new ClusterScope(conversionExecutor.openScope());
+            next.tasks++;
+            return next;
+        });
+        CancelToken token = new CancelToken();
+        FetchContext ctx = new FetchContext(pacingKey, conversionExecutor.executor(), token);
+        CidEntry entry = new CidEntry(task.label(), task.cid());
+        CookieTemplate cookieTemplate = CookieTemplate.parse(task.cookies());
+        CompletableFuture<LinkInfo> fetch = shared.scope
+            .limit(token, () -> fetchSequentiallyWithSession(task.url(), entry, cookieTemplate, ctx))
+            .orTimeout(Math.max(1, task.deadlineAt() - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        fetch.whenComplete((result, e) -> {
+            if (e != null) {
+                token.cancel(isTimeout(e) ? "CID 마감 초과" : "CID 실패");
+            }
+            clusterScopes.computeIfPresent(pacingKey, (key, current) -> {
+                if (--current.tasks > 0) {
+                    return current;
+                }
+                requestPacer.releaseSession(key);
+                return null;
+            });
+        });
+        return fetch;
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(apiUrl))
-            .header("Accept", "*/*")
-            .header("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8")
-            .header("ag-language-locale", "ko-kr")
-            .header("Cookie", cookieHeader)
-            .header("cr-currency-code", "KRW")
-            .header("cr-currency-id", "26")
-            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64)")
-            .header("Referer", hotelPageUrl)
-            .timeout(Duration.ofSeconds(20))
-            .GET()
-            .build();
+    // SSE 로 이벤트 한 건 전송 (id 는 작업 안 순번, 재연결 시 Last-Event-ID 로 돌아옴)
+    private void deliver(String target, SseEmitter emitter, Job.Event event, boolean complete) {
+        SseEmitter.SseEventBuilder builder = SseEmitter.event().data(event.data());
+        if (event.seq() > 0) {
+            builder.id(String.valueOf(event.seq()));
+        }
+        try {
+            emitter.send(builder);
+            if (complete) {
+                sseEmitters.remove(target, emitter);
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            emitterGone(target, emitter);
+        }
+    }
 
-        HttpResponse<String> apiResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    // 재시도 대기도 스레드를 점유하지 않도록 future 체인으로 구성
+    private CompletableFuture<LinkInfo> fetchSequentiallyWithSession(String baseUrl, CidEntry entry,
+                                                                     CookieTemplate cookieTemplate,
+                                                                     FetchContext ctx) {
+        String modUrl = baseUrl.replaceAll("cid=-?\\d+", "cid=" + entry.cid());
+        String currency = AgodaPages.extractCurrencyFromUrl(baseUrl);
+        CidCookies updatedCookies = cookieTemplate.forCid(entry.cid());
 
-        // 3초 대기
-        Thread.sleep(3000);
-        System.out.printf("[%s] JSON API 대기 완료 (3초)%n", debugLabel);
+        upstreamGuard.onRequest();
+        return fetchAttempt(modUrl, currency, entry, updatedCookies, ctx, 1);
+    }
 
-        return mapper.readTree(apiResponse.body());
+    private CompletableFuture<LinkInfo> fetchAttempt(String modUrl, String currency, CidEntry entry,
+                                                     CidCookies updatedCookies, FetchContext ctx, int attempt) {
+        int maxAttempts = 3;
+        // CID 에 설정된 전략 체인 (JSON API → 정적 HTML → HtmlUnit 등, 이력에 따라 순서 조정)
+        return priceStrategyEngine.fetch(new StrategyRequest(modUrl, currency, entry, updatedCookies, ctx))
+            .thenApply(quote -> {
+                double price = quote.price();
+                boolean soldOut = quote.soldOut();
+                if (soldOut) {
+                    log.info("✗ 품절 label={} cid={}", entry.label(), entry.cid());
+                } else {
+                    log.info("✓ 가격 label={} cid={} price={}", entry.label(), entry.cid(), price);
+                }
+                return new LinkInfo(entry.label(), entry.cid(), modUrl, price, soldOut, quote.hotelName());
+            })
+            .handle((result, e) -> {
+                if (e == null) {
+                    return CompletableFuture.completedFuture(result);
+                }
+                // 차단 회로가 열렸거나 공용 재시도 예산이 바닥나면 재시도하지 않음 (제한 중에 재시도가 몰리지 않도록)
+                if (attempt == maxAttempts || ctx.token().isCancelled() || isBusy(e) || !upstreamGuard.tryRetry()) {
+                    // 최종 실패/취소는 호출 측에서 상태를 정함 (결과 캐시에는 저장하지 않음)
+                    return CompletableFuture.<LinkInfo>failedFuture(e);
+                }
+                metrics.recordRetry(entry.label());
+                // 지수 증가 + 지터 (같은 때 실패한 CID 들이 같은 때 다시 몰리지 않도록)
+                Executor backoff = CompletableFuture.delayedExecutor(upstreamGuard.backoffMillis(attempt),
+                    TimeUnit.MILLISECONDS, ctx.executor());
+                return CompletableFuture.supplyAsync(() -> null, backoff)
+                    .thenRun(() -> ctx.token().throwIfCancelled())
+                    .thenCompose(ignored -> fetchAttempt(modUrl, currency, entry, updatedCookies, ctx, attempt + 1));
+            })
+            .thenCompose(f -> f);
     }
 
-    private String extractCurrencyFromUrl(String url) {
-        if (url.contains("currencyCode=")) {
-            return url.split("currencyCode=")[1].split("&")[0].toUpperCase();
+    // 마감 초과 또는 취소로 끝난 작업인지
+    private static boolean isTimeout(Throwable e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
         }
-        if (url.contains("currency=")) {
-            return url.split("currency=")[1].split("&")[0].toUpperCase();
+        return cause instanceof TimeoutException || cause instanceof CancellationException;
+    }
+
+    // 차단 회로로 호출하지 않고 끝난 작업인지 (전송 계층에서는 IOException 으로 감싸질 수 있음)
+    private static boolean isBusy(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UpstreamBusyException) {
+                return true;
+            }
         }
-        return "KRW";
+        return false;
     }
 
-    private List<CidEntry> buildCidList() {
-        Set<Integer> rnd = new LinkedHashSet<>();
-        Random rand = new Random();
-        while (rnd.size() < 5) {
-            rnd.add(rand.nextInt(2000000 - 1800000 + 1) + 1800000);
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        return cause.getMessage();
+    }
+
+    // 고정 CID + AUTO CID (무작위 대신 이력 기반 밴딧으로 선택)
+    private List<CidEntry> buildCidList(int autoCount) {
+        Set<Integer> staticCids = STATIC_CIDS.stream().map(CidEntry::cid).collect(Collectors.toSet());
         List<CidEntry> list = new ArrayList<>(STATIC_CIDS);
-        rnd.forEach(cid -> list.add(new CidEntry("AUTO-" + cid, cid)));
+        cidStatistics.pickAutoCids(autoCount, staticCids)
+            .forEach(cid -> list.add(new CidEntry(CompactLinks.AUTO_LABEL_PREFIX + cid, cid)));
         return list;
     }
 
-    public static record CidEntry(String label, int cid) {}
-    public static record AffiliateLink(String label, String url) {}
+    private static boolean isAutoCid(CidEntry entry) {
+        return entry.label().startsWith(CompactLinks.AUTO_LABEL_PREFIX);
+    }
 
-    public static class LinkInfo {
-        private final String label;
-        private final int cid;
+    // 변환 한 건의 CID 조회 상태. 빠른 모드처럼 여러 차례로 나눠 조회해도 최저가/진행율/마감을 공유
+    private final class CidRun {
         private final String url;
-        private final double price;
-        private final boolean soldOut;
-        private final String hotel;
-
-        public LinkInfo(String label, int cid, String url, double price, boolean soldOut, String hotel) {
-            this.label = label;
-            this.cid = cid;
+        // SSE 이벤트 대상 (null 이면 전송하지 않음)
+        private final String channel;
+        private final String pacingKey;
+        private final ConversionExecutor.Scope scope;
+        private final CancelToken token;
+        private final CookieTemplate cookieTemplate;
+        private final ConversionKey conversionKey;
+        private final long deadlineNanos;
+        private final int progressBase;
+        private final AtomicReference<LinkInfo> cheapestSoFar = new AtomicReference<>();
+        private final AtomicInteger completedCount = new AtomicInteger();
+        private volatile int totalSteps;
+
+        private CidRun(String url, String channel, String pacingKey, ConversionExecutor.Scope scope, CancelToken token,
+                       CookieTemplate cookieTemplate, ConversionKey conversionKey, long deadlineNanos,
+                       int progressBase, int totalSteps) {
             this.url = url;
-            this.price = price;
-            this.soldOut = soldOut;
-            this.hotel = hotel;
+            this.channel = channel;
+            this.pacingKey = pacingKey;
+            this.scope = scope;
+            this.token = token;
+            this.cookieTemplate = cookieTemplate;
+            this.conversionKey = conversionKey;
+            this.deadlineNanos = deadlineNanos;
+            this.progressBase = progressBase;
+            this.totalSteps = totalSteps;
+        }
+
+        // 대기 구간은 스레드를 점유하지 않고, 실제 작업만 공용 실행기에서 실행
+        // CID마다 마감 시간을 두고, 넘기면 진행 중인 HTTP/HtmlUnit 작업까지 취소한 뒤 "TIMEOUT" 으로 보고
+        List<CompletableFuture<LinkInfo>> launch(List<CidEntry> entries) {
+            List<CompletableFuture<LinkInfo>> futures = new ArrayList<>();
+            for (CidEntry entry : entries) {
+                CancelToken cidToken = token.child();
+                FetchContext ctx = new FetchContext(pacingKey, scope.executor(), cidToken);
+                Timer.Sample cidTimer = metrics.start();
+                // 여러 노드가 있으면 공용 대기열로 맡겨 여유 있는 노드가 실행 (마감은 맡긴 쪽 기준)
+                CidTask task = new CidTask(url, entry.label(), entry.cid(), cookieTemplate.sessionCookies(),
+                    pacingKey, System.currentTimeMillis() + cidDeadlineMillis);
+                CompletableFuture<LinkInfo> fetch = clusterCoordinator
+                    .dispatch(task, () -> scope.limit(cidToken, () -> fetchSequentiallyWithSession(url, entry, cookieTemplate, ctx)))
+                    .orTimeout(cidDeadlineMillis, TimeUnit.MILLISECONDS);
+                // 변환이 취소되면(연결 종료/전체 마감) 남은 CID를 즉시 시간 초과로 마무리
+                CancelToken.Registration finishOnCancel = token.onCancel(
+                    () -> fetch.completeExceptionally(new CancellationException(token.reason())));
+                fetch.whenComplete((result, e) -> {
+                    finishOnCancel.close();
+                    if (e != null) {
+                        cidToken.cancel(isTimeout(e) ? "CID 마감 초과" : "CID 실패");
+                    }
+                });
+
+                futures.add(fetch
+                    .thenApply(result -> {
+                        // 성공한 결과만 캐시
+                        conversionResultCache.putResult(conversionKey, result);
+                        return result;
+                    })
+                    .exceptionally(e -> {
+                        String modUrl = url.replaceAll("cid=-?\\d+", "cid=" + entry.cid());
+                        if (isTimeout(e)) {
+                            log.warn("✗ 시간 초과 label={} cid={}", entry.label(), entry.cid());
+                            return new LinkInfo(entry.label(), entry.cid(), modUrl, 0, false, null, LinkStatus.TIMEOUT);
+                        }
+                        if (isBusy(e)) {
+                            log.info("✗ 업스트림 제한으로 건너뜀 label={} cid={}", entry.label(), entry.cid());
+                        } else {
+                            log.warn("✗ 실패 label={} cid={} error={}", entry.label(), entry.cid(), rootMessage(e));
+                        }
+                        return new LinkInfo(entry.label(), entry.cid(), modUrl, 0, true, null, LinkStatus.FAILED);
+                    })
+                    .thenApply(result -> {
+                        metrics.recordCid(cidTimer, entry.label(), result.getStatus());
+
+                        // 완료된 CID 결과와 현재까지의 최저가를 바로 전송
+                        sendResult(channel, result, updateCheapest(cheapestSoFar, result));
+                        sendProgress(channel, progressBase + completedCount.incrementAndGet(), totalSteps);
+                        return result;
+                    }));
+            }
+            return futures;
+        }
+
+        // 모든 작업 완료 대기 (변환 전체 시간 예산의 남은 시간만큼)
+        List<LinkInfo> await(List<CompletableFuture<LinkInfo>> futures) throws InterruptedException {
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                log.warn("변환 시간 예산 초과 - 남은 CID 취소 budgetMs={}", conversionBudgetMillis);
+                token.cancel("변환 마감 초과");
+            } catch (ExecutionException e) {
+                // 개별 CID 실패는 exceptionally 에서 처리됨
+            }
+            return futures.stream().map(CompletableFuture::join).toList();
+        }
+    }
+
+    // 배치의 호텔을 앞 순서부터 동시에 parallel 개까지 시작하고, 하나가 끝나면 다음 호텔을 이어서 시작
+    private final class HotelWindow {
+        private final List<String> urls;
+        private final List<String> channels;
+        private final String sessionId;
+        private final Map<String, String> cookies;
+        private final boolean fastMode;
+        private final ConversionExecutor.BatchScope batchScope;
+        private final AtomicInteger nextHotel = new AtomicInteger();
+        private final List<CompletableFuture<ConversionOutcome>> hotels = new ArrayList<>();
+
+        private HotelWindow(List<String> urls, List<String> channels, String sessionId, Map<String, String> cookies,
+                            boolean fastMode, ConversionExecutor.BatchScope batchScope) {
+            this.urls = urls;
+            this.channels = channels;
+            this.sessionId = sessionId;
+            this.cookies = cookies;
+            this.fastMode = fastMode;
+            this.batchScope = batchScope;
+            for (int i = 0; i < urls.size(); i++) {
+                hotels.add(new CompletableFuture<>());
+            }
         }
 
-        public String getLabel() {
-            return label;
+        void start(int parallel) {
+            for (int i = 0; i < parallel; i++) {
+                startNext();
+            }
         }
-        public int getCid() {
-            return cid;
+
+        private void startNext() {
+            int index = nextHotel.getAndIncrement();
+            if (index >= urls.size()) {
+                return;
+            }
+            String channel = channels.get(index);
+            CompletableFuture
+                .supplyAsync(() -> batchSessions.containsKey(sessionId)
+                    ? processConversion(urls.get(index), channel, cookies, fastMode, batchScope.lane(index))
+                    : CompletableFuture.<ConversionOutcome>completedFuture(null), conversionExecutor.executor())
+                .thenCompose(outcome -> outcome)
+                .exceptionally(e -> {
+                    sendError(channel, "처리 중 오류가 발생했습니다: " + rootMessage(e));
+                    return null;
+                })
+                .thenAccept(outcome -> {
+                    hotels.get(index).complete(outcome);
+                    startNext();
+                });
         }
-        public String getUrl() {
-            return url;
+    }
+
+    // 다른 노드가 맡긴 작업 하나의 호출 범위와 이 노드에서 진행 중인 CID 수 (clusterScopes.compute 안에서만 변경)
+    private static final class ClusterScope {
+        private final ConversionExecutor.Scope scope;
+        private int tasks;
+
+        private ClusterScope(ConversionExecutor.Scope scope) {
+            this.scope = scope;
         }
-        public double getPrice() {
-            return price;
+    }
+
+    // 배치 변환의 호텔 하나 (sessionId: 배치 SSE 세션, index: 요청 URL 순번)
+    // date 는 날짜 범위 조회의 체크인 (배치는 null)
+    private record BatchChannel(String sessionId, int index, String date) {}
+
+    // 압축 전송 형식의 URL 차이 기준: 단일/날짜 범위는 요청 URL 하나, 배치는 호텔별 요청 URL
+    private record CompactWire(String url, List<String> hotelUrls) {
+        String base(int hotel) {
+            return hotelUrls != null && hotel < hotelUrls.size() ? hotelUrls.get(hotel) : url;
         }
-        public boolean isSoldOut() {
-            return soldOut;
+    }
+
+    // 정적 정보의 버전: 고정 CID 와 제휴 링크 내용의 해시 (목록이 바뀌어 배포되면 클라이언트가 다시 받음)
+    private static String metaVersion() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            STATIC_CIDS.forEach(entry -> digest.update((entry.cid() + "=" + entry.label() + "\n").getBytes(StandardCharsets.UTF_8)));
+            AFFILIATES.forEach(link -> digest.update((link.label() + "=" + link.url() + "\n").getBytes(StandardCharsets.UTF_8)));
+            Arrays.stream(LinkStatus.values()).forEach(status -> digest.update(status.name().getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        public String getHotel() {
-            return hotel;
+    }
+
+    // 다중 통화 변환 요청: 변환 시작 시점의 환율표 하나로 모든 가격을 계산
+    private record CurrencyRequest(FxRates fxRates, String from, List<String> currencies) {
+        Map<String, Double> convert(double price) {
+            return fxRates.convertAll(price, from, currencies);
         }
+
+        // from 1 단위당 요청 통화 금액
+        Map<String, Double> rates() {
+            Map<String, Double> rates = new LinkedHashMap<>();
+            currencies.forEach(currency -> rates.put(currency, fxRates.rate(from, currency)));
+            return rates;
+        }
+    }
+
+    // 진행 중 변환의 취소 토큰과 이를 보고 있는 SSE 세션 수
+    private static final class ConversionHandle {
+        private final CancelToken token = new CancelToken();
+        private final AtomicInteger watchers = new AtomicInteger(1);
     }
+
 }
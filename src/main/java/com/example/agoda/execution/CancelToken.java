@@ -0,0 +1,95 @@
+package com.example.agoda.execution;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 협력형 취소 토큰.
+ *
+ * 진행 중인 업스트림 작업은 취소 훅(HTTP future 취소, 스레드 인터럽트 등)을 등록해 두고,
+ * 단계 사이에서는 throwIfCancelled() 로 남은 작업을 건너뛴다.
+ * 변환 토큰의 child() 로 CID 토큰을 만들면 변환 취소가 모든 CID 에 전파된다.
+ */
+public final class CancelToken {
+
+    private final List<Runnable> hooks = new CopyOnWriteArrayList<>();
+    private final List<CancelToken> children = new CopyOnWriteArrayList<>();
+    private volatile String reason;
+
+    public CancelToken child() {
+        CancelToken child = new CancelToken();
+        children.add(child);
+        if (reason != null) {
+            child.cancel(reason);
+        }
+        return child;
+    }
+
+    public void cancel(String reason) {
+        synchronized (this) {
+            if (this.reason != null) {
+                return;
+            }
+            this.reason = reason;
+        }
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                // 취소 훅 실패는 무시
+            }
+        }
+        hooks.clear();
+        for (CancelToken child : children) {
+            child.cancel(reason);
+        }
+    }
+
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    public void throwIfCancelled() {
+        if (reason != null) {
+            throw new CancellationException(reason);
+        }
+    }
+
+    /**
+     * 취소 시 실행할 훅을 등록한다. 이미 취소되었으면 바로 실행한다.
+     * 작업이 끝나면 반환된 Registration 을 닫아 훅을 해제해야 한다.
+     */
+    public Registration onCancel(Runnable hook) {
+        hooks.add(hook);
+        if (reason != null && hooks.remove(hook)) {
+            hook.run();
+        }
+        return () -> hooks.remove(hook);
+    }
+
+    /**
+     * 현재 스레드의 블로킹 작업(소켓 I/O 등)을 취소 시 인터럽트하도록 등록한다.
+     */
+    public Registration interruptOnCancel() {
+        Thread current = Thread.currentThread();
+        Registration registration = onCancel(current::interrupt);
+        return () -> {
+            registration.close();
+            if (isCancelled()) {
+                // 재사용되는 풀 스레드에 인터럽트 상태가 남지 않도록 정리
+                Thread.interrupted();
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
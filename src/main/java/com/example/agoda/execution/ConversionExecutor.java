@@ -0,0 +1,353 @@
+package com.example.agoda.execution;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 애플리케이션 공용 실행 계층.
+ *
+ * 요청마다 스레드 풀을 만들지 않고 하나의 실행기(가상 스레드 또는 고정 크기 풀)를 공유한다.
+ * 동시 변환 수는 입장 제어로 제한하고(초과분은 대기열, 대기열도 가득 차면 거절),
+ * 업스트림 호출은 전역 상한과 변환별 상한을 모두 지키도록 Scope 를 통해 실행한다.
+ * 전역 상한은 UpstreamGuard 가 응답에 따라 조절하고(AIMD), 차단 회로가 열려 있으면 호출하지 않고 바로 실패한다.
+ * 배치 변환은 호텔마다 lane 을 두고 하나의 상한을 호텔 간 라운드로빈으로 나눠 쓴다.
+ * 변환 한 건은 끝날 때까지 실행기 스레드 하나를 붙잡으므로, 배치가 동시에 진행하는 호텔 수는 hotelLimit 으로 제한한다.
+ */
+@Component
+public class ConversionExecutor {
+
+    public enum Admission { STARTED, QUEUED, REJECTED }
+
+    // 단일 변환 Scope 의 lane
+    private static final Object SINGLE_LANE = new Object();
+
+    private final boolean virtualThreads;
+    private final int maxConversions;
+    private final int maxQueued;
+    private final int perConversionInflight;
+    private final int batchInflight;
+    private final int batchHotels;
+    private final int globalInflight;
+
+    private final ExecutorService executor;
+    private final UpstreamGuard upstreamGuard;
+
+    private final Deque<Ticket> queue = new ArrayDeque<>();
+    private int running;
+
+    private final AtomicInteger inflightCalls = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong queuedTotal = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong cancelledWaits = new AtomicLong();
+
+    public ConversionExecutor(
+            UpstreamGuard upstreamGuard,
+            @Value("${agoda.executor.virtual-threads:true}") boolean virtualThreads,
+            @Value("${agoda.executor.pool-size:32}") int poolSize,
+            @Value("${agoda.executor.max-inflight-calls:16}") int globalInflight,
+            @Value("${agoda.executor.per-conversion-inflight:8}") int perConversionInflight,
+            @Value("${agoda.executor.batch-inflight:12}") int batchInflight,
+            @Value("${agoda.executor.batch-hotels:4}") int batchHotels,
+            @Value("${agoda.executor.max-conversions:4}") int maxConversions,
+            @Value("${agoda.executor.max-queued:20}") int maxQueued) {
+        this.virtualThreads = virtualThreads;
+        this.maxConversions = Math.max(1, maxConversions);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.perConversionInflight = Math.max(1, perConversionInflight);
+        this.batchInflight = Math.max(1, batchInflight);
+        this.globalInflight = Math.max(1, globalInflight);
+        // 고정 풀이면 입장한 변환들이 붙잡는 스레드가 풀의 절반을 넘지 않도록 (나머지는 호출 허가 대기와 응답 처리용)
+        this.batchHotels = virtualThreads
+            ? Math.max(1, batchHotels)
+            : Math.max(1, Math.min(batchHotels, poolSize / 2 / this.maxConversions));
+        this.upstreamGuard = upstreamGuard;
+        this.executor = virtualThreads
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cid-", 0).factory())
+            : Executors.newFixedThreadPool(Math.max(1, poolSize), Thread.ofPlatform().name("cid-", 0).daemon().factory());
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * 변환 작업 입장 요청.
+     * 바로 시작하면 STARTED, 대기열에 들어가면 QUEUED(이후 onPosition 으로 순번 통지), 둘 다 불가하면 REJECTED.
+     */
+    public Admission submitConversion(Runnable work, IntConsumer onPosition) {
+        Ticket ticket = new Ticket(work, onPosition);
+        int position;
+        synchronized (queue) {
+            if (running < maxConversions) {
+                running++;
+                admitted.incrementAndGet();
+                start(ticket);
+                return Admission.STARTED;
+            }
+            if (queue.size() >= maxQueued) {
+                rejected.incrementAndGet();
+                return Admission.REJECTED;
+            }
+            queue.addLast(ticket);
+            queuedTotal.incrementAndGet();
+            position = queue.size();
+        }
+        onPosition.accept(position);
+        return Admission.QUEUED;
+    }
+
+    /**
+     * 변환 한 건의 업스트림 호출 범위. 변환별 상한과 전역 상한을 함께 적용한다.
+     */
+    public Scope openScope() {
+        return new Scope(new FairGate(perConversionInflight), SINGLE_LANE);
+    }
+
+    /**
+     * 배치 변환의 업스트림 호출 범위. lane(호텔)별 Scope 가 배치 상한 하나를 라운드로빈으로 공유한다.
+     */
+    public BatchScope openBatchScope() {
+        return new BatchScope(new FairGate(batchInflight));
+    }
+
+    public int runningConversions() {
+        synchronized (queue) {
+            return running;
+        }
+    }
+
+    public int queuedConversions() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public int inflightCalls() {
+        return inflightCalls.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", virtualThreads);
+        synchronized (queue) {
+            stats.put("runningConversions", running);
+            stats.put("queuedConversions", queue.size());
+        }
+        stats.put("maxConversions", maxConversions);
+        stats.put("maxQueued", maxQueued);
+        stats.put("inflightCalls", inflightCalls.get());
+        stats.put("globalInflightLimit", upstreamGuard.stats().get("limit"));
+        stats.put("maxInflightLimit", globalInflight);
+        stats.put("perConversionInflightLimit", perConversionInflight);
+        stats.put("batchInflightLimit", batchInflight);
+        stats.put("batchHotelLimit", batchHotels);
+        stats.put("admitted", admitted.get());
+        stats.put("queuedTotal", queuedTotal.get());
+        stats.put("rejected", rejected.get());
+        stats.put("cancelledWaits", cancelledWaits.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void start(Ticket ticket) {
+        executor.execute(() -> {
+            try {
+                ticket.work().run();
+            } finally {
+                finish();
+            }
+        });
+    }
+
+    private void finish() {
+        List<Ticket> waiting;
+        synchronized (queue) {
+            Ticket next = queue.pollFirst();
+            if (next == null) {
+                running--;
+                return;
+            }
+            admitted.incrementAndGet();
+            start(next);
+            waiting = new ArrayList<>(queue);
+        }
+        for (int i = 0; i < waiting.size(); i++) {
+            waiting.get(i).onPosition().accept(i + 1);
+        }
+    }
+
+    public final class Scope {
+        private final FairGate localPermits;
+        private final Object lane;
+
+        private Scope(FairGate localPermits, Object lane) {
+            this.localPermits = localPermits;
+            this.lane = lane;
+        }
+
+        public ExecutorService executor() {
+            return executor;
+        }
+
+        /**
+         * 변환별(배치면 lane 별 차례)·전역 허가를 얻은 뒤 call 을 실행하고, call 의 future 가 끝날 때 허가를 반납한다.
+         * 변환별 허가는 스레드 없이 기다리고, 전역 허가 대기는 실행기 스레드(가상 스레드 모드에서는 가상 스레드)에서 이뤄진다.
+         * 차단 회로가 열려 있으면 UpstreamBusyException 으로 끝난다.
+         * token 이 취소되면 변환별 허가 대기열에서 바로 빠지고, 허가를 받은 뒤라도 전역 허가를 얻기 전에 반납한다
+         * (CancellationException 으로 끝남).
+         */
+        public <T> CompletableFuture<T> limit(CancelToken token, Supplier<CompletableFuture<T>> call) {
+            CompletableFuture<Void> permit = localPermits.acquire(lane);
+            if (!permit.isDone()) {
+                CancelToken.Registration dropOnCancel = token.onCancel(() -> {
+                    if (localPermits.cancel(lane, permit, token.reason())) {
+                        cancelledWaits.incrementAndGet();
+                    }
+                });
+                permit.whenComplete((ignored, e) -> dropOnCancel.close());
+            }
+            return permit.thenApplyAsync(ignored -> {
+                if (token.isCancelled()) {
+                    cancelledWaits.incrementAndGet();
+                    localPermits.release();
+                    throw new CancellationException(token.reason());
+                }
+                try {
+                    upstreamGuard.acquire();
+                } catch (InterruptedException e) {
+                    localPermits.release();
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                } catch (UpstreamBusyException e) {
+                    localPermits.release();
+                    throw e;
+                }
+                inflightCalls.incrementAndGet();
+                return null;
+            }, executor).thenCompose(ignored -> {
+                CompletableFuture<T> result;
+                try {
+                    result = call.get();
+                } catch (RuntimeException e) {
+                    result = CompletableFuture.failedFuture(e);
+                }
+                return result.whenComplete((value, e) -> {
+                    inflightCalls.decrementAndGet();
+                    upstreamGuard.release();
+                    localPermits.release();
+                });
+            });
+        }
+    }
+
+    public final class BatchScope {
+        private final FairGate gate;
+
+        private BatchScope(FairGate gate) {
+            this.gate = gate;
+        }
+
+        public Scope lane(Object key) {
+            return new Scope(gate, key);
+        }
+
+        /**
+         * 배치가 동시에 진행할 호텔 수 (requested 와 설정 상한 중 작은 값).
+         */
+        public int hotelLimit(int requested) {
+            return Math.max(1, Math.min(requested, batchHotels));
+        }
+    }
+
+    /**
+     * lane 별 대기열을 라운드로빈으로 돌며 허가를 넘겨주는 비차단 세마포어.
+     * lane 이 하나면 공정(FIFO) 세마포어와 같다.
+     */
+    private static final class FairGate {
+        private final int limit;
+        private int inUse;
+        private final Map<Object, Deque<CompletableFuture<Void>>> waiting = new LinkedHashMap<>();
+        private final Deque<Object> turns = new ArrayDeque<>();
+
+        private FairGate(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized CompletableFuture<Void> acquire(Object lane) {
+            if (inUse < limit && turns.isEmpty()) {
+                inUse++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> ticket = new CompletableFuture<>();
+            Deque<CompletableFuture<Void>> queue = waiting.get(lane);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                waiting.put(lane, queue);
+                turns.addLast(lane);
+            }
+            queue.addLast(ticket);
+            return ticket;
+        }
+
+        void release() {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                Object lane = turns.pollFirst();
+                if (lane == null) {
+                    inUse--;
+                    return;
+                }
+                Deque<CompletableFuture<Void>> queue = waiting.get(lane);
+                next = queue.pollFirst();
+                if (queue.isEmpty()) {
+                    waiting.remove(lane);
+                } else {
+                    turns.addLast(lane);
+                }
+            }
+            // 허가를 그대로 다음 차례에 넘김
+            next.complete(null);
+        }
+
+        // 아직 허가를 받지 못한 ticket 을 대기열에서 빼고 취소로 끝냄 (이미 허가를 받았으면 false)
+        boolean cancel(Object lane, CompletableFuture<Void> ticket, String reason) {
+            synchronized (this) {
+                Deque<CompletableFuture<Void>> queue = waiting.get(lane);
+                if (queue == null || !queue.remove(ticket)) {
+                    return false;
+                }
+                if (queue.isEmpty()) {
+                    waiting.remove(lane);
+                    turns.remove(lane);
+                }
+            }
+            ticket.completeExceptionally(new CancellationException(reason));
+            return true;
+        }
+    }
+
+    private record Ticket(Runnable work, IntConsumer onPosition) {}
+}
@@ -0,0 +1,9 @@
+package com.example.agoda.execution;
+
+import java.util.concurrent.Executor;
+
+/**
+ * CID 하나를 수집하는 동안 함께 전달되는 실행 정보.
+ * sessionId 는 요청 간격 조절 단위, executor 는 블로킹 작업 실행기, token 은 마감/연결 종료 시 취소용이다.
+ */
+public record FetchContext(String sessionId, Executor executor, CancelToken token) {}
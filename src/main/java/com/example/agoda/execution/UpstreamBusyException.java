@@ -0,0 +1,18 @@
+package com.example.agoda.execution;
+
+/**
+ * 업스트림 차단 회로가 열려 호출하지 않고 바로 실패시킬 때. retryAfterMillis 뒤에 다시 시도할 수 있다.
+ */
+public class UpstreamBusyException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public UpstreamBusyException(long retryAfterMillis) {
+        super("아고다 응답 제한으로 잠시 요청을 멈췄습니다.");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long retryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,425 @@
+package com.example.agoda.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 아고다 호출 보호 장치: 차단 회로, 적응형 동시 호출 상한(AIMD), 공용 재시도 예산.
+ *
+ * 업스트림 응답(상태 코드, 지연 시간)을 최근 window-size 건으로 모아, min-calls 이상에서 실패율이 failure-rate 이상이거나
+ * slow-call-ms 를 넘은 느린 호출 비율이 slow-rate 이상이면 회로를 연다. 열린 동안(open-seconds)은 호출하지 않고
+ * UpstreamBusyException 으로 바로 실패시키고, 그 뒤 half-open-calls 건만 시험 호출해 모두 성공하면 닫고 하나라도 실패하면 다시 연다.
+ * 동시 호출 상한은 max-inflight-calls 에서 시작해 정상 응답마다 1/상한 씩 늘리고, 제한(429/403/503)·시간 초과·느린 응답이면
+ * decrease-ratio 를 곱해 줄인다 (cooldown 안의 연속 신호는 한 번만 반영, min-limit 아래로는 줄이지 않음).
+ * 재시도는 CID 조회마다 retry-ratio 만큼 쌓이는 공용 예산(최대 retry-burst)에서 한 건씩 꺼내 쓰고,
+ * 대기 시간은 retry-base-ms 부터 두 배씩(최대 retry-max-ms) 늘린 값의 절반 + 무작위 절반이다.
+ */
+@Component
+public class UpstreamGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamGuard.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * 호출 결과 분류. THROTTLED 는 아고다의 제한 응답, TIMEOUT 은 응답 없음, ERROR 는 그 밖의 실패.
+     */
+    public enum Outcome { SUCCESS, THROTTLED, TIMEOUT, ERROR }
+
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRate;
+    private final long slowCallNanos;
+    private final double slowRate;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double decreaseRatio;
+    private final long decreaseCooldownNanos;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+    private final double retryRatio;
+    private final double retryBurst;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition permitsChanged = lock.newCondition();
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    // 최근 호출 결과 (원형 버퍼)
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int recorded;
+    private int next;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private long halfOpenedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private double limit;
+    private int inflight;
+    private long lastDecreaseAt;
+    private double retryTokens;
+
+    // 지표
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong slowCalls = new AtomicLong();
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong limitDecreases = new AtomicLong();
+    private final AtomicLong retriesGranted = new AtomicLong();
+    private final AtomicLong retriesDenied = new AtomicLong();
+
+    public UpstreamGuard(
+            @Value("${agoda.guard.window-size:50}") int windowSize,
+            @Value("${agoda.guard.min-calls:20}") int minCalls,
+            @Value("${agoda.guard.failure-rate:0.5}") double failureRate,
+            @Value("${agoda.guard.slow-call-ms:5000}") long slowCallMillis,
+            @Value("${agoda.guard.slow-rate:0.8}") double slowRate,
+            @Value("${agoda.guard.open-seconds:15}") long openSeconds,
+            @Value("${agoda.guard.half-open-calls:3}") int halfOpenCalls,
+            @Value("${agoda.guard.min-limit:2}") int minLimit,
+            @Value("${agoda.executor.max-inflight-calls:16}") int maxLimit,
+            @Value("${agoda.guard.decrease-ratio:0.5}") double decreaseRatio,
+            @Value("${agoda.guard.decrease-cooldown-ms:1000}") long decreaseCooldownMillis,
+            @Value("${agoda.guard.retry-base-ms:500}") long retryBaseMillis,
+            @Value("${agoda.guard.retry-max-ms:8000}") long retryMaxMillis,
+            @Value("${agoda.guard.retry-ratio:0.2}") double retryRatio,
+            @Value("${agoda.guard.retry-burst:10}") int retryBurst) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minCalls = Math.max(1, Math.min(minCalls, this.windowSize));
+        this.failureRate = failureRate;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, slowCallMillis));
+        this.slowRate = slowRate;
+        this.openMillis = TimeUnit.SECONDS.toMillis(Math.max(1, openSeconds));
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.max(1, Math.min(minLimit, this.maxLimit));
+        this.decreaseRatio = Math.min(0.95, Math.max(0.05, decreaseRatio));
+        this.decreaseCooldownNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, decreaseCooldownMillis));
+        this.retryBaseMillis = Math.max(1, retryBaseMillis);
+        this.retryMaxMillis = Math.max(this.retryBaseMillis, retryMaxMillis);
+        this.retryRatio = Math.max(0, retryRatio);
+        this.retryBurst = Math.max(0, retryBurst);
+        this.failed = new boolean[this.windowSize];
+        this.slow = new boolean[this.windowSize];
+        this.limit = this.maxLimit;
+        this.retryTokens = this.retryBurst;
+    }
+
+    /**
+     * 업스트림 호출 허가. 동시 호출이 현재 상한에 닿아 있으면 기다리고,
+     * 회로가 열려 있거나 시험 호출 자리가 없으면 UpstreamBusyException.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                refreshState();
+                if (state == State.OPEN) {
+                    shortCircuited.incrementAndGet();
+                    throw new UpstreamBusyException(retryAfterMillis());
+                }
+                if (state == State.HALF_OPEN) {
+                    if (probesStarted >= halfOpenCalls) {
+                        shortCircuited.incrementAndGet();
+                        throw new UpstreamBusyException(retryAfterMillis());
+                    }
+                    probesStarted++;
+                    inflight++;
+                    return;
+                }
+                if (inflight < currentLimit()) {
+                    inflight++;
+                    return;
+                }
+                // 허가 반납/상한 증가/회로 상태 변화 때 깨어나고, 시험 단계로 넘어갈 시각도 확인하도록 제한 시간을 둠
+                permitsChanged.await(openMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inflight--;
+            permitsChanged.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 회로가 열려 있으면 다시 닫힐 때까지 남은 시간(ms), 아니면 0. 호출 전 빠른 거절용.
+     */
+    public long busyFor() {
+        lock.lock();
+        try {
+            refreshState();
+            return state == State.OPEN ? retryAfterMillis() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            refreshState();
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * HTTP 응답 상태 코드로 호출 결과 기록 (429/403/503 은 제한, 그 밖의 5xx 는 오류)
+     */
+    public void recordStatus(int status, long elapsedNanos) {
+        Outcome outcome = status == 429 || status == 403 || status == 503 ? Outcome.THROTTLED
+            : status >= 500 ? Outcome.ERROR
+            : Outcome.SUCCESS;
+        record(outcome, elapsedNanos);
+    }
+
+    public void record(Outcome outcome, long elapsedNanos) {
+        calls.incrementAndGet();
+        boolean isSlow = elapsedNanos >= slowCallNanos;
+        switch (outcome) {
+            case THROTTLED -> throttled.incrementAndGet();
+            case TIMEOUT -> timeouts.incrementAndGet();
+            case ERROR -> errors.incrementAndGet();
+            case SUCCESS -> {
+                // 정상
+            }
+        }
+        if (isSlow) {
+            slowCalls.incrementAndGet();
+        }
+        boolean failure = outcome != Outcome.SUCCESS;
+        State changed = null;
+        lock.lock();
+        try {
+            refreshState();
+            failed[next] = failure;
+            slow[next] = isSlow;
+            next = (next + 1) % windowSize;
+            recorded = Math.min(windowSize, recorded + 1);
+
+            // 적응형 상한: 정상이면 조금씩 늘리고, 제한/시간 초과/느린 응답이면 한 번에 줄임
+            if (outcome == Outcome.THROTTLED || outcome == Outcome.TIMEOUT || isSlow) {
+                long now = System.nanoTime();
+                if (now - lastDecreaseAt >= decreaseCooldownNanos) {
+                    lastDecreaseAt = now;
+                    limit = Math.max(minLimit, limit * decreaseRatio);
+                    limitDecreases.incrementAndGet();
+                }
+            } else if (!failure) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+                permitsChanged.signal();
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (failure) {
+                    changed = open();
+                } else if (++probesSucceeded >= halfOpenCalls) {
+                    changed = close();
+                }
+            } else if (state == State.CLOSED && shouldTrip()) {
+                changed = open();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (changed != null) {
+            notifyListeners(changed);
+        }
+    }
+
+    // 시간 초과/연결 실패 등 응답을 받지 못한 호출
+    public void recordFailure(Throwable e, long elapsedNanos) {
+        boolean timeout = e instanceof HttpTimeoutException || e instanceof SocketTimeoutException
+            || e instanceof TimeoutException;
+        record(timeout ? Outcome.TIMEOUT : Outcome.ERROR, elapsedNanos);
+    }
+
+    /**
+     * CID 조회 한 건 시작 (재시도 예산을 retry-ratio 만큼 채움)
+     */
+    public void onRequest() {
+        lock.lock();
+        try {
+            retryTokens = Math.min(retryBurst, retryTokens + retryRatio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 재시도 한 건을 예산에서 꺼냄. 회로가 닫혀 있지 않거나 예산이 없으면 false.
+     */
+    public boolean tryRetry() {
+        lock.lock();
+        try {
+            refreshState();
+            if (state == State.CLOSED && retryTokens >= 1) {
+                retryTokens -= 1;
+                retriesGranted.incrementAndGet();
+                return true;
+            }
+            retriesDenied.incrementAndGet();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * attempt 번째 시도가 실패한 뒤 기다릴 시간 (지수 증가 + 지터)
+     */
+    public long backoffMillis(int attempt) {
+        long ceiling = retryBaseMillis << Math.min(20, Math.max(0, attempt - 1));
+        ceiling = Math.min(retryMaxMillis, ceiling);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    // 회로 상태가 바뀔 때 (OPEN/HALF_OPEN/CLOSED)
+    public void onStateChange(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            refreshState();
+            int failures = 0;
+            int slowCount = 0;
+            for (int i = 0; i < recorded; i++) {
+                failures += failed[i] ? 1 : 0;
+                slowCount += slow[i] ? 1 : 0;
+            }
+            stats.put("state", state);
+            stats.put("retryAfterMs", state == State.OPEN ? retryAfterMillis() : 0);
+            stats.put("windowCalls", recorded);
+            stats.put("windowFailureRate", recorded == 0 ? 0.0 : (double) failures / recorded);
+            stats.put("windowSlowRate", recorded == 0 ? 0.0 : (double) slowCount / recorded);
+            stats.put("limit", currentLimit());
+            stats.put("minLimit", minLimit);
+            stats.put("maxLimit", maxLimit);
+            stats.put("inflight", inflight);
+            stats.put("retryTokens", Math.floor(retryTokens * 100) / 100);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("calls", calls.get());
+        stats.put("throttled", throttled.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("errors", errors.get());
+        stats.put("slowCalls", slowCalls.get());
+        stats.put("trips", trips.get());
+        stats.put("shortCircuited", shortCircuited.get());
+        stats.put("limitDecreases", limitDecreases.get());
+        stats.put("retriesGranted", retriesGranted.get());
+        stats.put("retriesDenied", retriesDenied.get());
+        return stats;
+    }
+
+    // 잠금 안에서 호출. 열린 시간이 지났으면 시험 호출 단계로
+    private void refreshState() {
+        long now = System.currentTimeMillis();
+        if (state == State.HALF_OPEN && now - halfOpenedAt >= openMillis) {
+            // 시험 호출이 결과 없이 끝났으면(취소 등) 시험 자리를 다시 줌
+            halfOpenedAt = now;
+            probesStarted = 0;
+            probesSucceeded = 0;
+            permitsChanged.signalAll();
+            return;
+        }
+        if (state == State.OPEN && now - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            halfOpenedAt = now;
+            probesStarted = 0;
+            probesSucceeded = 0;
+            log.info("업스트림 차단 회로 시험 단계 - 시험 호출 {}건", halfOpenCalls);
+            permitsChanged.signalAll();
+            // 알림은 잠금 밖에서 (리스너가 SSE 전송처럼 느린 일을 할 수 있음)
+            Thread.ofVirtual().start(() -> notifyListeners(State.HALF_OPEN));
+        }
+    }
+
+    private boolean shouldTrip() {
+        if (recorded < minCalls) {
+            return false;
+        }
+        int failures = 0;
+        int slowCount = 0;
+        for (int i = 0; i < recorded; i++) {
+            failures += failed[i] ? 1 : 0;
+            slowCount += slow[i] ? 1 : 0;
+        }
+        return (double) failures / recorded >= failureRate || (double) slowCount / recorded >= slowRate;
+    }
+
+    private State open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        trips.incrementAndGet();
+        // 다시 닫힐 때는 낮은 상한에서 시작
+        limit = minLimit;
+        permitsChanged.signalAll();
+        log.warn("업스트림 차단 회로 열림 - {}초 동안 호출 중단 (최근 {}건 기준)", openMillis / 1000, recorded);
+        return State.OPEN;
+    }
+
+    private State close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        permitsChanged.signalAll();
+        log.info("업스트림 차단 회로 닫힘 - 상한 {} 에서 다시 시작", currentLimit());
+        return State.CLOSED;
+    }
+
+    private int currentLimit() {
+        return Math.max(minLimit, (int) limit);
+    }
+
+    private long retryAfterMillis() {
+        return Math.max(0, openMillis - (System.currentTimeMillis() - openedAt));
+    }
+
+    private void notifyListeners(State changed) {
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(changed);
+            } catch (RuntimeException e) {
+                log.warn("차단 회로 상태 알림 실패: {}", e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.agoda.fx;
+
+import com.example.agoda.upstream.UpstreamTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 다중 통화 변환용 환율표.
+ *
+ * 크롤링은 항상 KRW 로 하고(cr-currency-code 헤더, CurLabel 쿠키), 요청한 통화 가격은 이 표로 계산한다.
+ * agoda.fx.source 의 로컬 파일 경로나 http(s) 주소에서 {"base": "KRW", "rates": {"USD": 0.00072, ...}} 형식
+ * (base_code / conversion_rates 키도 허용)을 읽고 refresh-seconds 마다 다시 읽는다.
+ * 읽기에 실패하면 마지막으로 읽은 표를 계속 쓰되, max-age-seconds 보다 오래된 표는 쓰지 않는다.
+ */
+@Component
+public class FxRateTable {
+
+    private static final Logger log = LoggerFactory.getLogger(FxRateTable.class);
+
+    private final UpstreamTransport upstreamTransport;
+    private final String priceCurrency;
+    private final String source;
+    private final long refreshSeconds;
+    private final long maxAgeMillis;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile FxRates current;
+    private ScheduledExecutorService refresher;
+
+    // 지표
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile String lastError;
+
+    public FxRateTable(
+            UpstreamTransport upstreamTransport,
+            @Value("${agoda.fx.price-currency:KRW}") String priceCurrency,
+            @Value("${agoda.fx.source:}") String source,
+            @Value("${agoda.fx.refresh-seconds:3600}") long refreshSeconds,
+            @Value("${agoda.fx.max-age-seconds:86400}") long maxAgeSeconds) {
+        this.upstreamTransport = upstreamTransport;
+        this.priceCurrency = priceCurrency.trim().toUpperCase(Locale.ROOT);
+        this.source = source == null ? "" : source.trim();
+        this.refreshSeconds = Math.max(60, refreshSeconds);
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(Math.max(1, maxAgeSeconds));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (source.isEmpty()) {
+            return;
+        }
+        // 기동 시 한 번은 바로 읽어 첫 요청부터 쓸 수 있도록
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fx-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 크롤링한 가격의 통화 (환율 변환의 출발 통화)
+     */
+    public String priceCurrency() {
+        return priceCurrency;
+    }
+
+    /**
+     * 쓸 수 있는 환율표 (설정이 없거나, 아직 못 읽었거나, max-age 보다 오래되면 빈 값)
+     */
+    public Optional<FxRates> snapshot() {
+        FxRates rates = current;
+        if (rates == null || System.currentTimeMillis() - rates.loadedAt() > maxAgeMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(rates);
+    }
+
+    /**
+     * 소스에서 환율표를 다시 읽는다. 실패하면 기존 표를 유지하고 false.
+     */
+    public boolean refresh() {
+        try {
+            FxRates rates = parse(read());
+            if (!rates.supports(priceCurrency)) {
+                throw new IOException("환율표에 가격 통화 " + priceCurrency + " 가 없습니다.");
+            }
+            current = rates;
+            loads.incrementAndGet();
+            lastError = null;
+            log.info("환율표 갱신 source={} base={} currencies={}", source, rates.base(), rates.rates().size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            lastError = e.toString();
+            log.warn("환율표를 읽지 못했습니다 source={}: {}", source, e.toString());
+            return false;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        FxRates rates = current;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("source", source.isEmpty() ? null : source);
+        stats.put("priceCurrency", priceCurrency);
+        stats.put("available", snapshot().isPresent());
+        stats.put("refreshSeconds", refreshSeconds);
+        stats.put("maxAgeSeconds", TimeUnit.MILLISECONDS.toSeconds(maxAgeMillis));
+        stats.put("loads", loads.get());
+        stats.put("failures", failures.get());
+        stats.put("lastError", lastError);
+        if (rates != null) {
+            stats.put("base", rates.base());
+            stats.put("ageSeconds", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - rates.loadedAt()));
+            Map<String, Double> perPrice = new TreeMap<>();
+            rates.rates().keySet().forEach(currency -> perPrice.put(currency, rates.rate(priceCurrency, currency)));
+            stats.put("ratesPer" + priceCurrency, perPrice);
+        }
+        return stats;
+    }
+
+    private JsonNode read() throws IOException {
+        if (source.startsWith("http://") || source.startsWith("https://")) {
+            HttpRequest request = upstreamTransport.request(source)
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(10))
+                .build();
+            try (UpstreamTransport.Response response = upstreamTransport.get(request)) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("HTTP " + response.statusCode());
+                }
+                return mapper.readTree(response.body());
+            }
+        }
+        try (InputStream in = Files.newInputStream(Path.of(source))) {
+            return mapper.readTree(in);
+        }
+    }
+
+    private FxRates parse(JsonNode root) throws IOException {
+        String base = firstText(root, "base", "base_code");
+        JsonNode ratesNode = root.has("rates") ? root.get("rates") : root.path("conversion_rates");
+        if (base == null || !ratesNode.isObject()) {
+            throw new IOException("환율표 형식 오류 (base, rates 필요)");
+        }
+        base = base.toUpperCase(Locale.ROOT);
+        Map<String, Double> rates = new TreeMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = ratesNode.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            double rate = entry.getValue().asDouble();
+            if (entry.getValue().isNumber() && rate > 0) {
+                rates.put(entry.getKey().toUpperCase(Locale.ROOT), rate);
+            }
+        }
+        rates.put(base, 1.0);
+        return new FxRates(base, Collections.unmodifiableMap(rates), System.currentTimeMillis(), source);
+    }
+
+    private static String firstText(JsonNode root, String... names) {
+        for (String name : names) {
+            if (root.path(name).isTextual()) {
+                return root.path(name).asText();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.agoda.fx;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 시점의 환율표 (불변). rates 는 표 기준 통화 1 단위당 각 통화 금액이며 기준 통화 자신은 1.
+ * 변환 한 건은 시작할 때 받은 스냅샷 하나로 끝까지 계산해 도중에 환율이 바뀌어도 결과가 섞이지 않는다.
+ */
+public record FxRates(String base, Map<String, Double> rates, long loadedAt, String source) {
+
+    public boolean supports(String currency) {
+        return rates.containsKey(currency);
+    }
+
+    /**
+     * from 통화 금액을 to 통화로 바꿔 통화 소수 자릿수(KRW/JPY 0, USD 2 등)로 반올림. 표에 없는 통화면 null.
+     */
+    public Double convert(double amount, String from, String to) {
+        Double fromRate = rates.get(from);
+        Double toRate = rates.get(to);
+        if (fromRate == null || toRate == null || fromRate <= 0) {
+            return null;
+        }
+        return round(amount / fromRate * toRate, to);
+    }
+
+    /**
+     * 금액 하나를 여러 통화로 (가격이 없으면 빈 맵)
+     */
+    public Map<String, Double> convertAll(double amount, String from, List<String> currencies) {
+        Map<String, Double> converted = new LinkedHashMap<>();
+        if (amount <= 0) {
+            return converted;
+        }
+        for (String currency : currencies) {
+            Double value = convert(amount, from, currency);
+            if (value != null) {
+                converted.put(currency, value);
+            }
+        }
+        return converted;
+    }
+
+    // from 1 단위가 to 로 얼마인지
+    public Double rate(String from, String to) {
+        Double fromRate = rates.get(from);
+        Double toRate = rates.get(to);
+        return fromRate == null || toRate == null || fromRate <= 0 ? null : toRate / fromRate;
+    }
+
+    private static double round(double value, String currency) {
+        int digits;
+        try {
+            digits = Math.max(0, Currency.getInstance(currency).getDefaultFractionDigits());
+        } catch (IllegalArgumentException e) {
+            digits = 2;
+        }
+        return BigDecimal.valueOf(value).setScale(digits, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.agoda.job;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 변환 작업 한 건.
+ *
+ * SSE 로 보낸 이벤트를 순번(SSE id)과 함께 보관해 다시 연결한 클라이언트에게 이어서 재생하고,
+ * 폴링용 현재 상태(진행률, CID별 결과, 완료 요약)를 이벤트에서 갱신한다.
+ * 진행률/대기열 이벤트는 호텔별 마지막 것만 남긴다. 기록은 작업 잠금 안에서 순번을 매겨 전송 대기열에 넣고,
+ * 전송은 잠금 밖에서 한 스레드씩 순번 순서대로 한다 (느린 SSE 연결이 기록/조회/저장 파일 정리를 막지 않도록).
+ * 재생(attach)도 같은 전송 잠금을 잡아 재생과 실시간 이벤트가 빠지거나 겹치지 않게 한다.
+ */
+public final class Job {
+
+    // 단일 변환은 호텔 번호 대신 이 값
+    private static final int SINGLE = -1;
+
+    private final String id;
+    private final String kind;
+    private final List<String> urls;
+    private final long createdAt;
+    private long updatedAt;
+    private JobState state = JobState.QUEUED;
+    private String error;
+    // 마지막 폴링 시각 (SSE 없이 폴링만 하는 클라이언트도 작업을 지켜보는 것으로 봄)
+    private volatile long polledAt;
+
+    private final List<Event> events = new ArrayList<>();
+    private long lastSeq;
+    private boolean truncated;
+
+    // 기록했지만 아직 보내지 않은 이벤트 (작업 잠금), 보내는 스레드 하나만 잡는 전송 잠금과 마지막으로 보낸 순번
+    private final ArrayDeque<Pending> outbox = new ArrayDeque<>();
+    private final ReentrantLock delivery = new ReentrantLock();
+    private volatile long deliveredSeq;
+
+    // 호텔별 진행률, CID별 마지막 결과, 현재까지 최저가, 호텔별 완료 요약
+    private final Map<Integer, Integer> progress = new TreeMap<>();
+    private final Map<String, JsonNode> results = new LinkedHashMap<>();
+    private final Map<Integer, JsonNode> cheapest = new TreeMap<>();
+    private final Map<Integer, JsonNode> summaries = new TreeMap<>();
+
+    Job(String id, String kind, List<String> urls, long createdAt) {
+        this.id = id;
+        this.kind = kind;
+        this.urls = List.copyOf(urls);
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    /**
+     * SSE 로 보낸 이벤트 한 건 (seq 는 작업 안에서 1부터 증가)
+     */
+    public record Event(long seq, JsonNode data) {
+        public String type() {
+            return data.path("type").asText();
+        }
+
+        int hotel() {
+            return data.path("hotel").asInt(SINGLE);
+        }
+
+        // 마지막 것만 의미 있는 이벤트
+        boolean transientEvent() {
+            String type = type();
+            return type.equals("progress") || type.equals("queued");
+        }
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String kind() {
+        return kind;
+    }
+
+    public List<String> urls() {
+        return urls;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    public synchronized JobState state() {
+        return state;
+    }
+
+    public synchronized long updatedAt() {
+        return updatedAt;
+    }
+
+    public synchronized String error() {
+        return error;
+    }
+
+    public void touch() {
+        polledAt = System.currentTimeMillis();
+    }
+
+    public long polledAt() {
+        return polledAt;
+    }
+
+    /**
+     * 이벤트를 기록하고 순번 순서대로 deliver 로 전달한다 (다른 스레드가 보내는 중이면 그 스레드가 이어서 보냄).
+     */
+    Event append(JsonNode data, long now, int maxEvents, Consumer<Event> deliver) {
+        Event event;
+        synchronized (this) {
+            event = new Event(++lastSeq, data);
+            add(event, maxEvents);
+            updatedAt = now;
+            outbox.add(new Pending(event, deliver));
+        }
+        drain();
+        return event;
+    }
+
+    // 저장 파일에서 불러온 이벤트 (순번 유지, 이미 보낸 것으로 봄)
+    synchronized void restore(Event event, int maxEvents) {
+        lastSeq = Math.max(lastSeq, event.seq());
+        deliveredSeq = lastSeq;
+        add(event, maxEvents);
+    }
+
+    /**
+     * 다른 노드가 매긴 순번 그대로 이벤트를 기록하고 deliver 로 전달한다. 이미 받은 순번이면 false.
+     */
+    boolean mirror(Event event, long now, int maxEvents, Consumer<Event> deliver) {
+        synchronized (this) {
+            if (event.seq() <= lastSeq) {
+                return false;
+            }
+            lastSeq = event.seq();
+            add(event, maxEvents);
+            updatedAt = now;
+            outbox.add(new Pending(event, deliver));
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * register 로 연결을 등록하고 afterSeq 이후 이미 보낸 이벤트를 재생한다.
+     * 전송 잠금 안에서 하므로 아직 보내지 않은 이벤트는 등록된 연결로 이어서 전달되어 빠지거나 겹치지 않는다.
+     * 작업이 끝났고 보낼 이벤트도 남지 않았으면 true (호출 측이 연결을 닫음).
+     */
+    public boolean attach(long afterSeq, Runnable register, Consumer<Event> replay) {
+        boolean settled;
+        delivery.lock();
+        try {
+            register.run();
+            List<Event> backlog;
+            synchronized (this) {
+                long upTo = deliveredSeq;
+                backlog = events.stream().filter(event -> event.seq() > afterSeq && event.seq() <= upTo).toList();
+                settled = state.isFinished() && outbox.isEmpty();
+            }
+            backlog.forEach(replay);
+        } finally {
+            delivery.unlock();
+        }
+        drain();
+        return settled;
+    }
+
+    // 대기 중인 이벤트를 순서대로 보냄. 다른 스레드가 보내는 중이면 그 스레드가 마저 보내고,
+    // 전달 중에 같은 스레드가 다시 기록하면(연결 종료 처리 등) 바깥 반복이 이어서 보냄
+    private void drain() {
+        while (!delivery.isHeldByCurrentThread() && delivery.tryLock()) {
+            try {
+                Pending next;
+                while ((next = nextPending()) != null) {
+                    deliveredSeq = next.event().seq();
+                    next.deliver().accept(next.event());
+                }
+            } finally {
+                delivery.unlock();
+            }
+            // 잠금을 놓기 직전에 들어온 이벤트가 남지 않도록
+            if (!hasPending()) {
+                return;
+            }
+        }
+    }
+
+    private synchronized Pending nextPending() {
+        return outbox.poll();
+    }
+
+    private synchronized boolean hasPending() {
+        return !outbox.isEmpty();
+    }
+
+    public synchronized List<Event> eventsAfter(long afterSeq) {
+        return events.stream().filter(event -> event.seq() > afterSeq).toList();
+    }
+
+    // 아직 끝나지 않았으면 상태를 바꾸고 true
+    synchronized boolean finish(JobState finalState, String message, long now) {
+        if (state.isFinished()) {
+            return false;
+        }
+        state = finalState;
+        error = message;
+        updatedAt = now;
+        return true;
+    }
+
+    /**
+     * 폴링 응답 (이벤트 목록 제외)
+     */
+    public synchronized Map<String, Object> view() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", id);
+        view.put("kind", kind);
+        view.put("state", state);
+        view.put("urls", urls);
+        view.put("createdAt", createdAt);
+        view.put("updatedAt", updatedAt);
+        view.put("lastEventId", lastSeq);
+        view.put("truncated", truncated);
+        // 배치/날짜 범위 조회는 호텔(날짜) 번호별
+        if (!kind.equals(JobRegistry.SINGLE)) {
+            view.put("progress", progress);
+            view.put("cheapest", cheapest);
+            view.put("hotels", summaries);
+        } else {
+            view.put("progress", progress.getOrDefault(SINGLE, 0));
+            view.put("cheapest", cheapest.get(SINGLE));
+        }
+        view.put("results", List.copyOf(results.values()));
+        view.put("result", summaries.get(SINGLE));
+        view.put("error", error);
+        return view;
+    }
+
+    private void add(Event event, int maxEvents) {
+        if (event.transientEvent()) {
+            events.removeIf(old -> old.transientEvent() && old.hotel() == event.hotel());
+        }
+        events.add(event);
+        while (events.size() > maxEvents) {
+            events.remove(0);
+            truncated = true;
+        }
+        apply(event);
+    }
+
+    // 이벤트로 폴링 상태 갱신 (hotel-* 은 배치의 호텔 하나, 번호 없는 complete/error 는 작업 전체)
+    private void apply(Event event) {
+        JsonNode data = event.data();
+        int hotel = event.hotel();
+        switch (event.type()) {
+            case "progress" -> {
+                progress.put(hotel, data.path("percentage").asInt());
+                running();
+            }
+            case "result" -> {
+                JsonNode item = data.path("item");
+                results.put(hotel + ":" + item.path("cid").asText(), withHotel(item, hotel));
+                if (!data.path("cheapest").isNull() && !data.path("cheapest").isMissingNode()) {
+                    cheapest.put(hotel, data.path("cheapest"));
+                }
+                running();
+            }
+            case "hotel-complete" -> summaries.put(hotel, data.path("result"));
+            case "hotel-error" -> summaries.put(hotel, data);
+            case "complete" -> {
+                summaries.put(SINGLE, data.path("result"));
+                terminal(JobState.COMPLETED, null);
+            }
+            case "error" -> terminal(JobState.FAILED, data.path("message").asText(null));
+            default -> {
+                // queued 등은 상태 변화 없음
+            }
+        }
+    }
+
+    private void running() {
+        if (state == JobState.QUEUED) {
+            state = JobState.RUNNING;
+        }
+    }
+
+    private void terminal(JobState finalState, String message) {
+        if (!state.isFinished()) {
+            state = finalState;
+            error = message;
+        }
+    }
+
+    private record Pending(Event event, Consumer<Event> deliver) {}
+
+    // 배치 결과에는 어느 호텔의 CID 인지 표시 (item.hotel 은 호텔명)
+    private static JsonNode withHotel(JsonNode item, int hotel) {
+        if (hotel == SINGLE || !item.isObject()) {
+            return item;
+        }
+        return ((ObjectNode) item.deepCopy()).put("hotelIndex", hotel);
+    }
+}
@@ -0,0 +1,486 @@
+package com.example.agoda.job;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 변환 작업 저장소.
+ *
+ * 작업 ID 는 클라이언트의 sessionId 를 그대로 쓰고(없으면 발급), 작업별로 SSE 이벤트와 폴링용 상태를 보관한다.
+ * 메모리에는 max-jobs 개까지 두고, 넘치면 끝난 작업부터 오래된 순으로 버린다. 끝난 작업은 retention 이 지나면 버린다.
+ * agoda.jobs.file 을 지정하면 작업 생성/이벤트/종료를 한 줄씩 JSON 으로 덧붙여 저장하고, 시작 시 불러와 파일을 정리한다.
+ * 실행 중에도 버린 작업의 줄이 파일의 절반을 넘으면 (최소 COMPACT_MIN_LINES 줄) 남은 작업만으로 파일을 다시 쓴다.
+ * 다시 쓸 내용은 저장소 잠금 밖에서 만들고, 그동안 덧붙은 줄만 잠금 안에서 옮겨 붙인 뒤 파일을 바꾼다.
+ * 진행률/대기열 이벤트는 저장하지 않으며, 재시작 전에 끝나지 않은 작업은 INTERRUPTED 로 불러온다.
+ * 다른 노드에서 실행 중인 작업은 mirror 로 그 노드의 이벤트를 받아 두어 이 노드에서도 재생/폴링할 수 있게 한다.
+ */
+@Component
+public class JobRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRegistry.class);
+
+    public static final String SINGLE = "single";
+    public static final String BATCH = "batch";
+    public static final String SWEEP = "sweep";
+
+    // 버린 작업의 줄이 이보다 적으면 파일을 다시 쓰지 않음 (작업이 적을 때 매번 다시 쓰지 않도록)
+    private static final long COMPACT_MIN_LINES = 1000;
+
+    private final int maxJobs;
+    private final int maxEvents;
+    private final long retentionMillis;
+    private final Path file;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private BufferedWriter journal;
+    // 저장 파일의 작업별 줄 수, 전체 줄 수, 버린 작업의 줄 수 (journal 과 같은 잠금)
+    private final Map<String, Long> journalLinesByJob = new HashMap<>();
+    private long journalLines;
+    private long deadLines;
+    // 실행 중 정리: 진행 중 여부와, 다시 쓸 내용을 만드는 동안 덧붙은 작업별 줄 수
+    private boolean compacting;
+    private Map<String, Long> linesSinceMark;
+
+    // 지표
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong mirrored = new AtomicLong();
+    private final AtomicLong journalErrors = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    public JobRegistry(
+            @Value("${agoda.jobs.max-jobs:500}") int maxJobs,
+            @Value("${agoda.jobs.max-events-per-job:5000}") int maxEvents,
+            @Value("${agoda.jobs.retention-seconds:3600}") long retentionSeconds,
+            @Value("${agoda.jobs.file:}") String file) {
+        this.maxJobs = Math.max(1, maxJobs);
+        this.maxEvents = Math.max(1, maxEvents);
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(Math.max(1, retentionSeconds));
+        this.file = file == null || file.isBlank() ? null : Path.of(file);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (file == null) {
+            return;
+        }
+        try {
+            if (Files.exists(file)) {
+                readJournal();
+                log.info("변환 작업 불러옴 file={} jobs={}", file, jobs.size());
+            }
+            Path temp = tempFile();
+            Map<String, Long> lines = writeSnapshot(temp, List.copyOf(jobs.values()));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            openJournal(lines, 0);
+        } catch (IOException e) {
+            log.warn("변환 작업 파일을 사용할 수 없습니다 file={}: {}", file, e.getMessage());
+        }
+    }
+
+    // 다시 쓴 파일을 덧붙이기용으로 열고 줄 수를 맞춤
+    private synchronized void openJournal(Map<String, Long> lines, long dead) throws IOException {
+        journalLinesByJob.clear();
+        journalLinesByJob.putAll(lines);
+        journalLines = lines.values().stream().mapToLong(Long::longValue).sum() + dead;
+        deadLines = dead;
+        journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("변환 작업 파일을 닫지 못했습니다 file={}: {}", file, e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * 작업을 만든다. 같은 ID 의 작업이 같은 URL 로 아직 진행 중이면 새로 만들지 않고 그 작업을 돌려준다
+     * (재연결/재전송으로 같은 크롤링을 두 번 하지 않도록). reused 가 true 면 호출 측은 변환을 다시 시작하지 않는다.
+     */
+    public Registration register(String id, String kind, List<String> urls) {
+        long now = System.currentTimeMillis();
+        Job[] result = new Job[1];
+        boolean[] reusedJob = new boolean[1];
+        boolean[] replaced = new boolean[1];
+        jobs.compute(id, (key, existing) -> {
+            if (existing != null && !existing.state().isFinished()
+                && existing.kind().equals(kind) && existing.urls().equals(urls)) {
+                reusedJob[0] = true;
+                result[0] = existing;
+                return existing;
+            }
+            replaced[0] = existing != null;
+            result[0] = new Job(id, kind, urls, now);
+            return result[0];
+        });
+        if (reusedJob[0]) {
+            reused.incrementAndGet();
+            return new Registration(result[0], true);
+        }
+        created.incrementAndGet();
+        if (replaced[0]) {
+            // 같은 ID 의 이전 작업 줄은 더 이상 쓰지 않음
+            discard(id);
+        }
+        write(id, jobLine(result[0]));
+        evict(now);
+        return new Registration(result[0], false);
+    }
+
+    public record Registration(Job job, boolean reused) {}
+
+    public Optional<Job> get(String id) {
+        return Optional.ofNullable(id == null ? null : jobs.get(id));
+    }
+
+    /**
+     * 작업에 이벤트를 기록하고 deliver 로 전달한다 (작업이 없으면 seq 0 으로 바로 전달).
+     */
+    public void record(String id, Map<String, Object> data, Consumer<Job.Event> deliver) {
+        JsonNode tree = mapper.valueToTree(data);
+        Job job = id == null ? null : jobs.get(id);
+        if (job == null) {
+            deliver.accept(new Job.Event(0, tree));
+            return;
+        }
+        Job.Event event = job.append(tree, System.currentTimeMillis(), maxEvents, deliver);
+        if (!event.transientEvent()) {
+            write(id, eventLine(id, event));
+        }
+    }
+
+    /**
+     * 다른 노드가 실행 중인 작업의 이벤트를 그 노드의 순번 그대로 기록하고 deliver 로 전달한다.
+     * 이 노드에 붙은 SSE 연결/폴링도 같은 작업을 보게 하며, 작업이 없거나 끝난 작업이 처음부터 다시 시작되면 새로 만든다.
+     * 실행하는 노드가 저장하므로 저장 파일에는 쓰지 않는다.
+     */
+    public void mirror(String id, String kind, List<String> urls, Job.Event event, Consumer<Job.Event> deliver) {
+        long now = System.currentTimeMillis();
+        boolean[] createdJob = new boolean[1];
+        Job job = jobs.compute(id, (key, existing) -> {
+            if (existing != null && existing.kind().equals(kind) && existing.urls().equals(urls)
+                && !(event.seq() == 1 && existing.state().isFinished())) {
+                return existing;
+            }
+            createdJob[0] = true;
+            return new Job(id, kind, urls, now);
+        });
+        if (createdJob[0]) {
+            mirrored.incrementAndGet();
+            evict(now);
+        }
+        job.mirror(event, now, maxEvents, deliver);
+    }
+
+    /**
+     * 끝나지 않은 작업을 finalState 로 끝낸다 (취소 등 이벤트 없이 끝나는 경우).
+     */
+    public void finish(String id, JobState finalState, String message) {
+        Job job = id == null ? null : jobs.get(id);
+        if (job != null && job.finish(finalState, message, System.currentTimeMillis())) {
+            write(id, stateLine(id, finalState, message));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<JobState, Long> byState = new EnumMap<>(JobState.class);
+        jobs.values().forEach(job -> byState.merge(job.state(), 1L, Long::sum));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("jobs", jobs.size());
+        stats.put("maxJobs", maxJobs);
+        stats.put("states", byState);
+        stats.put("created", created.get());
+        stats.put("reused", reused.get());
+        stats.put("evicted", evicted.get());
+        stats.put("mirrored", mirrored.get());
+        stats.put("persistent", file != null);
+        stats.put("journalErrors", journalErrors.get());
+        synchronized (this) {
+            stats.put("journalLines", journalLines);
+            stats.put("journalDeadLines", deadLines);
+        }
+        stats.put("compactions", compactions.get());
+        return stats;
+    }
+
+    // 보존 기간이 지난 끝난 작업을 버리고, 그래도 넘치면 끝난 작업 중 오래된 것부터 버림
+    private void evict(long now) {
+        jobs.values().removeIf(job -> {
+            boolean expired = job.state().isFinished() && now - job.updatedAt() > retentionMillis;
+            if (expired) {
+                evicted.incrementAndGet();
+                discard(job.id());
+            }
+            return expired;
+        });
+        if (jobs.size() > maxJobs) {
+            List<Job> finished = new ArrayList<>(jobs.values().stream().filter(job -> job.state().isFinished()).toList());
+            finished.sort(Comparator.comparingLong(Job::updatedAt));
+            for (Job job : finished) {
+                if (jobs.size() <= maxJobs) {
+                    break;
+                }
+                if (jobs.remove(job.id(), job)) {
+                    evicted.incrementAndGet();
+                    discard(job.id());
+                }
+            }
+        }
+        compactIfNeeded();
+    }
+
+    // 버린 작업의 줄은 다음 정리 때 지워짐
+    private synchronized void discard(String id) {
+        Long lines = journalLinesByJob.remove(id);
+        if (lines != null) {
+            deadLines += lines;
+        }
+    }
+
+    // 버린 작업의 줄이 파일의 절반을 넘으면 남은 작업만으로 다시 씀.
+    // 작업 내용(작업 잠금)은 저장소 잠금 밖에서 읽고, 표시 위치 이후 덧붙은 줄만 잠금 안에서 옮겨 붙임
+    // (표시 전에 쓴 줄은 이미 메모리에 반영되어 있으므로 빠지지 않고, 겹친 줄은 불러올 때 한 번만 적용)
+    private void compactIfNeeded() {
+        List<Job> keep;
+        long mark;
+        synchronized (this) {
+            if (journal == null || compacting || deadLines < COMPACT_MIN_LINES || deadLines * 2 < journalLines) {
+                return;
+            }
+            try {
+                mark = Files.size(file);
+            } catch (IOException e) {
+                journalErrors.incrementAndGet();
+                log.warn("변환 작업 파일 크기를 읽지 못했습니다 file={}: {}", file, e.getMessage());
+                return;
+            }
+            compacting = true;
+            linesSinceMark = new HashMap<>();
+            // 이 노드가 저장한 작업만 (다른 노드 작업의 사본, 아직 첫 줄을 쓰지 않은 작업은 제외)
+            Set<String> journaled = Set.copyOf(journalLinesByJob.keySet());
+            keep = jobs.values().stream().filter(job -> journaled.contains(job.id())).toList();
+        }
+        try {
+            Path temp = tempFile();
+            Map<String, Long> snapshot = writeSnapshot(temp, keep);
+            synchronized (this) {
+                long before = journalLines;
+                journal.close();
+                journal = null;
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    long size = in.size();
+                    for (long position = mark; position < size; ) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // 그사이 버린 작업의 줄은 다음 정리 대상으로
+                Map<String, Long> lines = new HashMap<>();
+                long dead = 0;
+                for (Map<String, Long> counts : List.of(snapshot, linesSinceMark)) {
+                    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                        if (journalLinesByJob.containsKey(entry.getKey())) {
+                            lines.merge(entry.getKey(), entry.getValue(), Long::sum);
+                        } else {
+                            dead += entry.getValue();
+                        }
+                    }
+                }
+                openJournal(lines, dead);
+                compactions.incrementAndGet();
+                log.info("변환 작업 파일 정리 file={} lines={} -> {}", file, before, journalLines);
+            }
+        } catch (IOException e) {
+            journalErrors.incrementAndGet();
+            log.warn("변환 작업 파일을 정리하지 못했습니다 file={}: {}", file, e.getMessage());
+            synchronized (this) {
+                if (journal == null) {
+                    try {
+                        journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    } catch (IOException reopen) {
+                        log.warn("변환 작업 파일을 다시 열지 못했습니다 file={}: {}", file, reopen.getMessage());
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                compacting = false;
+                linesSinceMark = null;
+            }
+        }
+    }
+
+    private synchronized void write(String id, JsonNode line) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write(mapper.writeValueAsString(line));
+            journal.newLine();
+            journal.flush();
+            journalLines++;
+            journalLinesByJob.merge(id, 1L, Long::sum);
+            if (linesSinceMark != null) {
+                linesSinceMark.merge(id, 1L, Long::sum);
+            }
+        } catch (IOException e) {
+            journalErrors.incrementAndGet();
+            log.warn("변환 작업을 저장하지 못했습니다 file={}: {}", file, e.getMessage());
+        }
+    }
+
+    // 저장 파일 한 줄: 작업 생성 / 이벤트 / 종료 상태
+    private JsonNode jobLine(Job job) {
+        ObjectNode line = mapper.createObjectNode().put("op", "job").put("id", job.id())
+            .put("kind", job.kind()).put("createdAt", job.createdAt());
+        line.set("urls", mapper.valueToTree(job.urls()));
+        return line;
+    }
+
+    private JsonNode eventLine(String id, Job.Event event) {
+        ObjectNode line = mapper.createObjectNode().put("op", "event").put("id", id).put("seq", event.seq());
+        line.set("data", event.data());
+        return line;
+    }
+
+    private JsonNode stateLine(String id, JobState state, String message) {
+        return mapper.createObjectNode().put("op", "state").put("id", id).put("state", state.name()).put("message", message);
+    }
+
+    // 덧붙인 줄을 순서대로 적용 (같은 작업의 이벤트는 여러 스레드가 쓰므로 순번으로 정렬)
+    private void readJournal() throws IOException {
+        Map<String, List<Job.Event>> pending = new LinkedHashMap<>();
+        Map<String, JsonNode> finals = new HashMap<>();
+        for (String text : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (text.isBlank()) {
+                continue;
+            }
+            JsonNode line;
+            try {
+                line = mapper.readTree(text);
+            } catch (IOException e) {
+                // 마지막 줄이 쓰다 만 줄일 수 있음
+                continue;
+            }
+            String id = line.path("id").asText();
+            switch (line.path("op").asText()) {
+                case "job" -> {
+                    Job existing = jobs.get(id);
+                    if (existing != null && existing.createdAt() == line.path("createdAt").asLong()) {
+                        // 실행 중 정리와 겹쳐 같은 작업 줄이 다시 붙은 경우
+                        continue;
+                    }
+                    List<String> urls = new ArrayList<>();
+                    line.path("urls").forEach(url -> urls.add(url.asText()));
+                    jobs.put(id, new Job(id, line.path("kind").asText(SINGLE), urls, line.path("createdAt").asLong()));
+                    pending.put(id, new ArrayList<>());
+                    finals.remove(id);
+                }
+                case "event" -> {
+                    List<Job.Event> events = pending.get(id);
+                    if (events != null) {
+                        events.add(new Job.Event(line.path("seq").asLong(), line.path("data")));
+                    }
+                }
+                case "state" -> finals.put(id, line);
+                default -> {
+                    // 알 수 없는 줄은 무시
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        pending.forEach((id, events) -> {
+            Job job = jobs.get(id);
+            events.sort(Comparator.comparingLong(Job.Event::seq));
+            long lastSeq = 0;
+            for (Job.Event event : events) {
+                // 정리와 겹쳐 두 번 저장된 이벤트는 한 번만
+                if (event.seq() > lastSeq) {
+                    job.restore(event, maxEvents);
+                    lastSeq = event.seq();
+                }
+            }
+            JsonNode finalState = finals.get(id);
+            if (finalState != null) {
+                job.finish(JobState.valueOf(finalState.path("state").asText()),
+                    finalState.path("message").asText(null), now);
+            }
+            job.finish(JobState.INTERRUPTED, "서버가 재시작되어 작업을 끝내지 못했습니다.", now);
+        });
+        evict(now);
+    }
+
+    private Path tempFile() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    // keep 작업만으로 임시 파일을 씀 (작업별로 쓴 줄 수를 돌려줌)
+    private Map<String, Long> writeSnapshot(Path temp, List<Job> keep) throws IOException {
+        Map<String, Long> written = new HashMap<>();
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Job job : keep) {
+                List<JsonNode> lines = new ArrayList<>();
+                lines.add(jobLine(job));
+                job.eventsAfter(0).stream()
+                    .filter(event -> !event.transientEvent())
+                    .forEach(event -> lines.add(eventLine(job.id(), event)));
+                // 진행 중인 작업은 이후 이벤트/종료 줄이 이어서 붙음
+                if (job.state().isFinished()) {
+                    lines.add(stateLine(job.id(), job.state(), job.error()));
+                }
+                for (JsonNode line : lines) {
+                    out.write(mapper.writeValueAsString(line));
+                    out.newLine();
+                }
+                written.put(job.id(), (long) lines.size());
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.agoda.job;
+
+/**
+ * 변환 작업 상태. CANCELLED 는 클라이언트가 떠나 취소된 작업, INTERRUPTED 는 서버 재시작으로 끝내지 못한 작업이다.
+ */
+public enum JobState {
+    QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, INTERRUPTED;
+
+    public boolean isFinished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
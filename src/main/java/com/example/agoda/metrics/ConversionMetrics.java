@@ -0,0 +1,112 @@
+package com.example.agoda.metrics;
+
+import com.example.agoda.browser.WebClientPool;
+import com.example.agoda.execution.ConversionExecutor;
+import com.example.agoda.model.LinkStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 변환 단계별 Micrometer 지표.
+ *
+ * agoda.stage       단계별 소요 시간 (stage, outcome 태그)
+ * agoda.cid         CID 하나의 전체 소요 시간 (label, status 태그)
+ * agoda.cid.retries CID 재시도 횟수 (label 태그)
+ * agoda.apipath.scan 호텔 페이지 apiUrl 스트림 스캔 결과 (result=found|fallback 태그)
+ * agoda.strategy    가격 추출 전략 한 번의 소요 시간 (strategy, outcome 태그)
+ * 그 외 실행기 대기열, 업스트림 동시 호출, WebClient 풀, 활성 SSE 연결 수는 게이지로 노출한다.
+ */
+@Component
+public class ConversionMetrics {
+
+    // 단계 이름 (stage 태그)
+    public static final String SESSION_COOKIES = "session_cookies";
+    public static final String HTML_FETCH = "html_fetch";
+    public static final String SECONDARY_API = "secondary_api";
+    public static final String HTMLUNIT_LOAD = "htmlunit_load";
+    public static final String HTMLUNIT_JS_WAIT = "htmlunit_js_wait";
+    public static final String STATIC_DOM = "static_dom";
+
+    private final MeterRegistry registry;
+
+    public ConversionMetrics(MeterRegistry registry, ConversionExecutor conversionExecutor,
+                             WebClientPool webClientPool) {
+        this.registry = registry;
+        Gauge.builder("agoda.executor.conversions.running", conversionExecutor, ConversionExecutor::runningConversions)
+            .register(registry);
+        Gauge.builder("agoda.executor.conversions.queued", conversionExecutor, ConversionExecutor::queuedConversions)
+            .register(registry);
+        Gauge.builder("agoda.executor.inflight.calls", conversionExecutor, ConversionExecutor::inflightCalls)
+            .register(registry);
+        Gauge.builder("agoda.htmlunit.pool.leased", webClientPool, WebClientPool::leasedClients)
+            .register(registry);
+        Gauge.builder("agoda.htmlunit.pool.waiting", webClientPool, WebClientPool::waitingForClient)
+            .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void stopStage(Timer.Sample sample, String stage, boolean success) {
+        sample.stop(Timer.builder("agoda.stage")
+            .tag("stage", stage)
+            .tag("outcome", success ? "success" : "error")
+            .register(registry));
+    }
+
+    /**
+     * future 가 끝날 때 단계 소요 시간을 기록한다.
+     */
+    public <T> CompletableFuture<T> timeStage(String stage, CompletableFuture<T> future) {
+        Timer.Sample sample = start();
+        return future.whenComplete((value, e) -> stopStage(sample, stage, e == null));
+    }
+
+    public void recordCid(Timer.Sample sample, String label, LinkStatus status) {
+        sample.stop(Timer.builder("agoda.cid")
+            .tag("label", labelTag(label))
+            .tag("status", status.name())
+            .register(registry));
+    }
+
+    public void recordRetry(String label) {
+        Counter.builder("agoda.cid.retries")
+            .tag("label", labelTag(label))
+            .register(registry)
+            .increment();
+    }
+
+    public void recordStrategy(String strategy, boolean success, long nanos) {
+        Timer.builder("agoda.strategy")
+            .tag("strategy", strategy)
+            .tag("outcome", success ? "success" : "error")
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordApiPathScan(boolean found) {
+        Counter.builder("agoda.apipath.scan")
+            .tag("result", found ? "found" : "fallback")
+            .register(registry)
+            .increment();
+    }
+
+    public void gaugeSize(String name, Map<?, ?> map) {
+        Gauge.builder(name, map, Map::size).register(registry);
+    }
+
+    // 무작위 AUTO-xxxxxxx 라벨은 하나로 묶어 태그 수를 제한
+    private static String labelTag(String label) {
+        return label.startsWith("AUTO-") ? "AUTO" : label;
+    }
+}
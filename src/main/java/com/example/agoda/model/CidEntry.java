@@ -0,0 +1,3 @@
+package com.example.agoda.model;
+
+public record CidEntry(String label, int cid) {}
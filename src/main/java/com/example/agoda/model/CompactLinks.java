@@ -0,0 +1,89 @@
+package com.example.agoda.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 압축 전송 형식 (요청 본문 compact=true). CID 결과를 짧은 키로 줄이고 URL 은 기준 URL 과 다른 부분만 보낸다.
+ *
+ * 결과 한 건: {"c": cid, "p": 가격, "s": 상태, "u": URL 차이, "o": 품절이면 true, "l": /api/meta 에 없는 라벨만}
+ * URL 차이는 [앞에서 같은 글자 수, 다른 부분, 뒤에서 같은 글자 수] 이며,
+ * 기준 URL 이 없으면 URL 전체 문자열이다. 복원: base[0:앞] + 다른 부분 + base[len-뒤:]
+ */
+public final class CompactLinks {
+
+    // AUTO CID 라벨 (cid 로 복원 가능하므로 보내지 않음)
+    public static final String AUTO_LABEL_PREFIX = "AUTO-";
+
+    private CompactLinks() {
+    }
+
+    // 결과 한 건. labels 는 /api/meta 로 보내는 고정 CID 라벨 (cid → 라벨)
+    public static Map<String, Object> encode(LinkInfo link, String base, Map<Integer, String> labels) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("c", link.getCid());
+        item.put("p", link.getPrice());
+        item.put("s", link.getStatus().name());
+        item.put("u", urlDelta(base, link.getUrl()));
+        if (link.isSoldOut()) {
+            item.put("o", true);
+        }
+        String label = link.getLabel();
+        if (label != null && !label.equals(labels.get(link.getCid()))
+                && !label.equals(AUTO_LABEL_PREFIX + link.getCid())) {
+            item.put("l", label);
+        }
+        return item;
+    }
+
+    // url 을 base 기준 [같은 앞부분 길이, 다른 부분, 같은 뒷부분 길이] 로 (base 가 없으면 url 그대로)
+    public static Object urlDelta(String base, String url) {
+        if (base == null || url == null) {
+            return url;
+        }
+        int max = Math.min(base.length(), url.length());
+        int prefix = 0;
+        while (prefix < max && base.charAt(prefix) == url.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && base.charAt(base.length() - 1 - suffix) == url.charAt(url.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return List.of(prefix, url.substring(prefix, url.length() - suffix), suffix);
+    }
+
+    /**
+     * complete 요약의 압축 사본. LinkInfo 는 결과 한 건 형식으로 바꾸고(같은 맵에 url 이 있으면 그 URL 기준),
+     * affiliateLinks 는 /api/meta 의 버전으로 대신한다. 요약 자체는 공유/캐시되므로 수정하지 않는다.
+     */
+    public static Object summary(Object value, String base, Map<Integer, String> labels, String metaVersion) {
+        if (value instanceof LinkInfo link) {
+            return encode(link, base, labels);
+        }
+        if (value instanceof Map<?, ?> map) {
+            String mapBase = map.get("url") instanceof String url ? url : base;
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                String key = String.valueOf(entry.getKey());
+                if (key.equals("affiliateLinks")) {
+                    copy.put("meta", metaVersion);
+                } else {
+                    copy.put(key, summary(entry.getValue(), mapBase, labels, metaVersion));
+                }
+            }
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(summary(item, base, labels, metaVersion));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.agoda.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 변환 한 건의 결과. results 는 CID별 결과(고정 순서), summary 는 complete 이벤트로 보내는 요약이다.
+ */
+public record ConversionOutcome(List<LinkInfo> results, Map<String, Object> summary) {
+
+    // cidList 순서대로 결과 정렬 (결과가 없는 CID 는 제외)
+    public static List<LinkInfo> sortByCidOrder(List<LinkInfo> unsortedResults, List<CidEntry> cidList) {
+        Map<Integer, LinkInfo> cidToResult = unsortedResults.stream()
+            .collect(Collectors.toMap(LinkInfo::getCid, result -> result));
+
+        return cidList.stream()
+            .map(cidEntry -> cidToResult.get(cidEntry.cid()))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.agoda.model;
+
+public class LinkInfo {
+    private final String label;
+    private final int cid;
+    private final String url;
+    private final double price;
+    private final boolean soldOut;
+    private final String hotel;
+    private final LinkStatus status;
+
+    public LinkInfo(String label, int cid, String url, double price, boolean soldOut, String hotel) {
+        this(label, cid, url, price, soldOut, hotel, soldOut ? LinkStatus.SOLD_OUT : LinkStatus.OK);
+    }
+
+    public LinkInfo(String label, int cid, String url, double price, boolean soldOut, String hotel, LinkStatus status) {
+        this.label = label;
+        this.cid = cid;
+        this.url = url;
+        this.price = price;
+        this.soldOut = soldOut;
+        this.hotel = hotel;
+        this.status = status;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+    public int getCid() {
+        return cid;
+    }
+    public String getUrl() {
+        return url;
+    }
+    public double getPrice() {
+        return price;
+    }
+    public boolean isSoldOut() {
+        return soldOut;
+    }
+    public String getHotel() {
+        return hotel;
+    }
+    public LinkStatus getStatus() {
+        return status;
+    }
+}
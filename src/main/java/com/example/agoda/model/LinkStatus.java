@@ -0,0 +1,6 @@
+package com.example.agoda.model;
+
+/**
+ * CID 결과 상태. TIMEOUT 은 마감 시간 안에 끝나지 않은 CID, FAILED 는 재시도 후에도 실패한 CID 이다.
+ */
+public enum LinkStatus { OK, SOLD_OUT, TIMEOUT, FAILED }
@@ -0,0 +1,311 @@
+package com.example.agoda.session;
+
+import com.example.agoda.upstream.RequestPacer;
+import com.example.agoda.upstream.UpstreamTransport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 미리 받아 둔 아고다 세션 쿠키 묶음 풀.
+ *
+ * 변환마다 페이지를 받아 쿠키를 수집하지 않고, 백그라운드에서 채워 둔 쿠키 묶음을 라운드로빈으로 빌려준다.
+ * 묶음은 만료(ttl) 전에 새로 받아 교체하고, 주기적으로 시드 페이지를 다시 요청해 차단/캡차 여부를 확인한다.
+ * 변환 결과가 모두 실패하거나 상태 확인에 실패한 묶음은 max-failures 번째에 풀에서 제거하고 다시 채운다.
+ * 풀이 비어 있으면 호출 측은 collect() 로 직접 수집한다.
+ */
+@Component
+public class SessionCookiePool {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionCookiePool.class);
+
+    // 백그라운드 요청의 간격 조절 키
+    private static final String PACING_KEY = "cookie-pool";
+
+    private final UpstreamTransport upstreamTransport;
+    private final RequestPacer requestPacer;
+    private final int size;
+    private final String seedUrl;
+    private final long ttlMillis;
+    private final long refreshAheadMillis;
+    private final long healthCheckMillis;
+    private final long maintainSeconds;
+    private final int maxFailures;
+
+    private final List<CookieSet> sets = new CopyOnWriteArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService maintainer;
+
+    // 지표
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong collected = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public SessionCookiePool(
+            UpstreamTransport upstreamTransport, RequestPacer requestPacer,
+            @Value("${agoda.cookie-pool.size:4}") int size,
+            @Value("${agoda.cookie-pool.seed-url:https://www.agoda.com/ko-kr/}") String seedUrl,
+            @Value("${agoda.cookie-pool.ttl-seconds:1800}") long ttlSeconds,
+            @Value("${agoda.cookie-pool.refresh-ahead-seconds:300}") long refreshAheadSeconds,
+            @Value("${agoda.cookie-pool.health-check-seconds:300}") long healthCheckSeconds,
+            @Value("${agoda.cookie-pool.maintain-seconds:30}") long maintainSeconds,
+            @Value("${agoda.cookie-pool.max-failures:2}") int maxFailures) {
+        this.upstreamTransport = upstreamTransport;
+        this.requestPacer = requestPacer;
+        this.size = Math.max(0, size);
+        this.seedUrl = seedUrl;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(1, ttlSeconds));
+        this.refreshAheadMillis = TimeUnit.SECONDS.toMillis(Math.max(0, refreshAheadSeconds));
+        this.healthCheckMillis = TimeUnit.SECONDS.toMillis(Math.max(1, healthCheckSeconds));
+        this.maintainSeconds = Math.max(1, maintainSeconds);
+        this.maxFailures = Math.max(1, maxFailures);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (size == 0) {
+            return;
+        }
+        maintainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cookie-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        // 기동을 막지 않도록 첫 채우기도 백그라운드에서
+        maintainer.scheduleWithFixedDelay(this::maintain, 0, maintainSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+    }
+
+    /**
+     * 쿠키 묶음을 라운드로빈으로 빌린다. 쓸 수 있는 묶음이 없으면 빈 값.
+     */
+    public Optional<Lease> lease() {
+        long now = System.currentTimeMillis();
+        List<CookieSet> usable = sets.stream().filter(set -> set.expiresAt > now).toList();
+        if (usable.isEmpty()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        CookieSet set = usable.get(Math.floorMod(next.getAndIncrement(), usable.size()));
+        set.uses.incrementAndGet();
+        leased.incrementAndGet();
+        return Optional.of(new Lease(set));
+    }
+
+    /**
+     * url 을 요청해 세션 쿠키를 새로 수집한다 (통화 KRW, 가격 표시 방식 고정).
+     */
+    public Map<String, String> collect(String url) throws IOException {
+        HttpRequest request = browserRequest(url).build();
+
+        // 쿠키만 필요하므로 본문은 읽지 않고 닫음
+        Map<String, String> sessionCookies;
+        try (UpstreamTransport.Response response = upstreamTransport.get(request)) {
+            if (response.statusCode() == 404 || response.uri().toString().contains("pagenotfound")) {
+                throw new IOException("URL이 유효하지 않거나 접근이 차단되었습니다.");
+            }
+            if (blocked(response)) {
+                throw new IOException("접근이 차단되었습니다 (HTTP " + response.statusCode() + ").");
+            }
+            sessionCookies = new HashMap<>(response.cookies());
+        }
+
+        if (sessionCookies.isEmpty()) {
+            throw new IOException("세션 쿠키를 받지 못했습니다.");
+        }
+
+        // 통화 관련 쿠키를 KRW로 강제 수정
+        if (sessionCookies.containsKey("agoda.version.03")) {
+            String versionCookie = sessionCookies.get("agoda.version.03");
+            versionCookie = versionCookie.replaceAll("CurLabel=\\w+", "CurLabel=KRW");
+            sessionCookies.put("agoda.version.03", versionCookie);
+        }
+
+        sessionCookies.put("agoda.price.01", "PriceView=2");
+
+        return sessionCookies;
+    }
+
+    public Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("available", sets.stream().filter(set -> set.expiresAt > now).count());
+        stats.put("leased", leased.get());
+        stats.put("misses", misses.get());
+        stats.put("collected", collected.get());
+        stats.put("refreshed", refreshed.get());
+        stats.put("evicted", evicted.get());
+        stats.put("sets", sets.stream().map(set -> Map.of(
+            "id", set.id,
+            "ageSeconds", TimeUnit.MILLISECONDS.toSeconds(now - set.createdAt),
+            "uses", set.uses.get(),
+            "failures", set.failures.get())).toList());
+        return stats;
+    }
+
+    // 만료/실패 묶음 제거, 만료 임박 묶음 교체, 상태 확인, 부족분 채우기
+    private void maintain() {
+        try {
+            long now = System.currentTimeMillis();
+            for (CookieSet set : sets) {
+                if (set.expiresAt <= now) {
+                    evict(set, "만료");
+                } else if (set.expiresAt - now <= refreshAheadMillis) {
+                    replace(set);
+                } else if (now - set.checkedAt >= healthCheckMillis && !healthy(set)) {
+                    set.failures.incrementAndGet();
+                    if (set.failures.get() >= maxFailures) {
+                        evict(set, "상태 확인 실패");
+                    }
+                }
+            }
+            while (sets.size() < size && !Thread.currentThread().isInterrupted()) {
+                sets.add(newSet());
+            }
+        } catch (Exception e) {
+            // 다음 주기에 다시 시도
+            log.warn("세션 쿠키 풀 유지 실패: {}", e.toString());
+        }
+    }
+
+    private void replace(CookieSet old) throws IOException {
+        CookieSet fresh = newSet();
+        int index = sets.indexOf(old);
+        if (index >= 0) {
+            sets.set(index, fresh);
+        } else {
+            sets.add(fresh);
+        }
+        refreshed.incrementAndGet();
+        log.debug("세션 쿠키 교체 id={} -> {}", old.id, fresh.id);
+    }
+
+    private void evict(CookieSet set, String reason) {
+        if (sets.remove(set)) {
+            evicted.incrementAndGet();
+            log.info("세션 쿠키 제거 id={} reason={} uses={}", set.id, reason, set.uses.get());
+        }
+    }
+
+    private CookieSet newSet() throws IOException {
+        requestPacer.acquire(upstreamTransport.host(), PACING_KEY).join();
+        CookieSet set = new CookieSet(collect(seedUrl), System.currentTimeMillis(), ttlMillis);
+        collected.incrementAndGet();
+        log.info("세션 쿠키 수집 id={} count={}", set.id, set.cookies.size());
+        return set;
+    }
+
+    // 쿠키를 실어 시드 페이지를 요청해 차단/캡차로 돌려보내지 않는지 확인
+    private boolean healthy(CookieSet set) {
+        requestPacer.acquire(upstreamTransport.host(), PACING_KEY).join();
+        HttpRequest request = browserRequest(seedUrl)
+            .header("Cookie", CookieTemplate.parse(set.cookies).unchanged().header())
+            .build();
+        try (UpstreamTransport.Response response = upstreamTransport.get(request)) {
+            set.checkedAt = System.currentTimeMillis();
+            return !blocked(response);
+        } catch (IOException e) {
+            log.debug("세션 쿠키 상태 확인 오류 id={}: {}", set.id, e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean blocked(UpstreamTransport.Response response) {
+        String uri = response.uri().toString().toLowerCase(Locale.ROOT);
+        return response.statusCode() == 403 || response.statusCode() == 429
+            || uri.contains("captcha") || uri.contains("blocked");
+    }
+
+    private HttpRequest.Builder browserRequest(String url) {
+        return upstreamTransport.request(url)
+            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
+            .header("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8")
+            .header("Cache-Control", "max-age=0")
+            .header("sec-ch-ua", "\"Not)A;Brand\";v=\"8\", \"Chromium\";v=\"138\", \"Google Chrome\";v=\"138\"")
+            .header("sec-ch-ua-mobile", "?0")
+            .header("sec-ch-ua-platform", "\"Windows\"")
+            .header("sec-fetch-dest", "document")
+            .header("sec-fetch-mode", "navigate")
+            .header("sec-fetch-site", "none")
+            .header("sec-fetch-user", "?1")
+            .header("upgrade-insecure-requests", "1")
+            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.0.0 Safari/537.36")
+            .timeout(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 빌린 쿠키 묶음. 변환이 끝나면 결과에 따라 succeeded()/failed() 로 알린다.
+     */
+    public final class Lease {
+        private final CookieSet set;
+
+        private Lease(CookieSet set) {
+            this.set = set;
+        }
+
+        // 변환에서 수정해도 되는 복사본
+        public Map<String, String> cookies() {
+            return new HashMap<>(set.cookies);
+        }
+
+        public void succeeded() {
+            set.failures.set(0);
+        }
+
+        // 가격을 하나도 받지 못한 경우 (차단/캡차 의심)
+        public void failed() {
+            if (set.failures.incrementAndGet() >= maxFailures) {
+                evict(set, "변환 실패");
+            }
+        }
+    }
+
+    private static final class CookieSet {
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        private final int id = IDS.incrementAndGet();
+        private final Map<String, String> cookies;
+        private final long createdAt;
+        private final long expiresAt;
+        private volatile long checkedAt;
+        private final AtomicInteger uses = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private CookieSet(Map<String, String> cookies, long createdAt, long ttlMillis) {
+            this.cookies = Map.copyOf(cookies);
+            this.createdAt = createdAt;
+            this.expiresAt = createdAt + ttlMillis;
+            this.checkedAt = createdAt;
+        }
+    }
+}
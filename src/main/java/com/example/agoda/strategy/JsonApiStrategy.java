@@ -0,0 +1,195 @@
+package com.example.agoda.strategy;
+
+import com.example.agoda.cache.ApiPathCache;
+import com.example.agoda.execution.CancelToken;
+import com.example.agoda.execution.FetchContext;
+import com.example.agoda.metrics.ConversionMetrics;
+import com.example.agoda.session.CookieTemplate.CidCookies;
+import com.example.agoda.upstream.AgodaPages;
+import com.example.agoda.upstream.ApiPathScanner;
+import com.example.agoda.upstream.RequestPacer;
+import com.example.agoda.upstream.SecondaryDataReader;
+import com.example.agoda.upstream.SecondaryDataReader.SecondaryData;
+import com.example.agoda.upstream.UpstreamTransport;
+
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 호텔 페이지의 apiUrl 로 secondary-data JSON 을 받아 세금 포함 총액과 호텔명을 읽는 전략.
+ *
+ * 렌더링 없이 HTTP 요청 한두 번으로 끝나 가장 싸다. apiUrl 은 ApiPathCache 에서 먼저 찾고,
+ * 캐시에 없으면 호텔 페이지 앞부분만 읽어 찾는다. 총액이 0 이면 품절로 본다.
+ */
+@Component
+@Order(1)
+public class JsonApiStrategy implements PriceStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonApiStrategy.class);
+
+    public static final String NAME = "json-api";
+
+    // apiUrl 을 찾으려고 호텔 페이지를 앞에서부터 읽는 최대 바이트 수 (넘으면 전체 파싱)
+    private static final int API_PATH_SCAN_LIMIT = 512 * 1024;
+
+    private final RequestPacer requestPacer;
+    private final UpstreamTransport upstreamTransport;
+    private final SecondaryDataReader secondaryDataReader;
+    private final ApiPathCache apiPathCache;
+    private final ConversionMetrics metrics;
+
+    public JsonApiStrategy(RequestPacer requestPacer, UpstreamTransport upstreamTransport,
+                           SecondaryDataReader secondaryDataReader, ApiPathCache apiPathCache,
+                           ConversionMetrics metrics) {
+        this.requestPacer = requestPacer;
+        this.upstreamTransport = upstreamTransport;
+        this.secondaryDataReader = secondaryDataReader;
+        this.apiPathCache = apiPathCache;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<PriceQuote> fetch(StrategyRequest request) {
+        String label = request.entry().label();
+        return fetchSecondaryData(request.hotelUrl(), label, request.cookies(), request.ctx())
+            .thenApply(data -> {
+                log.debug("[{}] 추가 경로 값 {}", label, data.extras());
+                return new PriceQuote(data.totalPrice(), data.hotelName());
+            });
+    }
+
+    /**
+     * secondary-data 를 가져온다 (변환 초기 정보에도 사용).
+     */
+    // 고정 3초 sleep 대신 RequestPacer 가 예약한 시점에 요청을 보내고, API 호출은 sendAsync 로 처리
+    // apiUrl 은 캐시에서 먼저 찾고, 캐시 템플릿이 오류/빈 JSON 을 내면 페이지를 새로 받아 다시 시도
+    public CompletableFuture<SecondaryData> fetchSecondaryData(String hotelPageUrl, String debugLabel,
+                                                               CidCookies sessionCookies, FetchContext ctx) {
+        return apiPathCache.lookup(hotelPageUrl, () -> fetchApiPath(hotelPageUrl, sessionCookies, ctx))
+            .thenCompose(lookup -> callSecondaryDataApi(lookup.apiPath(), hotelPageUrl, debugLabel, sessionCookies, ctx)
+                .handle((result, e) -> {
+                    if (!lookup.cached() || (e == null && result.usable())) {
+                        return e == null ? checked(result) : CompletableFuture.<SecondaryData>failedFuture(e);
+                    }
+                    log.info("[{}] 캐시된 apiUrl 실패, 페이지 재수집", debugLabel);
+                    apiPathCache.invalidate(hotelPageUrl);
+                    return fetchApiPath(hotelPageUrl, sessionCookies, ctx)
+                        .thenApply(apiPath -> {
+                            apiPathCache.put(hotelPageUrl, apiPath);
+                            return apiPath;
+                        })
+                        .thenCompose(apiPath -> callSecondaryDataApi(apiPath, hotelPageUrl, debugLabel, sessionCookies, ctx))
+                        .thenCompose(JsonApiStrategy::checked);
+                })
+                .thenCompose(f -> f));
+    }
+
+    // 호텔 페이지를 받아 script-initparam 의 apiUrl 경로를 추출
+    private CompletableFuture<String> fetchApiPath(String hotelPageUrl, CidCookies sessionCookies,
+                                                   FetchContext ctx) {
+        return requestPacer.acquire(upstreamTransport.host(), ctx.sessionId(), ctx.token())
+            .thenApplyAsync(ignored -> {
+                ctx.token().throwIfCancelled();
+                HttpRequest request = upstreamTransport.request(hotelPageUrl)
+                    .header("Cookie", sessionCookies.header())
+                    .header("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8")
+                    .header("ag-language-locale", "ko-kr")
+                    .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
+                    .timeout(Duration.ofSeconds(15))
+                    .build();
+                // 취소 시 블로킹 중인 페이지 다운로드를 인터럽트
+                Timer.Sample fetchTimer = metrics.start();
+                try (CancelToken.Registration interrupt = ctx.token().interruptOnCancel();
+                     UpstreamTransport.Response response = upstreamTransport.get(request)) {
+                    if (response.statusCode() >= 400) {
+                        throw new IOException("호텔 페이지 HTTP " + response.statusCode());
+                    }
+                    // 페이지 앞부분의 script-initparam 만 읽고 응답을 닫아 나머지 전송을 중단
+                    ApiPathScanner.Result scan = ApiPathScanner.scan(response.body(), API_PATH_SCAN_LIMIT);
+                    metrics.recordApiPathScan(scan.found());
+                    String apiPath;
+                    if (scan.found()) {
+                        apiPath = scan.apiPath();
+                    } else {
+                        // 블록을 찾지 못하면 읽은 부분부터 이어서 전체 문서 파싱
+                        log.debug("apiUrl 스트림 스캔 실패 - 전체 파싱으로 대체 url={}", hotelPageUrl);
+                        apiPath = AgodaPages.extractApiPath(response.document(scan.remainder()));
+                    }
+                    metrics.stopStage(fetchTimer, ConversionMetrics.HTML_FETCH, true);
+                    return apiPath;
+                } catch (IOException e) {
+                    metrics.stopStage(fetchTimer, ConversionMetrics.HTML_FETCH, false);
+                    throw new CompletionException(e);
+                }
+            }, ctx.executor());
+    }
+
+    private CompletableFuture<ApiResult> callSecondaryDataApi(String apiPath, String hotelPageUrl, String debugLabel,
+                                                              CidCookies sessionCookies,
+                                                              FetchContext ctx) {
+        String apiUrl = upstreamTransport.baseUrl() + apiPath;
+
+        String cookieHeader = sessionCookies.header();
+
+        HttpRequest request = upstreamTransport.request(apiUrl)
+            .header("Accept", "*/*")
+            .header("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8")
+            .header("ag-language-locale", "ko-kr")
+            .header("Cookie", cookieHeader)
+            .header("cr-currency-code", "KRW")
+            .header("cr-currency-id", "26")
+            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64)")
+            .header("Referer", hotelPageUrl)
+            .timeout(Duration.ofSeconds(20))
+            .build();
+
+        return requestPacer.acquire(upstreamTransport.host(), ctx.sessionId(), ctx.token())
+            .thenCompose(ignored -> {
+                ctx.token().throwIfCancelled();
+                // 취소 시 진행 중인 HTTP 교환도 중단
+                CompletableFuture<UpstreamTransport.Response> call = upstreamTransport.send(request);
+                CancelToken.Registration abort = ctx.token().onCancel(() -> call.cancel(true));
+                // 응답 본문은 문자열로 모으지도, 트리로 만들지도 않고 필요한 경로만 읽음
+                return metrics.timeStage(ConversionMetrics.SECONDARY_API, call
+                    .whenComplete((response, e) -> abort.close())
+                    .thenApplyAsync(apiResponse -> {
+                        log.debug("[{}] JSON API 응답 수신 status={}", debugLabel, apiResponse.statusCode());
+                        try (apiResponse; CancelToken.Registration closeOnCancel = ctx.token().onCancel(apiResponse::close)) {
+                            return new ApiResult(apiResponse.statusCode(), secondaryDataReader.read(apiResponse.body()));
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, ctx.executor()));
+            });
+    }
+
+    // 응답 제한/차단(4xx, 5xx)의 빈 본문을 총액 0(품절)으로 읽지 않도록 실패로 처리
+    private static CompletableFuture<SecondaryData> checked(ApiResult result) {
+        if (result.status() >= 400) {
+            return CompletableFuture.failedFuture(new IOException("secondary-data HTTP " + result.status()));
+        }
+        return CompletableFuture.completedFuture(result.data());
+    }
+
+    private record ApiResult(int status, SecondaryData data) {
+        // 캐시된 apiUrl 로 받은 응답을 그대로 써도 되는지 여부
+        boolean usable() {
+            return status < 400 && !data.isEmpty();
+        }
+    }
+}
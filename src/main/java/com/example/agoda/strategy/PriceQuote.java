@@ -0,0 +1,11 @@
+package com.example.agoda.strategy;
+
+/**
+ * 전략이 찾은 가격과 호텔명. price 가 0 이면 품절이다.
+ */
+public record PriceQuote(double price, String hotelName) {
+
+    public boolean soldOut() {
+        return price == 0;
+    }
+}
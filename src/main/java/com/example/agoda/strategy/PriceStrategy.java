@@ -0,0 +1,15 @@
+package com.example.agoda.strategy;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * CID 하나의 가격을 가져오는 방식.
+ * 가격도 품절 표시도 찾지 못하면 future 를 실패로 끝내 다음 전략으로 넘어가게 한다.
+ */
+public interface PriceStrategy {
+
+    // 설정(agoda.strategy.*)과 지표에서 쓰는 이름
+    String name();
+
+    CompletableFuture<PriceQuote> fetch(StrategyRequest request);
+}
@@ -0,0 +1,282 @@
+package com.example.agoda.strategy;
+
+import com.example.agoda.execution.UpstreamBusyException;
+import com.example.agoda.metrics.ConversionMetrics;
+import com.example.agoda.model.CidEntry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CID 마다 설정된 전략 체인을 앞에서부터 실행해 처음 성공한 전략의 가격을 쓴다.
+ *
+ * 체인은 agoda.strategy.default-chain 과 agoda.strategy.cid-chains 로 정한다 (예: "json-api>static-dom").
+ * 전략별/CID별 성공률과 지연 시간을 지수 평균으로 기록하고, 이력이 min-samples 이상 쌓인 전략끼리는
+ * 기대 비용(평균 지연 / 성공률)이 낮은 순으로 바꿔 실행해 싼 전략이 먼저, HtmlUnit 같은 비싼 전략은 필요할 때만 돈다.
+ * 이력이 부족한 전략은 설정 위치를 지키고, explore-rate 확률로 맨 앞에서 시도해 이력을 모은다.
+ * cid-chains 로 따로 정한 체인은 그 CID 의 이력으로만 판단한다 (다른 CID 에서 쌓인 전략 전체 이력은 같은 가격을
+ * 돌려준다는 보장이 없으므로). 체인 끝에 '!' 를 붙이면 순서를 바꾸지 않는다.
+ */
+@Component
+public class PriceStrategyEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceStrategyEngine.class);
+
+    // 지수 평균 가중치
+    private static final double ALPHA = 0.1;
+    // 성공률이 0 에 가까워도 기대 비용이 무한대가 되지 않도록
+    private static final double MIN_SUCCESS_RATE = 0.05;
+
+    // AUTO CID 는 매번 달라 하나로 묶어 기록
+    private static final String AUTO_KEY = "AUTO";
+
+    private final Map<String, PriceStrategy> strategies = new LinkedHashMap<>();
+    private final Chain defaultChain;
+    private final Map<Integer, Chain> cidChains = new HashMap<>();
+    private final int minSamples;
+    private final double exploreRate;
+    private final ConversionMetrics metrics;
+
+    // "전략" 과 "전략|CID" 별 이력
+    private final Map<String, StrategyStat> stats = new ConcurrentHashMap<>();
+
+    public PriceStrategyEngine(
+            List<PriceStrategy> strategies, ConversionMetrics metrics,
+            @Value("${agoda.strategy.default-chain:json-api>static-dom}") String defaultChain,
+            @Value("${agoda.strategy.cid-chains:}") String cidChains,
+            @Value("${agoda.strategy.min-samples:5}") int minSamples,
+            @Value("${agoda.strategy.explore-rate:0.05}") double exploreRate) {
+        strategies.forEach(strategy -> this.strategies.put(strategy.name(), strategy));
+        this.metrics = metrics;
+        this.minSamples = Math.max(1, minSamples);
+        this.exploreRate = Math.max(0, Math.min(1, exploreRate));
+        this.defaultChain = parseChain(defaultChain);
+        // "cid,cid=전략>전략; cid=전략" 형식
+        for (String rule : cidChains.split(";")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            int eq = rule.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("agoda.strategy.cid-chains 규칙 형식 오류: " + rule);
+            }
+            Chain chain = parseChain(rule.substring(eq + 1));
+            for (String cid : rule.substring(0, eq).split(",")) {
+                this.cidChains.put(Integer.parseInt(cid.trim()), chain);
+            }
+        }
+    }
+
+    /**
+     * 체인 순서대로 전략을 실행한다. 모두 실패하면 마지막 오류로 끝난다.
+     */
+    public CompletableFuture<PriceQuote> fetch(StrategyRequest request) {
+        return attempt(request, order(request.entry()), 0, null);
+    }
+
+    /**
+     * 이번 조회에서 실행할 전략 순서
+     */
+    public List<String> order(CidEntry entry) {
+        Chain chain = cidChains.getOrDefault(entry.cid(), defaultChain);
+        if (chain.pinned() || chain.strategies().size() == 1) {
+            return chain.strategies();
+        }
+        String key = statKey(entry);
+        boolean overall = chain == defaultChain;
+        List<String> order = new ArrayList<>(chain.strategies());
+
+        // 이력이 부족한 전략은 가끔 맨 앞에서 시도
+        List<String> unexplored = order.stream().filter(name -> stat(name, key, overall) == null).toList();
+        if (!unexplored.isEmpty() && ThreadLocalRandom.current().nextDouble() < exploreRate) {
+            String pick = unexplored.get(ThreadLocalRandom.current().nextInt(unexplored.size()));
+            order.remove(pick);
+            order.add(0, pick);
+            return order;
+        }
+
+        // 이력이 충분한 전략끼리만 기대 비용 순으로 자리를 바꿈 (나머지는 설정 위치 유지)
+        List<Integer> slots = new ArrayList<>();
+        List<String> ranked = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            if (stat(order.get(i), key, overall) != null) {
+                slots.add(i);
+                ranked.add(order.get(i));
+            }
+        }
+        ranked.sort(Comparator.comparingDouble(name -> stat(name, key, overall).expectedCost()));
+        for (int i = 0; i < slots.size(); i++) {
+            order.set(slots.get(i), ranked.get(i));
+        }
+        return order;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> byKey = new TreeMap<>();
+        stats.forEach((key, stat) -> byKey.put(key, stat.snapshot()));
+        Map<String, Object> chains = new TreeMap<>();
+        cidChains.forEach((cid, chain) -> chains.put(String.valueOf(cid), chain.describe()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("strategies", List.copyOf(strategies.keySet()));
+        result.put("defaultChain", defaultChain.describe());
+        result.put("cidChains", chains);
+        result.put("minSamples", minSamples);
+        result.put("exploreRate", exploreRate);
+        result.put("stats", byKey);
+        return result;
+    }
+
+    private CompletableFuture<PriceQuote> attempt(StrategyRequest request, List<String> order, int index,
+                                                  Throwable lastError) {
+        if (index == order.size()) {
+            return CompletableFuture.failedFuture(lastError);
+        }
+        PriceStrategy strategy = strategies.get(order.get(index));
+        String label = request.entry().label();
+        long start = System.nanoTime();
+        return strategy.fetch(request)
+            .handle((quote, e) -> {
+                // 마감/연결 종료로 취소된 경우는 전략 탓이 아니므로 기록하지 않고 다음 전략도 실행하지 않음
+                if (e != null && request.ctx().token().isCancelled()) {
+                    return CompletableFuture.<PriceQuote>failedFuture(e);
+                }
+                // 업스트림 차단 회로가 열린 경우도 마찬가지 (다른 전략도 같은 호스트를 부르므로 바로 실패)
+                if (e != null && isBusy(e)) {
+                    return CompletableFuture.<PriceQuote>failedFuture(e);
+                }
+                record(strategy.name(), request.entry(), e == null, System.nanoTime() - start);
+                if (e == null) {
+                    if (index > 0) {
+                        log.info("[{}] ✅ {} 방식으로 대체 성공", label, strategy.name());
+                    }
+                    return CompletableFuture.completedFuture(quote);
+                }
+                if (index + 1 < order.size()) {
+                    log.warn("[{}] ❌ {} 방식 실패, {} 방식으로 전환: {}",
+                        label, strategy.name(), order.get(index + 1), rootMessage(e));
+                }
+                return attempt(request, order, index + 1, e);
+            })
+            .thenCompose(f -> f);
+    }
+
+    private static boolean isBusy(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UpstreamBusyException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void record(String strategy, CidEntry entry, boolean success, long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        stats.computeIfAbsent(strategy, key -> new StrategyStat()).record(success, millis);
+        stats.computeIfAbsent(strategy + "|" + statKey(entry), key -> new StrategyStat()).record(success, millis);
+        metrics.recordStrategy(strategy, success, nanos);
+    }
+
+    // CID 이력이 충분하면 CID 이력, 아니면 (overall 이면) 전략 전체 이력, 둘 다 부족하면 null
+    private StrategyStat stat(String strategy, String key, boolean overall) {
+        StrategyStat cidStat = stats.get(strategy + "|" + key);
+        if (cidStat != null && cidStat.samples() >= minSamples) {
+            return cidStat;
+        }
+        if (!overall) {
+            return null;
+        }
+        StrategyStat strategyStat = stats.get(strategy);
+        return strategyStat != null && strategyStat.samples() >= minSamples ? strategyStat : null;
+    }
+
+    private static String statKey(CidEntry entry) {
+        return entry.label().startsWith("AUTO-") ? AUTO_KEY : String.valueOf(entry.cid());
+    }
+
+    private Chain parseChain(String text) {
+        String trimmed = text.trim();
+        boolean pinned = trimmed.endsWith("!");
+        if (pinned) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : trimmed.split(">")) {
+            String strategy = name.trim();
+            if (!strategies.containsKey(strategy)) {
+                throw new IllegalArgumentException("알 수 없는 가격 추출 전략: " + strategy + " (사용 가능: " + strategies.keySet() + ")");
+            }
+            names.add(strategy);
+        }
+        return new Chain(List.copyOf(names), pinned);
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause != cause.getCause()) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    private record Chain(List<String> strategies, boolean pinned) {
+        String describe() {
+            return String.join(">", strategies) + (pinned ? "!" : "");
+        }
+    }
+
+    // 전략 하나의 성공률/지연 시간 지수 평균
+    private static final class StrategyStat {
+        private long samples;
+        private long successes;
+        private double successRate;
+        private double latencyMillis;
+
+        synchronized void record(boolean success, long millis) {
+            if (samples == 0) {
+                successRate = success ? 1 : 0;
+                latencyMillis = millis;
+            } else {
+                successRate += ALPHA * ((success ? 1 : 0) - successRate);
+                latencyMillis += ALPHA * (millis - latencyMillis);
+            }
+            samples++;
+            if (success) {
+                successes++;
+            }
+        }
+
+        synchronized long samples() {
+            return samples;
+        }
+
+        // 성공 한 번을 얻는 데 드는 평균 시간
+        synchronized double expectedCost() {
+            return latencyMillis / Math.max(successRate, MIN_SUCCESS_RATE);
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("samples", samples);
+            snapshot.put("successes", successes);
+            snapshot.put("successRate", Math.round(successRate * 1000) / 1000.0);
+            snapshot.put("latencyMs", Math.round(latencyMillis));
+            snapshot.put("expectedCostMs", Math.round(expectedCost()));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.agoda.strategy;
+
+import com.example.agoda.browser.HotelPageExtractor;
+import com.example.agoda.browser.PageExtraction;
+import com.example.agoda.browser.WebClientPool;
+import com.example.agoda.execution.CancelToken;
+import com.example.agoda.execution.FetchContext;
+import com.example.agoda.execution.UpstreamGuard;
+import com.example.agoda.metrics.ConversionMetrics;
+import com.example.agoda.upstream.RequestPacer;
+import com.example.agoda.upstream.UpstreamTransport;
+import com.gargoylesoftware.htmlunit.FailingHttpStatusCodeException;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * HtmlUnit 으로 호텔 페이지를 렌더링해(JS 실행 포함) 가격/호텔명/품절 여부를 읽는 전략.
+ *
+ * JS 가 적용한 가격(구글 CID 의 AGODASPONSORED 등)을 볼 수 있지만 페이지 로드와 JS 대기로 가장 비싸다.
+ */
+@Component
+@Order(3)
+public class RenderedPageStrategy implements PriceStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(RenderedPageStrategy.class);
+
+    public static final String NAME = "js-rendered";
+
+    // JS 대기 설정
+    private static final long HTMLUNIT_MAX_JS_WAIT_MS = 10000;
+    private static final long HTMLUNIT_JS_POLL_MS = 250;
+
+    private final RequestPacer requestPacer;
+    private final UpstreamTransport upstreamTransport;
+    private final WebClientPool webClientPool;
+    private final HotelPageExtractor hotelPageExtractor;
+    private final ConversionMetrics metrics;
+    // HtmlUnit 은 UpstreamTransport 를 거치지 않으므로 페이지 로드 결과를 직접 기록
+    private final UpstreamGuard upstreamGuard;
+
+    public RenderedPageStrategy(RequestPacer requestPacer, UpstreamTransport upstreamTransport,
+                                WebClientPool webClientPool, HotelPageExtractor hotelPageExtractor,
+                                ConversionMetrics metrics, UpstreamGuard upstreamGuard) {
+        this.requestPacer = requestPacer;
+        this.upstreamTransport = upstreamTransport;
+        this.webClientPool = webClientPool;
+        this.hotelPageExtractor = hotelPageExtractor;
+        this.metrics = metrics;
+        this.upstreamGuard = upstreamGuard;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<PriceQuote> fetch(StrategyRequest request) {
+        FetchContext ctx = request.ctx();
+        String label = request.entry().label();
+        return requestPacer.acquire(upstreamTransport.host(), ctx.sessionId(), ctx.token())
+            .thenApplyAsync(ignored -> {
+                ctx.token().throwIfCancelled();
+                try {
+                    // 한 번의 페이지 로드로 가격과 호텔명을 함께 추출
+                    PageExtraction extraction = extractFromRenderedPage(request.hotelUrl(), request.cookies().asMap(),
+                        label, ctx.token());
+                    if (extraction.hasPrice() || extraction.soldOut()) {
+                        log.debug("[{}] ✅ HtmlUnit 방식 성공", label);
+                        return new PriceQuote(extraction.price(), extraction.hotelName());
+                    }
+                    throw new CompletionException(new Exception("HtmlUnit에서 가격을 찾지 못함"));
+                } catch (CompletionException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, ctx.executor());
+    }
+
+    // HtmlUnit으로 한 번 렌더링한 페이지에서 가격/호텔명/통화/품절 여부를 함께 추출
+    private PageExtraction extractFromRenderedPage(String hotelUrl, Map<String, String> cookies, String label,
+                                                   CancelToken token) throws Exception {
+        log.debug("[{}] HtmlUnit 방식 추출 시작", label);
+
+        try (WebClientPool.Lease lease = webClientPool.acquire()) {
+            WebClient webClient = lease.client();
+            // 취소 시 페이지 로드(소켓 I/O)를 인터럽트하고 남은 JS 작업을 제거
+            try (CancelToken.Registration interrupt = token.interruptOnCancel();
+                 CancelToken.Registration stopJs = token.onCancel(
+                     () -> webClient.getCurrentWindow().getJobManager().removeAllJobs())) {
+                // 쿠키 설정 (대여 시 쿠키 저장소는 비워진 상태)
+                for (Map.Entry<String, String> cookie : cookies.entrySet()) {
+                    try {
+                        webClient.getCookieManager().addCookie(
+                            new com.gargoylesoftware.htmlunit.util.Cookie(upstreamTransport.host(), cookie.getKey(), cookie.getValue())
+                        );
+                    } catch (Exception e) {
+                        // 쿠키 설정 실패 시 무시
+                    }
+                }
+
+                log.debug("[{}] 페이지 로드 시작: {}", label, hotelUrl);
+
+                // 페이지 로드
+                Timer.Sample loadTimer = metrics.start();
+                long loadStart = System.nanoTime();
+                HtmlPage page;
+                try {
+                    page = webClient.getPage(upstreamTransport.rebase(hotelUrl));
+                    metrics.stopStage(loadTimer, ConversionMetrics.HTMLUNIT_LOAD, true);
+                    upstreamGuard.recordStatus(page.getWebResponse().getStatusCode(), System.nanoTime() - loadStart);
+                } catch (FailingHttpStatusCodeException e) {
+                    metrics.stopStage(loadTimer, ConversionMetrics.HTMLUNIT_LOAD, false);
+                    upstreamGuard.recordStatus(e.getStatusCode(), System.nanoTime() - loadStart);
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    metrics.stopStage(loadTimer, ConversionMetrics.HTMLUNIT_LOAD, false);
+                    if (!token.isCancelled()) {
+                        upstreamGuard.recordFailure(e, System.nanoTime() - loadStart);
+                    }
+                    throw e;
+                }
+
+                log.debug("[{}] 페이지 로드 완료, 가격 요소가 채워질 때까지 대기 (최대 {}ms)", label, HTMLUNIT_MAX_JS_WAIT_MS);
+
+                // JavaScript 실행 대기 (AGODASPONSORED 적용 시간) - 가격/품절 표시가 나타나면 바로 종료
+                Timer.Sample jsTimer = metrics.start();
+                boolean ready = WebClientPool.waitUntil(webClient, () -> hotelPageExtractor.isReady(page),
+                    HTMLUNIT_MAX_JS_WAIT_MS, HTMLUNIT_JS_POLL_MS);
+                metrics.stopStage(jsTimer, ConversionMetrics.HTMLUNIT_JS_WAIT, ready);
+
+                token.throwIfCancelled();
+                PageExtraction extraction = hotelPageExtractor.extract(page);
+                if (extraction.hasPrice()) {
+                    log.debug("[{}] ✅ HtmlUnit 추출 성공 price={} currency={} hotel={}",
+                        label, extraction.price(), extraction.currency(), extraction.hotelName());
+                } else if (extraction.soldOut()) {
+                    log.debug("[{}] 페이지에 품절 표시 확인", label);
+                } else {
+                    log.debug("[{}] ❌ 가격 요소를 찾지 못함", label);
+                }
+                return extraction;
+
+            } catch (IOException | RuntimeException e) {
+                // 네트워크/스크립트 오류나 취소로 중단된 클라이언트는 재사용하지 않음
+                lease.discard();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.agoda.strategy;
+
+import com.example.agoda.browser.HotelPageExtractor;
+import com.example.agoda.execution.CancelToken;
+import com.example.agoda.execution.FetchContext;
+import com.example.agoda.metrics.ConversionMetrics;
+import com.example.agoda.upstream.RequestPacer;
+import com.example.agoda.upstream.UpstreamTransport;
+
+import io.micrometer.core.instrument.Timer;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 호텔 페이지 HTML 을 JS 실행 없이 파싱해 서버가 그려 둔 가격/품절 표시를 읽는 전략.
+ *
+ * 요청 한 번으로 끝나 HtmlUnit 보다 훨씬 싸지만, 가격을 JS 로 채우는 페이지에서는 실패한다.
+ * 해시 클래스 대신 data-selenium / data-element-name / meta 같은 안정적인 선택자만 쓴다.
+ */
+@Component
+@Order(2)
+public class StaticDomStrategy implements PriceStrategy {
+
+    public static final String NAME = "static-dom";
+
+    private static final List<String> PRICE_SELECTORS =
+        List.of(HotelPageExtractor.DISPLAY_PRICE, HotelPageExtractor.FINAL_PRICE);
+    private static final List<String> SOLD_OUT_SELECTORS =
+        List.of(HotelPageExtractor.SOLD_OUT_MESSAGE, HotelPageExtractor.NO_AVAILABILITY);
+
+    private final RequestPacer requestPacer;
+    private final UpstreamTransport upstreamTransport;
+    private final ConversionMetrics metrics;
+
+    public StaticDomStrategy(RequestPacer requestPacer, UpstreamTransport upstreamTransport,
+                             ConversionMetrics metrics) {
+        this.requestPacer = requestPacer;
+        this.upstreamTransport = upstreamTransport;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<PriceQuote> fetch(StrategyRequest request) {
+        FetchContext ctx = request.ctx();
+        return requestPacer.acquire(upstreamTransport.host(), ctx.sessionId(), ctx.token())
+            .thenApplyAsync(ignored -> {
+                ctx.token().throwIfCancelled();
+                HttpRequest httpRequest = upstreamTransport.request(request.hotelUrl())
+                    .header("Cookie", request.cookies().header())
+                    .header("Accept-Language", "ko-KR,ko;q=0.9,en;q=0.8")
+                    .header("ag-language-locale", "ko-kr")
+                    .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
+                    .timeout(Duration.ofSeconds(15))
+                    .build();
+                Timer.Sample fetchTimer = metrics.start();
+                try (CancelToken.Registration interrupt = ctx.token().interruptOnCancel();
+                     UpstreamTransport.Response response = upstreamTransport.get(httpRequest)) {
+                    if (response.statusCode() >= 400) {
+                        throw new IOException("호텔 페이지 HTTP " + response.statusCode());
+                    }
+                    PriceQuote quote = extract(response.document());
+                    metrics.stopStage(fetchTimer, ConversionMetrics.STATIC_DOM, quote != null);
+                    if (quote == null) {
+                        throw new IOException("정적 HTML 에서 가격을 찾지 못함");
+                    }
+                    return quote;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, ctx.executor());
+    }
+
+    // 가격이 있으면 가격, 없고 품절 표시가 있으면 0, 둘 다 없으면 null
+    static PriceQuote extract(Document doc) {
+        String hotelName = hotelName(doc);
+        for (String selector : PRICE_SELECTORS) {
+            Element element = doc.selectFirst(selector);
+            double price = element == null ? 0 : HotelPageExtractor.extractPriceFromText(element.text());
+            if (price > 0) {
+                return new PriceQuote(price, hotelName);
+            }
+        }
+        for (String selector : SOLD_OUT_SELECTORS) {
+            if (doc.selectFirst(selector) != null) {
+                return new PriceQuote(0, hotelName);
+            }
+        }
+        return null;
+    }
+
+    private static String hotelName(Document doc) {
+        Element header = doc.selectFirst(HotelPageExtractor.HOTEL_HEADER_NAME);
+        if (header != null && !header.text().isBlank()) {
+            return header.text().trim();
+        }
+        Element ogTitle = doc.selectFirst(HotelPageExtractor.OG_TITLE);
+        if (ogTitle != null && !ogTitle.attr("content").isBlank()) {
+            return ogTitle.attr("content").trim();
+        }
+        Element h1 = doc.selectFirst("h1");
+        return h1 != null && !h1.text().isBlank() ? h1.text().trim() : null;
+    }
+}
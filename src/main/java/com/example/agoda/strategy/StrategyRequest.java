@@ -0,0 +1,11 @@
+package com.example.agoda.strategy;
+
+import com.example.agoda.execution.FetchContext;
+import com.example.agoda.model.CidEntry;
+import com.example.agoda.session.CookieTemplate.CidCookies;
+
+/**
+ * 전략 하나에 넘기는 조회 정보. hotelUrl 은 cid 를 바꾼 호텔 페이지 주소이다.
+ */
+public record StrategyRequest(String hotelUrl, String currency, CidEntry entry, CidCookies cookies,
+                              FetchContext ctx) {}
@@ -0,0 +1,83 @@
+package com.example.agoda.upstream;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 아고다 호텔 페이지/URL 에서 값을 뽑는 정적 도우미.
+ */
+public final class AgodaPages {
+
+    private static final Pattern CHECK_IN_PARAM = Pattern.compile("(?i)([?&]checkIn=)([^&#]*)");
+    private static final Pattern CHECK_OUT_PARAM = Pattern.compile("(?i)([?&]checkOut=)([^&#]*)");
+
+    private AgodaPages() {
+    }
+
+    // script-initparam 블록의 apiUrl 경로 (secondary-data API)
+    public static String extractApiPath(Document doc) {
+        Element script = doc.selectFirst("script[data-selenium=script-initparam]");
+        String content = script != null
+            ? (script.data().isEmpty() ? script.text() : script.data())
+            : "";
+        return content.split("apiUrl\\s*=\\s*\"")[1]
+                      .split("\"")[0]
+                      .replace("&amp;", "&");
+    }
+
+    public static String extractCurrencyFromUrl(String url) {
+        if (url.contains("currencyCode=")) {
+            return url.split("currencyCode=")[1].split("&")[0].toUpperCase();
+        }
+        if (url.contains("currency=")) {
+            return url.split("currency=")[1].split("&")[0].toUpperCase();
+        }
+        return "KRW";
+    }
+
+    // URL 의 체크인 날짜 (없거나 형식이 다르면 null)
+    public static LocalDate extractCheckIn(String url) {
+        return dateParam(CHECK_IN_PARAM, url);
+    }
+
+    /**
+     * 체크인을 date 로 바꾼 URL (파라미터가 없으면 추가). checkOut 이 있으면 숙박일수가 같도록 함께 옮긴다.
+     */
+    public static String withCheckIn(String url, LocalDate date) {
+        LocalDate checkIn = extractCheckIn(url);
+        LocalDate checkOut = dateParam(CHECK_OUT_PARAM, url);
+        String result;
+        Matcher matcher = CHECK_IN_PARAM.matcher(url);
+        if (matcher.find()) {
+            result = matcher.replaceFirst("$1" + date);
+        } else {
+            int fragment = url.indexOf('#');
+            String base = fragment >= 0 ? url.substring(0, fragment) : url;
+            result = base + (base.contains("?") ? "&" : "?") + "checkIn=" + date
+                + (fragment >= 0 ? url.substring(fragment) : "");
+        }
+        if (checkIn != null && checkOut != null) {
+            long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+            result = CHECK_OUT_PARAM.matcher(result).replaceFirst("$1" + date.plusDays(nights));
+        }
+        return result;
+    }
+
+    private static LocalDate dateParam(Pattern pattern, String url) {
+        Matcher matcher = pattern.matcher(url);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(matcher.group(2));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.agoda.upstream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 호텔 페이지 본문을 앞에서부터 읽으며 script-initparam 블록의 apiUrl 만 찾는 스캐너.
+ *
+ * DOM 을 만들지 않고 바이트 단위로 표식을 찾으며, 블록을 다 읽으면 그 자리에서 읽기를 멈춘다
+ * (호출 측이 응답을 닫으면 나머지 전송도 중단). 결과는 AgodaPages.extractApiPath 와 같다.
+ * 찾지 못하면 지금까지 읽은 바이트와 남은 스트림을 이어 전체 파싱에 넘길 수 있게 돌려준다.
+ */
+public final class ApiPathScanner {
+
+    private static final byte[] MARKER = "script-initparam".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SCRIPT_OPEN = "<script".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SCRIPT_CLOSE = "</script".getBytes(StandardCharsets.US_ASCII);
+    private static final Pattern API_URL = Pattern.compile("apiUrl\\s*=\\s*\"([^\"]*)\"");
+
+    private static final int CHUNK = 8192;
+
+    private ApiPathScanner() {
+    }
+
+    /**
+     * 스캔 결과. apiPath 가 null 이면 remainder 로 문서 전체를 다시 읽을 수 있다.
+     */
+    public record Result(String apiPath, InputStream remainder) {
+        public boolean found() {
+            return apiPath != null;
+        }
+    }
+
+    /**
+     * maxBytes 까지 읽어도 블록을 찾지 못하면 포기한다.
+     */
+    public static Result scan(InputStream in, int maxBytes) throws IOException {
+        byte[] buf = new byte[CHUNK];
+        int length = 0;
+        int searchFrom = 0;
+        int blockStart = -1;
+
+        while (length < maxBytes) {
+            if (length == buf.length) {
+                buf = Arrays.copyOf(buf, Math.min(buf.length * 2, Math.max(maxBytes, CHUNK)));
+            }
+            int read = in.read(buf, length, Math.min(buf.length, maxBytes) - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+
+            // 1) script 여는 태그 안의 표식을 찾고 태그 끝('>') 다음을 블록 시작으로
+            while (blockStart < 0) {
+                int marker = indexOf(buf, length, MARKER, searchFrom, false);
+                if (marker < 0) {
+                    searchFrom = Math.max(searchFrom, length - MARKER.length + 1);
+                    break;
+                }
+                int tagEnd = indexOf(buf, length, new byte[] { '>' }, marker, false);
+                if (tagEnd < 0) {
+                    // 여는 태그를 다 읽지 못함
+                    searchFrom = marker;
+                    break;
+                }
+                if (insideScriptTag(buf, marker)) {
+                    blockStart = tagEnd + 1;
+                    searchFrom = blockStart;
+                } else {
+                    searchFrom = marker + MARKER.length;
+                }
+            }
+
+            // 2) 블록이 닫힐 때까지 읽은 뒤 apiUrl 을 꺼냄
+            if (blockStart >= 0) {
+                int blockEnd = indexOf(buf, length, SCRIPT_CLOSE, searchFrom, true);
+                if (blockEnd < 0) {
+                    searchFrom = Math.max(blockStart, length - SCRIPT_CLOSE.length + 1);
+                    continue;
+                }
+                String block = new String(buf, blockStart, blockEnd - blockStart, StandardCharsets.UTF_8);
+                Matcher matcher = API_URL.matcher(block);
+                if (matcher.find()) {
+                    return new Result(matcher.group(1).replace("&amp;", "&"), InputStream.nullInputStream());
+                }
+                break;
+            }
+        }
+        return new Result(null, new SequenceInputStream(new ByteArrayInputStream(buf, 0, length), in));
+    }
+
+    // 표식 앞의 가장 가까운 '<' 가 <script 인지
+    private static boolean insideScriptTag(byte[] buf, int marker) {
+        for (int i = marker - 1; i >= 0; i--) {
+            if (buf[i] == '>') {
+                return false;
+            }
+            if (buf[i] == '<') {
+                return regionMatches(buf, i, SCRIPT_OPEN, true);
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(byte[] buf, int length, byte[] target, int from, boolean ignoreCase) {
+        for (int i = Math.max(0, from); i <= length - target.length; i++) {
+            if (regionMatches(buf, i, target, ignoreCase)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] buf, int offset, byte[] target, boolean ignoreCase) {
+        if (offset + target.length > buf.length) {
+            return false;
+        }
+        for (int j = 0; j < target.length; j++) {
+            byte b = buf[offset + j];
+            if (ignoreCase && b >= 'A' && b <= 'Z') {
+                b = (byte) (b + ('a' - 'A'));
+            }
+            if (b != target[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
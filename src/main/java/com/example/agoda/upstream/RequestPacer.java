@@ -0,0 +1,163 @@
+package com.example.agoda.upstream;
+
+import com.example.agoda.execution.CancelToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 업스트림 요청 간격 조절기.
+ *
+ * 호스트별 토큰 버킷 + 세션(변환 작업)별 최소 간격 + 지터를 합쳐 다음 요청 시각을 예약하고,
+ * 대기는 스레드를 잡지 않고 ScheduledExecutorService 로 future 를 완료시키는 방식으로 처리한다.
+ */
+@Component
+public class RequestPacer {
+
+    private final double hostRatePerSecond;
+    private final int hostBurst;
+    private final long sessionIntervalNanos;
+    private final long jitterMillis;
+
+    private final Map<String, HostBucket> hostBuckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> sessionNextSlot = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "request-pacer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 지표
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong skippedCancelled = new AtomicLong();
+
+    public RequestPacer(
+            @Value("${agoda.pacer.host-rate:4.0}") double hostRatePerSecond,
+            @Value("${agoda.pacer.host-burst:4}") int hostBurst,
+            @Value("${agoda.pacer.session-interval-ms:250}") long sessionIntervalMillis,
+            @Value("${agoda.pacer.jitter-ms:150}") long jitterMillis) {
+        this.hostRatePerSecond = hostRatePerSecond;
+        this.hostBurst = Math.max(1, hostBurst);
+        this.sessionIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, sessionIntervalMillis));
+        this.jitterMillis = Math.max(0, jitterMillis);
+    }
+
+    /**
+     * 요청 허가를 예약한다. 반환된 future 는 요청을 보내도 되는 시점에 완료된다.
+     */
+    public CompletableFuture<Void> acquire(String host, String sessionKey) {
+        long now = System.nanoTime();
+        long hostDelay = hostBuckets
+            .computeIfAbsent(host, h -> new HostBucket(hostRatePerSecond, hostBurst, now))
+            .reserve(now);
+        long sessionDelay = reserveSessionSlot(sessionKey, now);
+        long jitter = jitterMillis > 0
+            ? TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(jitterMillis + 1))
+            : 0;
+        long delayNanos = Math.max(hostDelay, sessionDelay) + jitter;
+
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(delayNanos);
+        acquired.incrementAndGet();
+        totalWaitMillis.addAndGet(waitMillis);
+        maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+
+        if (delayNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        delayed.incrementAndGet();
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        scheduler.schedule(() -> permit.complete(null), delayNanos, TimeUnit.NANOSECONDS);
+        return permit;
+    }
+
+    /**
+     * acquire 와 같지만, 이미 취소된 작업이면 호스트 토큰과 세션 슬롯을 쓰지 않고 바로 실패한다.
+     */
+    public CompletableFuture<Void> acquire(String host, String sessionKey, CancelToken token) {
+        if (token.isCancelled()) {
+            skippedCancelled.incrementAndGet();
+            return CompletableFuture.failedFuture(new CancellationException(token.reason()));
+        }
+        return acquire(host, sessionKey);
+    }
+
+    // 변환 작업 종료 시 세션 슬롯 정리
+    public void releaseSession(String sessionKey) {
+        if (sessionKey != null) {
+            sessionNextSlot.remove(sessionKey);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long count = acquired.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hostRatePerSecond", hostRatePerSecond);
+        stats.put("hostBurst", hostBurst);
+        stats.put("sessionIntervalMs", TimeUnit.NANOSECONDS.toMillis(sessionIntervalNanos));
+        stats.put("jitterMs", jitterMillis);
+        stats.put("acquired", count);
+        stats.put("delayed", delayed.get());
+        stats.put("avgWaitMs", count == 0 ? 0 : (double) totalWaitMillis.get() / count);
+        stats.put("maxWaitMs", maxWaitMillis.get());
+        stats.put("skippedCancelled", skippedCancelled.get());
+        stats.put("activeSessions", sessionNextSlot.size());
+        stats.put("hosts", hostBuckets.keySet());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private long reserveSessionSlot(String sessionKey, long now) {
+        if (sessionKey == null || sessionIntervalNanos == 0) {
+            return 0;
+        }
+        AtomicLong next = sessionNextSlot.computeIfAbsent(sessionKey, k -> new AtomicLong(now));
+        long slot = next.getAndAccumulate(now, (prev, n) -> Math.max(prev, n) + sessionIntervalNanos);
+        return Math.max(0, slot - now);
+    }
+
+    // 예약형 토큰 버킷: 토큰이 없으면 음수로 빌려 쓰고 그만큼 대기 시간을 돌려준다
+    private static final class HostBucket {
+        private final double permitsPerNano;
+        private final int burst;
+        private double storedPermits;
+        private long lastRefill;
+
+        HostBucket(double ratePerSecond, int burst, long now) {
+            this.permitsPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            this.storedPermits = burst;
+            this.lastRefill = now;
+        }
+
+        synchronized long reserve(long now) {
+            if (permitsPerNano <= 0) {
+                return 0;
+            }
+            if (now > lastRefill) {
+                storedPermits = Math.min(burst, storedPermits + (now - lastRefill) * permitsPerNano);
+                lastRefill = now;
+            }
+            storedPermits -= 1;
+            return storedPermits >= 0 ? 0 : (long) (-storedPermits / permitsPerNano);
+        }
+    }
+}
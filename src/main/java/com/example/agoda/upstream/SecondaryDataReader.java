@@ -0,0 +1,180 @@
+package com.example.agoda.upstream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * secondary-data 응답에서 필요한 값만 JsonParser 로 뽑는 리더.
+ *
+ * JsonNode 트리 전체를 만들지 않고, 지정한 경로만 따라 내려가며 나머지 값은 skipChildren() 으로 건너뛴다.
+ * 기본 경로(호텔명, 세금 포함 총액, 통화) 외에 agoda.secondary-data.extra-paths 로 경로를 더 지정할 수 있다.
+ * 경로는 점으로 구분하고 배열 원소는 [] 로 표시한다 (예: roomGridData.masterRooms[].offers[].price.inclusive).
+ */
+@Component
+public class SecondaryDataReader {
+
+    private static final String HOTEL_NAME = "hotelInfo.name";
+    private static final String TOTAL_PRICE = "tealium.totalPriceTaxInc";
+    private static final String CURRENCY = "mosaicInitData.discount.currency";
+
+    private final JsonFactory factory = new JsonFactory();
+    private final PathNode root = new PathNode();
+    private final List<String> extraPaths;
+
+    public SecondaryDataReader(@Value("${agoda.secondary-data.extra-paths:}") String[] extraPaths) {
+        this.extraPaths = new ArrayList<>();
+        for (String path : List.of(HOTEL_NAME, TOTAL_PRICE, CURRENCY)) {
+            root.add(path);
+        }
+        for (String path : extraPaths) {
+            if (!path.isBlank()) {
+                this.extraPaths.add(path.trim());
+                root.add(path.trim());
+            }
+        }
+    }
+
+    public List<String> extraPaths() {
+        return List.copyOf(extraPaths);
+    }
+
+    /**
+     * 본문을 끝까지 읽는다. 빈 본문이나 객체가 아닌 JSON 은 비어 있는 결과.
+     */
+    public SecondaryData read(InputStream in) throws IOException {
+        try (JsonParser parser = factory.createParser(in)) {
+            return read(parser);
+        }
+    }
+
+    public SecondaryData read(String json) throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            return read(parser);
+        }
+    }
+
+    private SecondaryData read(JsonParser parser) throws IOException {
+        Map<String, List<String>> values = new HashMap<>();
+        JsonToken first = parser.nextToken();
+        int fields = 0;
+        if (first == JsonToken.START_OBJECT) {
+            fields = readObject(parser, root, values);
+        } else if (first != null) {
+            parser.skipChildren();
+        }
+        return toData(fields, values);
+    }
+
+    // 현재 객체의 필드를 읽고 필드 수를 반환 (START_OBJECT 다음부터 END_OBJECT 까지)
+    private static int readObject(JsonParser parser, PathNode node, Map<String, List<String>> values) throws IOException {
+        int fields = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            fields++;
+            PathNode child = node.fields.get(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            } else {
+                readValue(parser, value, child, values);
+            }
+        }
+        return fields;
+    }
+
+    private static void readValue(JsonParser parser, JsonToken value, PathNode node,
+                                  Map<String, List<String>> values) throws IOException {
+        if (value == JsonToken.START_OBJECT && !node.fields.isEmpty()) {
+            readObject(parser, node, values);
+        } else if (value == JsonToken.START_ARRAY && node.element != null) {
+            JsonToken element;
+            while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                readValue(parser, element, node.element, values);
+            }
+        } else if (value.isScalarValue()) {
+            if (node.path != null) {
+                values.computeIfAbsent(node.path, path -> new ArrayList<>(1))
+                    .add(value == JsonToken.VALUE_NULL ? null : parser.getText());
+            }
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    private SecondaryData toData(int fields, Map<String, List<String>> values) {
+        Map<String, List<String>> extras = new LinkedHashMap<>();
+        for (String path : extraPaths) {
+            extras.put(path, values.getOrDefault(path, List.of()));
+        }
+        return new SecondaryData(fields, last(values, HOTEL_NAME), asDouble(last(values, TOTAL_PRICE)),
+            last(values, CURRENCY), extras);
+    }
+
+    // 같은 키가 여러 번 나오면 JsonNode 와 같이 마지막 값
+    private static String last(Map<String, List<String>> values, String path) {
+        List<String> found = values.get(path);
+        return found == null || found.isEmpty() ? null : found.get(found.size() - 1);
+    }
+
+    // JsonNode.asDouble(0) 과 같이 숫자/숫자 문자열이 아니면 0
+    private static double asDouble(String text) {
+        if (text == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 추출 결과. fields 는 최상위 필드 수 (0 이면 빈 응답).
+     */
+    public record SecondaryData(int fields, String hotelName, double totalPrice, String currency,
+                                Map<String, List<String>> extras) {
+        public boolean isEmpty() {
+            return fields == 0;
+        }
+    }
+
+    // 경로 트리 (필드 이름별 자식, 배열 원소 자식, 이 위치에서 끝나는 경로)
+    private static final class PathNode {
+        private final Map<String, PathNode> fields = new HashMap<>();
+        private PathNode element;
+        private String path;
+
+        void add(String path) {
+            PathNode node = this;
+            for (String segment : path.split("\\.")) {
+                String name = segment;
+                int arrays = 0;
+                while (name.endsWith("[]")) {
+                    name = name.substring(0, name.length() - 2);
+                    arrays++;
+                }
+                if (!name.isEmpty()) {
+                    node = node.fields.computeIfAbsent(name, key -> new PathNode());
+                }
+                for (int i = 0; i < arrays; i++) {
+                    if (node.element == null) {
+                        node.element = new PathNode();
+                    }
+                    node = node.element;
+                }
+            }
+            node.path = path;
+        }
+    }
+}
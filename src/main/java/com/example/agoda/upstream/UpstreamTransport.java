@@ -0,0 +1,371 @@
+package com.example.agoda.upstream;
+
+import com.example.agoda.execution.ConversionExecutor;
+import com.example.agoda.execution.UpstreamBusyException;
+import com.example.agoda.execution.UpstreamGuard;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 모든 업스트림 HTTP 호출이 공유하는 전송 계층.
+ *
+ * HttpClient 하나로 www.agoda.com 에 HTTP/2 연결을 유지해 요청을 다중화하고(TLS 핸드셰이크는 호스트당 한 번),
+ * gzip/deflate 로 받아 응답 본문을 문자열로 모으지 않고 바로 파서에 스트림으로 넘긴다.
+ * 리다이렉트는 직접 따라가며 Set-Cookie 를 모아 Jsoup 의 Connection.Response.cookies() 와 같은 결과를 낸다.
+ * agoda.upstream.base-url 을 바꾸면 agoda.com 주소로 보내는 요청을 모두 그 주소로 보낸다 (부하 테스트용 스텁 서버 등).
+ * 업스트림 호스트로 가는 요청은 응답 상태/지연 시간을 UpstreamGuard 에 기록하고, 차단 회로가 열려 있으면 보내지 않는다.
+ */
+@Component
+public class UpstreamTransport {
+
+    // 디코딩 가능한 인코딩만 광고 (br/zstd 는 JDK 로 풀 수 없음)
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final Pattern CHARSET = Pattern.compile("charset=\"?([^\\s;\"]+)", Pattern.CASE_INSENSITIVE);
+    // 사용자가 입력하는 agoda.com 주소의 origin 부분
+    private static final Pattern AGODA_ORIGIN = Pattern.compile("^https?://(www\\.)?agoda\\.com(?=[/?#]|$)", Pattern.CASE_INSENSITIVE);
+
+    private final String baseUrl;
+    private final String host;
+
+    private final HttpClient client;
+    private final int maxRedirects;
+    private final UpstreamGuard upstreamGuard;
+
+    // 지표
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong http2Responses = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong redirects = new AtomicLong();
+
+    public UpstreamTransport(
+            ConversionExecutor conversionExecutor,
+            UpstreamGuard upstreamGuard,
+            @Value("${agoda.transport.connect-timeout-ms:5000}") long connectTimeoutMillis,
+            @Value("${agoda.transport.keepalive-seconds:120}") long keepAliveSeconds,
+            @Value("${agoda.transport.max-redirects:5}") int maxRedirects,
+            @Value("${agoda.upstream.base-url:https://www.agoda.com}") String baseUrl) {
+        URI base = URI.create(baseUrl.trim());
+        if (base.getScheme() == null || base.getHost() == null) {
+            throw new IllegalArgumentException("agoda.upstream.base-url 형식 오류: " + baseUrl);
+        }
+        this.baseUrl = baseUrl.trim().replaceAll("/+$", "");
+        this.host = base.getHost();
+        // 연결 풀 유휴 시간은 JDK 시스템 속성으로만 정할 수 있고 첫 HttpClient 생성 시 읽힌다 (JVM 옵션이 있으면 그 값 우선)
+        setIfAbsent("jdk.httpclient.keepalive.timeout", keepAliveSeconds);
+        setIfAbsent("jdk.httpclient.keepalive.timeout.h2", keepAliveSeconds);
+        this.maxRedirects = Math.max(0, maxRedirects);
+        this.upstreamGuard = upstreamGuard;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .executor(conversionExecutor.executor())
+            .build();
+    }
+
+    /**
+     * 업스트림 origin (기본 https://www.agoda.com, 끝의 '/' 제외)
+     */
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * 업스트림 호스트 이름 (요청 간격 조절 키, 쿠키 도메인)
+     */
+    public String host() {
+        return host;
+    }
+
+    /**
+     * agoda.com 주소의 origin 을 base-url 로 바꾼다. 다른 주소는 그대로.
+     */
+    public String rebase(String url) {
+        Matcher matcher = AGODA_ORIGIN.matcher(url);
+        return matcher.find() ? baseUrl + url.substring(matcher.end()) : url;
+    }
+
+    /**
+     * 공통 헤더(Accept-Encoding)를 넣은 GET 요청 빌더 (agoda.com 주소는 base-url 로 보냄)
+     */
+    public HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder(URI.create(rebase(url)))
+            .header("Accept-Encoding", ACCEPT_ENCODING)
+            .GET();
+    }
+
+    /**
+     * 리다이렉트를 따라가며 요청을 보낸다. 반환된 응답의 본문은 호출 측에서 읽고 닫아야 한다.
+     * future 를 취소하면 진행 중인 HTTP 교환도 중단된다. 차단 회로가 열려 있으면 UpstreamBusyException 으로 바로 끝난다.
+     */
+    public CompletableFuture<Response> send(HttpRequest request) {
+        if (guarded(request.uri())) {
+            long busyMillis = upstreamGuard.busyFor();
+            if (busyMillis > 0) {
+                return CompletableFuture.failedFuture(new UpstreamBusyException(busyMillis));
+            }
+        }
+        AtomicReference<CompletableFuture<?>> exchange = new AtomicReference<>();
+        CompletableFuture<Response> result = send(request, new LinkedHashMap<>(), 0, exchange);
+        // 바깥 future 취소를 진행 중인 교환(리다이렉트 중이면 마지막 교환)에 전달
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                exchange.get().cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * send() 의 블로킹 버전. 대기 중 인터럽트되면 HTTP 교환을 취소하고 InterruptedIOException 을 던진다.
+     */
+    public Response get(HttpRequest request) throws IOException {
+        CompletableFuture<Response> call = send(request);
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("업스트림 요청 중단: " + request.uri());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("http2Responses", http2Responses.get());
+        stats.put("compressedResponses", compressedResponses.get());
+        stats.put("redirects", redirects.get());
+        stats.put("maxRedirects", maxRedirects);
+        stats.put("baseUrl", baseUrl);
+        return stats;
+    }
+
+    /**
+     * Content-Encoding 에 맞춰 본문 스트림을 푼다. 빈 본문은 그대로 빈 스트림.
+     */
+    public static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        String encoding = contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (!encoding.equals("gzip") && !encoding.equals("x-gzip") && !encoding.equals("deflate")) {
+            return body;
+        }
+        PushbackInputStream in = new PushbackInputStream(body, 1);
+        int first = in.read();
+        if (first == -1) {
+            return in;
+        }
+        in.unread(first);
+        return encoding.equals("deflate") ? new InflaterInputStream(in) : new GZIPInputStream(in, 8192);
+    }
+
+    private CompletableFuture<Response> send(HttpRequest request, Map<String, String> cookies, int hops,
+                                             AtomicReference<CompletableFuture<?>> exchange) {
+        requests.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> call =
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        exchange.set(call);
+        if (guarded(request.uri())) {
+            // 우리가 취소한 교환은 업스트림 상태와 무관하므로 기록하지 않음
+            call.whenComplete((raw, e) -> {
+                if (e == null) {
+                    upstreamGuard.recordStatus(raw.statusCode(), System.nanoTime() - start);
+                } else if (!call.isCancelled()) {
+                    upstreamGuard.recordFailure(unwrap(e), System.nanoTime() - start);
+                }
+            });
+        }
+        return call.thenCompose(raw -> {
+            if (raw.version() == HttpClient.Version.HTTP_2) {
+                http2Responses.incrementAndGet();
+            }
+            cookies.putAll(setCookies(raw.headers()));
+            String location = raw.headers().firstValue("location").orElse(null);
+            if (isRedirect(raw.statusCode()) && location != null && hops < maxRedirects) {
+                closeQuietly(raw.body());
+                redirects.incrementAndGet();
+                URI target = URI.create(rebase(raw.uri().resolve(location).toString()));
+                return send(redirect(request, target, cookies), cookies, hops + 1, exchange);
+            }
+            return CompletableFuture.completedFuture(new Response(raw, Map.copyOf(cookies), this));
+        });
+    }
+
+    private boolean guarded(URI uri) {
+        return host.equalsIgnoreCase(uri.getHost());
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    // 리다이렉트 요청: 원래 헤더 + 지금까지 받은 쿠키
+    private static HttpRequest redirect(HttpRequest request, URI location, Map<String, String> received) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        request.headers().firstValue("cookie").ifPresent(header -> cookies.putAll(parseCookieHeader(header)));
+        cookies.putAll(received);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request, (name, value) -> !name.equalsIgnoreCase("cookie"))
+            .uri(location)
+            .GET();
+        if (!cookies.isEmpty()) {
+            builder.header("Cookie", cookies.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining("; ")));
+        }
+        return builder.build();
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    // Set-Cookie 헤더들의 이름=값 (속성은 무시)
+    private static Map<String, String> setCookies(HttpHeaders headers) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (String header : headers.allValues("set-cookie")) {
+            int end = header.indexOf(';');
+            String pair = end >= 0 ? header.substring(0, end) : header;
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        return cookies;
+    }
+
+    private static Map<String, String> parseCookieHeader(String header) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (String pair : header.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        return cookies;
+    }
+
+    private static void setIfAbsent(String property, long value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, String.valueOf(value));
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // 버리는 본문
+        }
+    }
+
+    /**
+     * 최종 응답. 본문은 한 번만 읽을 수 있고, 다 읽지 않았으면 close() 로 교환을 끝내야 한다.
+     */
+    public static final class Response implements AutoCloseable {
+        private final HttpResponse<InputStream> raw;
+        private final Map<String, String> cookies;
+        private final UpstreamTransport transport;
+        private InputStream body;
+
+        private Response(HttpResponse<InputStream> raw, Map<String, String> cookies, UpstreamTransport transport) {
+            this.raw = raw;
+            this.cookies = cookies;
+            this.transport = transport;
+        }
+
+        public int statusCode() {
+            return raw.statusCode();
+        }
+
+        // 리다이렉트 후 최종 주소
+        public URI uri() {
+            return raw.uri();
+        }
+
+        public HttpHeaders headers() {
+            return raw.headers();
+        }
+
+        // 리다이렉트 과정에서 받은 쿠키 전체
+        public Map<String, String> cookies() {
+            return cookies;
+        }
+
+        // 압축을 푼 본문 스트림
+        public InputStream body() throws IOException {
+            if (body == null) {
+                String encoding = raw.headers().firstValue("content-encoding").orElse(null);
+                if (encoding != null) {
+                    transport.compressedResponses.incrementAndGet();
+                }
+                body = decode(raw.body(), encoding);
+            }
+            return body;
+        }
+
+        // Content-Type 의 charset (없으면 null)
+        public String charset() {
+            return raw.headers().firstValue("content-type")
+                .map(CHARSET::matcher)
+                .filter(Matcher::find)
+                .map(matcher -> matcher.group(1))
+                .orElse(null);
+        }
+
+        // HTML 본문을 문자열 없이 바로 파싱 (charset 이 없으면 Jsoup 이 meta/BOM 으로 판별)
+        public Document document() throws IOException {
+            return document(body());
+        }
+
+        // 본문 일부를 이미 읽은 경우 그 부분과 남은 본문을 이은 스트림으로 파싱
+        public Document document(InputStream content) throws IOException {
+            return Jsoup.parse(content, charset(), raw.uri().toString());
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(body != null ? body : raw.body());
+        }
+    }
+}
@@ -35,6 +35,8 @@ const elements = {
 };
 
 let currentEventSource = null;
+// result 이벤트로 받은 CID별 결과
+let streamedItems = [];
 
 // 세션 ID 생성
 function generateSessionId() {
@@ -60,6 +62,11 @@ function updateProgress(percentage) {
     elements.progressPercent.textContent = percentage + '%';
 }
 
+// 대기열 순번 표시
+function updateQueuePosition(position) {
+    elements.progressPercent.textContent = `대기 중 (${position}번째)`;
+}
+
 // 초기 상태로 리셋
 function resetToInitial() {
     if (currentEventSource) {
@@ -80,6 +87,7 @@ function resetToInitial() {
     elements.cheapest.innerHTML = '';
     elements.cheapestBody.innerHTML = '';
     elements.affList.innerHTML = '';
+    streamedItems = [];
     updateProgress(0);
 }
 
@@ -120,16 +128,25 @@ elements.form.addEventListener('submit', async e => {
     elements.tablesContainer.style.display = 'none';
     elements.hotelTitle.style.display = 'none';
     elements.cheapestContainer.style.display = 'none';
+    elements.tableBody.innerHTML = '';
+    elements.cheapestBody.innerHTML = '';
+    streamedItems = [];
     updateProgress(0);
 
     // SSE 연결 설정
     currentEventSource = new EventSource(`/api/progress/${sessionId}`);
     
+    let sseErrors = 0;
     currentEventSource.onmessage = function(event) {
+        sseErrors = 0;
         const data = JSON.parse(event.data);
         
-        if (data.type === 'progress') {
+        if (data.type === 'queued') {
+            updateQueuePosition(data.position);
+        } else if (data.type === 'progress') {
             updateProgress(data.percentage);
+        } else if (data.type === 'result') {
+            handleResultItem(data.item, data.cheapest);
         } else if (data.type === 'complete') {
             handleCompletionData(data.result);
             currentEventSource.close();
@@ -143,6 +160,10 @@ elements.form.addEventListener('submit', async e => {
     };
 
     currentEventSource.onerror = function() {
+        // 브라우저가 자동으로 다시 연결하면 서버가 마지막으로 받은 이벤트 이후부터 재생
+        if (currentEventSource && currentEventSource.readyState === EventSource.CONNECTING && ++sseErrors <= 3) {
+            return;
+        }
         alert('서버 연결에 오류가 발생했습니다.');
         elements.loading.style.display = 'none';
         if (currentEventSource) {
@@ -184,47 +205,49 @@ elements.form.addEventListener('submit', async e => {
     }
 });
 
-// 완료 데이터 처리
-function handleCompletionData(res) {
-    console.log('처리 완료:', res);
-    
-    // 호텔명과 가격 표시
-    const hotelName = res.hotel;
-    const initialPriceValue = res.initialPrice;
-    const priceText = initialPriceValue > 0 
-        ? '₩' + initialPriceValue.toLocaleString()
-        : '가격 정보 없음';
-    elements.hotelTitle.textContent = `${hotelName} - ${priceText}`;
+// CID 결과 한 건 처리 (완료 전에도 표를 바로 갱신)
+function handleResultItem(item, cheapest) {
+    streamedItems.push(item);
 
+    if (!document.body.classList.contains('has-results')) {
+        elements.hotelTitle.textContent = item.hotel || '가격 정보를 수집 중입니다...';
+        showResults();
+    }
+
+    renderPricedRows(streamedItems);
+    renderCheapest(cheapest);
+}
+
+// 최저가 표 생성
+function renderCheapest(cheapestItem) {
+    if (!cheapestItem) return;
+
+    elements.cheapestContainer.style.display = 'block';
+    elements.cheapestBody.innerHTML = `
+        <tr>
+            <td>🏆 ${cheapestItem.label}</td>
+            <td>₩${cheapestItem.price.toLocaleString()}</td>
+            <td><button class="btn-link" onclick="window.open('${cheapestItem.url}', '_blank')">열기</button></td>
+            <td><button class="btn-link btn-copy" onclick="copyUrl('${cheapestItem.url}', this)">복사</button></td>
+        </tr>
+    `;
+}
+
+// CID별 가격 테이블 생성
+function renderPricedRows(items) {
     // 가격 배경색을 위한 유효한 가격 배열 생성
-    const validPrices = res.priced
+    const validPrices = items
         .filter(item => !item.soldOut && item.price > 0)
         .map(item => item.price);
 
-    // 최저가 표 생성
-    const availableItems = res.priced.filter(item => !item.soldOut && item.price > 0);
-    if (availableItems.length > 0) {
-        const cheapestItem = availableItems.reduce((min, current) => 
-            current.price < min.price ? current : min
-        );
-        
-        elements.cheapestContainer.style.display = 'block';
-        elements.cheapestBody.innerHTML = `
-            <tr>
-                <td>🏆 ${cheapestItem.label}</td>
-                <td>₩${cheapestItem.price.toLocaleString()}</td>
-                <td><button class="btn-link" onclick="window.open('${cheapestItem.url}', '_blank')">열기</button></td>
-                <td><button class="btn-link btn-copy" onclick="copyUrl('${cheapestItem.url}', this)">복사</button></td>
-            </tr>
-        `;
-    }
-
-    // CID별 가격 테이블 생성
     elements.tableBody.innerHTML = '';
-    res.priced.forEach(item => {
+    items.forEach(item => {
         const tr = document.createElement('tr');
-        const priceDisplay = item.soldOut ? '매진' : '₩' + item.price.toLocaleString();
-        const priceClass = item.soldOut ? 'sold-out' : '';
+        const timedOut = item.status === 'TIMEOUT';
+        const priceDisplay = timedOut ? '시간 초과'
+            : item.status === 'FAILED' ? '실패'
+            : item.soldOut ? '매진' : '₩' + item.price.toLocaleString();
+        const priceClass = item.soldOut || timedOut ? 'sold-out' : '';
         
         // 가격 배경색 적용
         let bgColorClass = '';
@@ -240,6 +263,27 @@ function handleCompletionData(res) {
         `;
         elements.tableBody.appendChild(tr);
     });
+}
+
+// 완료 데이터 처리 (요약만 수신, CID별 결과는 result 이벤트로 이미 받음)
+function handleCompletionData(res) {
+    console.log('처리 완료:', res);
+    
+    // 호텔명과 가격 표시
+    const hotelName = res.hotel;
+    const initialPriceValue = res.initialPrice;
+    const priceText = initialPriceValue > 0 
+        ? '₩' + initialPriceValue.toLocaleString()
+        : '가격 정보 없음';
+    elements.hotelTitle.textContent = `${hotelName} - ${priceText}`;
+
+    // 고정 CID 순서대로 재정렬
+    if (Array.isArray(res.order)) {
+        const position = new Map(res.order.map((cid, index) => [cid, index]));
+        streamedItems.sort((a, b) => (position.get(a.cid) ?? Infinity) - (position.get(b.cid) ?? Infinity));
+    }
+    renderPricedRows(streamedItems);
+    renderCheapest(res.cheapest);
 
     // 제휴 링크 생성
     elements.affList.innerHTML = '';
@@ -0,0 +1,84 @@
+package com.example.agoda.session;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CID 쿠키 재작성을 session-cookies.golden.txt 와 비교 (CookieTemplateBenchmark 의 시작 전 확인과 같은 기준).
+ * 픽스처는 src/jmh/resources/fixtures 를 테스트 리소스로 함께 씀.
+ */
+class CookieTemplateTest {
+
+    // 골든 파일을 만들 때 쓴 기준 시각
+    private static final LocalDateTime GOLDEN_TIME = LocalDateTime.parse("2025-11-14T08:30:05");
+
+    @TestFactory
+    Stream<DynamicTest> matchesGoldenOutput() throws IOException {
+        List<String[]> cases = lines("session-cookies.golden.txt").stream()
+            .map(line -> line.split("\t", 3))
+            .toList();
+        assertFalse(cases.isEmpty(), "골든 출력이 비어 있음");
+        return cases.stream().map(fields -> DynamicTest.dynamicTest(fields[0] + " cid=" + fields[1], () -> {
+            CookieTemplate.CidCookies cookies = CookieTemplate.parse(sessionCookies(fields[0]))
+                .forCid(Integer.parseInt(fields[1]), GOLDEN_TIME);
+            String fromMap = cookies.asMap().entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining("; "));
+            assertEquals(fields[2], cookies.header(), "헤더");
+            assertEquals(fields[2], fromMap, "맵");
+        }));
+    }
+
+    // 경계 사례 픽스처가 골든 출력에 포함되어 있어야 함
+    @Test
+    void goldenCoversEdgeCases() throws IOException {
+        assertTrue(lines("session-cookies.golden.txt").stream()
+            .anyMatch(line -> line.startsWith("session-cookies-edge.txt\t")), "경계 사례 골든 출력 없음");
+    }
+
+    // CID 를 바꾸지 않으면 세션 쿠키 그대로
+    @Test
+    void unchangedKeepsSessionCookies() throws IOException {
+        Map<String, String> session = sessionCookies("session-cookies-edge.txt");
+        assertEquals(session, CookieTemplate.parse(session).unchanged().asMap());
+    }
+
+    // '#' 주석, 빈 줄을 뺀 줄
+    private static List<String> lines(String name) throws IOException {
+        return text(name).lines().filter(line -> !line.isBlank() && !line.startsWith("#")).toList();
+    }
+
+    // 이름=값 형식의 세션 쿠키 스냅샷
+    private static Map<String, String> sessionCookies(String name) throws IOException {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (String line : lines(name)) {
+            int eq = line.indexOf('=');
+            cookies.put(line.substring(0, eq), line.substring(eq + 1).trim());
+        }
+        return cookies;
+    }
+
+    private static String text(String name) throws IOException {
+        try (InputStream in = CookieTemplateTest.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("픽스처 없음: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}